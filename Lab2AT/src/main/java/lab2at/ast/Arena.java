@@ -0,0 +1,65 @@
+package lab2at.ast;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+// Дерево для компилятора: параллельные массивы в обратном порядке (дети раньше родителя, корень — последний).
+// На узел — несколько int и ссылка на текст, без объекта и BitSet; Node остается для парсера и отладки
+public final class Arena {
+    private static final NodeType[] TYPES = NodeType.values();
+
+    private final byte[] type;
+    public final int[] left, right; // номера детей, -1 — нет
+    public final int[] pos; // позиция Глушкова листа, -1 у остальных; заполняет компилятор
+    private final String[] text;
+
+    private Arena(int size) {
+        type = new byte[size];
+        left = new int[size];
+        right = new int[size];
+        pos = new int[size];
+        text = new String[size];
+    }
+
+    public static Arena of(Node root) {
+        List<Node> order = Node.postOrder(root);
+        Arena a = new Arena(order.size());
+        Deque<Integer> done = new ArrayDeque<>(); // номера разобранных поддеревьев
+        for (int i = 0; i < order.size(); i++) {
+            Node n = order.get(i);
+            a.right[i] = n.right == null ? -1 : done.pop();
+            a.left[i] = n.left == null ? -1 : done.pop();
+            a.type[i] = (byte) n.type.ordinal();
+            a.text[i] = n.text;
+            a.pos[i] = -1;
+            done.push(i);
+        }
+        return a;
+    }
+
+    public int size() {
+        return type.length;
+    }
+
+    public int root() {
+        return type.length - 1;
+    }
+
+    public NodeType type(int i) {
+        return TYPES[type[i]];
+    }
+
+    public String text(int i) {
+        return text[i];
+    }
+
+    // границы REPEAT, как Node.repeatMin/repeatMax
+    public int repeatMin(int i) {
+        return Integer.parseInt(text[i].substring(0, text[i].indexOf(',')));
+    }
+
+    public int repeatMax(int i) {
+        return Integer.parseInt(text[i].substring(text[i].indexOf(',') + 1));
+    }
+}
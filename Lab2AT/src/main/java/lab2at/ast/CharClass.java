@@ -0,0 +1,80 @@
+package lab2at.ast;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Класс символов [a-z0-9] в узле CLASS: text — отсортированные непересекающиеся пары lo, hi.
+// Отрицание [^...] раскрывается заранее, в дереве его нет
+public final class CharClass {
+    public static final String ANY = "\0\t\u000b\uffff"; // '.' — любой символ, кроме '\n'
+    private static final String SPECIAL = "[]^-%.";
+
+    private CharClass() {}
+
+    // пары [lo, hi] в каноническую строку: сортировка, склейка соседних и пересекающихся, дополнение
+    public static String normalize(List<char[]> ranges, boolean negate) {
+        List<char[]> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingInt(r -> r[0]));
+        StringBuilder sb = new StringBuilder();
+        int lo = -1, hi = -2;
+        for (char[] r : sorted) {
+            if (r[0] > hi + 1) {
+                if (lo >= 0) sb.append((char) lo).append((char) hi);
+                lo = r[0];
+            }
+            hi = Math.max(hi, r[1]);
+        }
+        if (lo >= 0) sb.append((char) lo).append((char) hi);
+        return negate ? complement(sb.toString()) : sb.toString();
+    }
+
+    private static String complement(String text) {
+        StringBuilder sb = new StringBuilder();
+        int from = 0;
+        for (int i = 0; i < text.length(); i += 2) {
+            if (text.charAt(i) > from) sb.append((char) from).append((char) (text.charAt(i) - 1));
+            from = text.charAt(i + 1) + 1;
+        }
+        if (from <= Character.MAX_VALUE) sb.append((char) from).append(Character.MAX_VALUE);
+        return sb.toString();
+    }
+
+    public static char[] ranges(String text) {
+        return text.toCharArray();
+    }
+
+    public static boolean contains(String text, char c) {
+        int l = 0, r = text.length() / 2 - 1;
+        while (l <= r) {
+            int m = (l + r) >>> 1;
+            if (c < text.charAt(2 * m)) r = m - 1;
+            else if (c > text.charAt(2 * m + 1)) l = m + 1;
+            else return true;
+        }
+        return false;
+    }
+
+    // обратно в синтаксис шаблона: [a-z%-%], множество почти всех символов — через [^...] или '.'
+    public static String format(String text) {
+        if (text.equals(ANY)) return ".";
+        boolean negate = text.charAt(0) == 0 && text.charAt(text.length() - 1) == Character.MAX_VALUE
+                && text.length() > 2;
+        if (negate) text = complement(text);
+        StringBuilder sb = new StringBuilder(negate ? "[^" : "[");
+        for (int i = 0; i < text.length(); i += 2) {
+            char lo = text.charAt(i), hi = text.charAt(i + 1);
+            append(sb, lo);
+            if (hi > lo) {
+                if (hi > lo + 1) sb.append('-');
+                append(sb, hi);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private static void append(StringBuilder sb, char c) {
+        if (SPECIAL.indexOf(c) >= 0) sb.append('%').append(c).append('%');
+        else sb.append(c);
+    }
+}
@@ -1,17 +1,12 @@
 package lab2at.ast;
 
-import java.util.BitSet;
-import java.util.Objects;
+import java.util.*;
 
+// Узел дерева разбора. Компилятор работает не с ним, а с Arena: позиции, nullable и first/last — там
 public class Node {
     public final NodeType type;
     public String text;    // для литералов, именнованных групп, повторов
     public Node left, right;
-    public int pos = -1; // >0 только у литерала и GROUPCALL
-    public boolean nullable;
-    public BitSet first = new BitSet();
-    public BitSet last = new BitSet();
-//    public int repeatCount = -1; // только для повторов (отдельная логика для FP)
 
     public Node(NodeType type, String text) {
         this.type = Objects.requireNonNull(type);
@@ -30,9 +25,35 @@ public class Node {
         this.right = right;
     }
 
+    // Узлы поддерева в обратном порядке (left, right, узел) без рекурсии: левые цепочки CONCAT
+    // длиной в шаблон переполняли стек. Проходы по дереву идут по этому списку
+    public static List<Node> postOrder(Node root) {
+        List<Node> order = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) { // узел, right, left — обратный к нужному порядок
+            Node n = stack.pop();
+            order.add(n);
+            if (n.left != null) stack.push(n.left);
+            if (n.right != null) stack.push(n.right);
+        }
+        Collections.reverse(order);
+        return order;
+    }
+
+    // границы REPEAT: text = "n,m", тело (left) хранится один раз
+    public int repeatMin() {
+        return Integer.parseInt(text.substring(0, text.indexOf(',')));
+    }
+
+    public int repeatMax() {
+        return Integer.parseInt(text.substring(text.indexOf(',') + 1));
+    }
+
     @Override
     public String toString() {
-        String label = text == null ? type.name() : type.name() + ":" + text;
+        String shown = type == NodeType.CLASS ? CharClass.format(text) : text;
+        String label = text == null ? type.name() : type.name() + ":" + shown;
         if (left == null && right == null) {
             return label;
         }
@@ -2,11 +2,14 @@ package lab2at.ast;
 
 public enum NodeType {
     LITERAL,
+    CLASS, // [a-z0-9], text — пары lo, hi (CharClass)
     CONCAT,
     OR,
     KLEENE,
     OPTIONAL,
     NULL_REPEAT,
+    REPEAT, // left{n,m}, text — "n,m"
     GROUP_DEF,
-    GROUP_CALL
+    GROUP_CALL,
+    END // маркер конца шаблона в RegexSet, text — номер шаблона
 }
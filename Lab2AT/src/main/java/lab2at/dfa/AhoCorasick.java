@@ -0,0 +1,156 @@
+package lab2at.dfa;
+
+import java.util.*;
+
+// Автомат Ахо–Корасик для шаблонов вида foo|bar|baz|...: строится прямо по списку слов,
+// поиск линеен по длине текста при любом числе слов
+public final class AhoCorasick {
+    final Alphabet alphabet;
+    private final int classCount;
+    final int[] next; // полный автомат: next[node * classCount + cls], переходы по fail уже подставлены
+    final int[] depth; // длина строки, которую представляет узел бора
+    final int[] longestOut; // длина самого длинного слова — суффикса узла, 0 — нет
+    private final int maxDepth;
+
+    AhoCorasick(Alphabet alphabet, int[] next, int[] depth, int[] longestOut) {
+        this.alphabet = alphabet;
+        this.classCount = alphabet.size();
+        this.next = next;
+        this.depth = depth;
+        this.longestOut = longestOut;
+        this.maxDepth = Arrays.stream(depth).max().orElse(0);
+    }
+
+    public static AhoCorasick build(Collection<String> words) {
+        TreeSet<Character> symbols = new TreeSet<>();
+        for (String w : words) {
+            if (w.isEmpty())
+                throw new IllegalArgumentException("Empty word in Aho-Corasick dictionary");
+            for (char c : w.toCharArray()) symbols.add(c);
+        }
+        List<char[]> sets = new ArrayList<>();
+        for (char c : symbols) sets.add(new char[]{c, c});
+        Alphabet alphabet = Alphabet.partition(sets);
+        int k = alphabet.size();
+
+        // бор
+        int capacity = 1;
+        for (String w : words) capacity += w.length();
+        int[] next = new int[capacity * k];
+        Arrays.fill(next, -1);
+        int[] depth = new int[capacity];
+        int[] wordLen = new int[capacity];
+        int nodes = 1;
+        for (String w : words) {
+            int node = 0;
+            for (int i = 0; i < w.length(); i++) {
+                int idx = node * k + alphabet.classOf(w.charAt(i));
+                if (next[idx] == -1) {
+                    depth[nodes] = depth[node] + 1;
+                    next[idx] = nodes++;
+                }
+                node = next[idx];
+            }
+            wordLen[node] = w.length();
+        }
+
+        // суффиксные ссылки обходом в ширину, недостающие переходы берем у fail
+        int[] fail = new int[nodes];
+        int[] longestOut = new int[nodes];
+        int[] queue = new int[nodes];
+        int head = 0, tail = 0;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int cls = 0; cls < k; cls++) {
+                int v = next[u * k + cls];
+                if (v == -1) {
+                    next[u * k + cls] = u == 0 ? 0 : next[fail[u] * k + cls];
+                    continue;
+                }
+                fail[v] = u == 0 ? 0 : next[fail[u] * k + cls];
+                longestOut[v] = wordLen[v] > 0 ? wordLen[v] : longestOut[fail[v]];
+                queue[tail++] = v;
+            }
+        }
+        return new AhoCorasick(alphabet, Arrays.copyOf(next, nodes * k), Arrays.copyOf(depth, nodes), longestOut);
+    }
+
+    // [начало, конец) самого левого самого длинного вхождения, null — вхождений нет
+    public int[] leftmostLongest(CharSequence text, int from) {
+        int[] span = new int[2];
+        return leftmostLongest(text, from, span) ? span : null;
+    }
+
+    // то же без выделения памяти: [начало, конец) пишется в span
+    public boolean leftmostLongest(CharSequence text, int from, int[] span) {
+        return leftmostLongest(text, from, Integer.MAX_VALUE, span);
+    }
+
+    // совпадения, начинающиеся с limit и правее, не нужны (как DFARunner.searchEnd с limit)
+    public boolean leftmostLongest(CharSequence text, int from, int limit, int[] span) {
+        int st = 0;
+        int bestStart = -1, bestEnd = -1;
+        for (int i = from, len = text.length(); i < len; i++) {
+            st = next[st * classCount + alphabet.classOf(text.charAt(i))];
+            // ни одно незаконченное слово не начинается левее найденного — дальше искать нечего
+            if (bestStart >= 0 && i + 1 - depth[st] > bestStart) break;
+            if (bestStart < 0 && i + 1 - depth[st] >= limit) break; // все следующие слова начнутся не левее
+            int wordLen = longestOut[st];
+            if (wordLen > 0) {
+                int start = i + 1 - wordLen;
+                if (bestStart < 0 || start < bestStart || start == bestStart && i + 1 > bestEnd) {
+                    bestStart = start;
+                    bestEnd = i + 1;
+                }
+            }
+        }
+        if (bestStart < 0) return false;
+        span[0] = bestStart;
+        span[1] = bestEnd;
+        return true;
+    }
+
+    // то же по отображенному файлу: позиции — смещения в байтах
+    public boolean leftmostLongest(MappedText text, long from, long[] span) {
+        return leftmostLongest(text, from, Long.MAX_VALUE, span);
+    }
+
+    public boolean leftmostLongest(MappedText text, long from, long limit, long[] span) {
+        long[] charPos = new long[maxDepth + 1]; // байтовые начала последних символов, по кругу
+        int st = 0;
+        long chars = 0; // сколько символов (char) прочитано
+        long bestChar = -1, bestStart = -1, bestEnd = -1;
+        for (long pos = from, len = text.length(); pos < len; ) {
+            int cp = text.decode(pos);
+            long after = pos + text.width;
+            if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                charPos[(int) (chars++ % charPos.length)] = pos;
+                st = next[st * classCount + alphabet.classOf((char) cp)];
+            } else {
+                charPos[(int) (chars++ % charPos.length)] = pos;
+                st = next[st * classCount + alphabet.classOf(Character.highSurrogate(cp))];
+                charPos[(int) (chars++ % charPos.length)] = pos;
+                st = next[st * classCount + alphabet.classOf(Character.lowSurrogate(cp))];
+            }
+            pos = after;
+
+            if (bestChar >= 0 && chars - depth[st] > bestChar) break;
+            if (bestChar < 0 && (depth[st] == 0 ? after : charPos[(int) ((chars - depth[st]) % charPos.length)]) >= limit)
+                break;
+            int wordLen = longestOut[st];
+            if (wordLen > 0) {
+                long startChar = chars - wordLen;
+                if (bestChar < 0 || startChar < bestChar || startChar == bestChar && after > bestEnd) {
+                    bestChar = startChar;
+                    bestStart = charPos[(int) (startChar % charPos.length)];
+                    bestEnd = after;
+                }
+            }
+        }
+        if (bestChar < 0) return false;
+        span[0] = bestStart;
+        span[1] = bestEnd;
+        return true;
+    }
+}
@@ -0,0 +1,167 @@
+package lab2at.dfa;
+
+import java.util.*;
+
+// Разбиение UTF-16 на классы символов, неразличимых автоматом.
+// Класс 0 — символы, которые не встречаются ни в одной позиции.
+public final class Alphabet {
+    private static final char[] EMPTY_BLOCK = new char[256];
+
+    final char[][] blocks; // двухуровневая карта: старший байт -> блок из 256 классов
+    private final List<char[]> ranges; // для каждого класса: [lo0, hi0, lo1, hi1, ...]
+
+    private Alphabet(char[][] blocks, List<char[]> ranges) {
+        this.blocks = blocks;
+        this.ranges = ranges;
+    }
+
+    // Грубейшее разбиение, при котором каждое множество из sets — объединение классов.
+    // Множество задается отсортированными непересекающимися диапазонами [lo0, hi0, lo1, hi1, ...]
+    public static Alphabet partition(List<char[]> sets) {
+        TreeSet<Integer> cuts = new TreeSet<>(); // начала элементарных отрезков
+        cuts.add(0);
+        for (char[] set : sets) {
+            for (int r = 0; r < set.length; r += 2) {
+                cuts.add((int) set[r]);
+                if (set[r + 1] < Character.MAX_VALUE) cuts.add(set[r + 1] + 1);
+            }
+        }
+        int[] starts = cuts.stream().mapToInt(Integer::intValue).toArray();
+
+        // сигнатура отрезка — номера множеств, которые его покрывают
+        BitSet[] signature = new BitSet[starts.length];
+        for (int s = 0; s < starts.length; s++) signature[s] = new BitSet();
+        for (int id = 0; id < sets.size(); id++) {
+            char[] set = sets.get(id);
+            for (int r = 0; r < set.length; r += 2) {
+                int from = Arrays.binarySearch(starts, set[r]);
+                for (int s = from; s < starts.length && starts[s] <= set[r + 1]; s++)
+                    signature[s].set(id);
+            }
+        }
+
+        Map<BitSet, Integer> sigToClass = new HashMap<>();
+        sigToClass.put(new BitSet(), 0);
+        List<List<Character>> bounds = new ArrayList<>();
+        bounds.add(new ArrayList<>());
+        char[][] blocks = emptyBlocks();
+        Map<Character, char[]> uniform = new HashMap<>();
+        for (int s = 0; s < starts.length; s++) {
+            int lo = starts[s];
+            int hi = s + 1 < starts.length ? starts[s + 1] - 1 : Character.MAX_VALUE;
+            int cls = sigToClass.computeIfAbsent(signature[s], k -> {
+                bounds.add(new ArrayList<>());
+                return bounds.size() - 1;
+            });
+            bounds.get(cls).add((char) lo);
+            bounds.get(cls).add((char) hi);
+            if (cls != 0) fill(blocks, lo, hi, (char) cls, uniform);
+        }
+        return new Alphabet(blocks, toRanges(bounds));
+    }
+
+    // классы по интервалам переходов автомата (например, результата intersect)
+    static Alphabet ofTransitions(List<DFAState> states) {
+        List<char[]> sets = new ArrayList<>();
+        for (DFAState s : states) {
+            IntervalMap trans = IntervalMap.of(s.charTrans());
+            for (int i = 0; i < trans.count(); i++) sets.add(new char[]{trans.lo(i), trans.hi(i)});
+        }
+        return partition(sets);
+    }
+
+    // по диапазонам классов (как их отдает ranges), например при чтении сохраненного автомата
+    static Alphabet fromRanges(List<char[]> ranges) {
+        char[][] blocks = emptyBlocks();
+        Map<Character, char[]> uniform = new HashMap<>();
+        for (int cls = 1; cls < ranges.size(); cls++) {
+            char[] r = ranges.get(cls);
+            for (int i = 0; i < r.length; i += 2) fill(blocks, r[i], r[i + 1], (char) cls, uniform);
+        }
+        return new Alphabet(blocks, List.copyOf(ranges));
+    }
+
+    // Склейка классов: oldToNew[cls] — новый номер, класс 0 должен перейти в 0
+    public Alphabet merge(int[] oldToNew, int newCount) {
+        List<List<Character>> bounds = new ArrayList<>();
+        for (int i = 0; i < newCount; i++) bounds.add(new ArrayList<>());
+        for (int cls = 0; cls < ranges.size(); cls++) {
+            for (char c : ranges.get(cls)) bounds.get(oldToNew[cls]).add(c);
+        }
+
+        char[][] merged = emptyBlocks();
+        Map<Character, char[]> uniform = new HashMap<>();
+        for (int b = 0; b < blocks.length; b++) {
+            if (blocks[b] == EMPTY_BLOCK) continue;
+            char[] block = new char[256];
+            boolean same = true;
+            for (int j = 0; j < 256; j++) {
+                block[j] = (char) oldToNew[blocks[b][j]];
+                same &= block[j] == block[0];
+            }
+            merged[b] = same ? uniform.computeIfAbsent(block[0], k -> block) : block;
+        }
+        return new Alphabet(merged, toRanges(bounds));
+    }
+
+    public int classOf(char c) {
+        return blocks[c >>> 8][c & 0xFF];
+    }
+
+    public int size() {
+        return ranges.size();
+    }
+
+    public char[] ranges(int cls) {
+        return ranges.get(cls);
+    }
+
+    private static char[][] emptyBlocks() {
+        char[][] blocks = new char[256][];
+        Arrays.fill(blocks, EMPTY_BLOCK);
+        return blocks;
+    }
+
+    // Блок, целиком занятый одним классом, общий для всех таких блоков: для '.' и [^...] иначе
+    // выделялись бы все 256 блоков. Диапазоны не пересекаются, поэтому общий блок больше не пишется
+    private static void fill(char[][] blocks, int lo, int hi, char cls, Map<Character, char[]> uniform) {
+        for (int c = lo; c <= hi; ) {
+            if ((c & 0xFF) == 0 && c + 0xFF <= hi) {
+                blocks[c >>> 8] = uniform.computeIfAbsent(cls, k -> {
+                    char[] block = new char[256];
+                    Arrays.fill(block, k);
+                    return block;
+                });
+                c += 256;
+                continue;
+            }
+            if (blocks[c >>> 8] == EMPTY_BLOCK) blocks[c >>> 8] = new char[256];
+            blocks[c >>> 8][c & 0xFF] = cls;
+            c++;
+        }
+    }
+
+    // диапазоны класса сортируем и склеиваем соседние
+    private static List<char[]> toRanges(List<List<Character>> bounds) {
+        List<char[]> res = new ArrayList<>();
+        for (List<Character> b : bounds) {
+            List<int[]> rs = new ArrayList<>();
+            for (int i = 0; i < b.size(); i += 2) rs.add(new int[]{b.get(i), b.get(i + 1)});
+            rs.sort(Comparator.comparingInt(r -> r[0]));
+
+            List<int[]> joined = new ArrayList<>();
+            for (int[] r : rs) {
+                int[] last = joined.isEmpty() ? null : joined.get(joined.size() - 1);
+                if (last != null && last[1] + 1 >= r[0]) last[1] = Math.max(last[1], r[1]);
+                else joined.add(r);
+            }
+            char[] flat = new char[joined.size() * 2];
+            for (int i = 0; i < joined.size(); i++) {
+                flat[2 * i] = (char) joined.get(i)[0];
+                flat[2 * i + 1] = (char) joined.get(i)[1];
+            }
+            res.add(flat);
+        }
+        return res;
+    }
+}
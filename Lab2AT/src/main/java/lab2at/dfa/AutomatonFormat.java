@@ -0,0 +1,121 @@
+package lab2at.dfa;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+// Двоичная запись автоматов для RegexLib.save/load: big-endian, как у DataOutputStream.
+// Читаем из ByteBuffer (обычно отображенного файла), массивы переходов — одним копированием
+public final class AutomatonFormat {
+
+    private AutomatonFormat() {}
+
+    public static void writeTable(DataOutputStream out, DFATable t) throws IOException {
+        writeAlphabet(out, t.alphabet);
+        out.writeInt(t.stateCount());
+        writeInts(out, t.next);
+        for (boolean a : t.accept) out.writeBoolean(a);
+        writeInts(out, t.groupDfa);
+        writeInts(out, t.groupRet);
+    }
+
+    public static DFATable readTable(ByteBuffer in) {
+        Alphabet alphabet = readAlphabet(in);
+        DFATable t = new DFATable(alphabet, in.getInt());
+        readInts(in, t.next);
+        for (int st = 0; st < t.accept.length; st++) t.accept[st] = in.get() != 0;
+        readInts(in, t.groupDfa);
+        readInts(in, t.groupRet);
+        return t;
+    }
+
+    public static void writeStates(DataOutputStream out, List<DFAState> states) throws IOException {
+        out.writeInt(states.size());
+        for (DFAState s : states) {
+            out.writeInt(s.positions().length);
+            writeInts(out, s.positions());
+            out.writeBoolean(s.accept());
+            IntervalMap trans = IntervalMap.of(s.charTrans());
+            out.writeInt(trans.count());
+            for (int r = 0; r < trans.count(); r++) {
+                out.writeChar(trans.lo(r));
+                out.writeChar(trans.hi(r));
+                out.writeInt(trans.target(r));
+            }
+            out.writeInt(s.groupTrans().size());
+            for (var e : s.groupTrans().entrySet()) {
+                out.writeInt(e.getKey());
+                out.writeInt(e.getValue());
+            }
+        }
+    }
+
+    public static List<DFAState> readStates(ByteBuffer in) {
+        int count = in.getInt();
+        List<DFAState> states = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int[] positions = new int[in.getInt()];
+            readInts(in, positions);
+            boolean accept = in.get() != 0;
+            IntervalMap.Builder charTrans = new IntervalMap.Builder();
+            for (int n = in.getInt(); n > 0; n--) charTrans.add(in.getChar(), in.getChar(), in.getInt());
+            Map<Integer, Integer> groupTrans = new HashMap<>();
+            for (int n = in.getInt(); n > 0; n--) groupTrans.put(in.getInt(), in.getInt());
+            states.add(new DFAState(positions, accept, charTrans.build(), groupTrans));
+        }
+        return states;
+    }
+
+    public static void writeAhoCorasick(DataOutputStream out, AhoCorasick ac) throws IOException {
+        writeAlphabet(out, ac.alphabet);
+        out.writeInt(ac.depth.length);
+        writeInts(out, ac.next);
+        writeInts(out, ac.depth);
+        writeInts(out, ac.longestOut);
+    }
+
+    public static AhoCorasick readAhoCorasick(ByteBuffer in) {
+        Alphabet alphabet = readAlphabet(in);
+        int nodes = in.getInt();
+        int[] next = new int[nodes * alphabet.size()];
+        int[] depth = new int[nodes];
+        int[] longestOut = new int[nodes];
+        readInts(in, next);
+        readInts(in, depth);
+        readInts(in, longestOut);
+        return new AhoCorasick(alphabet, next, depth, longestOut);
+    }
+
+    private static void writeAlphabet(DataOutputStream out, Alphabet alphabet) throws IOException {
+        out.writeInt(alphabet.size());
+        for (int cls = 0; cls < alphabet.size(); cls++) {
+            char[] r = alphabet.ranges(cls);
+            out.writeInt(r.length);
+            for (char c : r) out.writeChar(c);
+        }
+    }
+
+    private static Alphabet readAlphabet(ByteBuffer in) {
+        int size = in.getInt();
+        List<char[]> ranges = new ArrayList<>(size);
+        for (int cls = 0; cls < size; cls++) {
+            char[] r = new char[in.getInt()];
+            in.asCharBuffer().get(r);
+            in.position(in.position() + 2 * r.length);
+            ranges.add(r);
+        }
+        return Alphabet.fromRanges(ranges);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] a) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4 * a.length);
+        buf.asIntBuffer().put(a);
+        out.write(buf.array());
+    }
+
+    private static void readInts(ByteBuffer in, int[] a) {
+        in.asIntBuffer().get(a);
+        in.position(in.position() + 4 * a.length);
+    }
+}
@@ -0,0 +1,427 @@
+package lab2at.dfa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+
+// Бэкенд, который превращает таблицы ДКА в класс: каждое состояние — блок кода со switch по символу,
+// переход — goto, так что на символ нет ни загрузки из таблицы, ни проверки границ массива.
+// Класс собирается прямо здесь и определяется как скрытый (Lookup.defineHiddenClass).
+// Версия class-файла 49: для нее не нужны StackMapTable, верификатор сам выводит типы
+public final class BytecodeCompiler {
+    private static final String CLASS_NAME = "lab2at/dfa/GeneratedDFA";
+    private static final String CHAR_SEQUENCE = "java/lang/CharSequence";
+    private static final int MAX_SWITCH_SPAN = 16; // более широкие диапазоны проверяем сравнениями
+
+    private enum Mode { MATCH, SEARCH, BACKWARD }
+
+    private BytecodeCompiler() {}
+
+    // Слишком большой ДКА (код метода не влезает в 16-битные смещения) — IllegalArgumentException
+    public static CompiledDFA compile(DFATable anchored, DFATable unanchored, DFATable reversed) {
+        byte[] bytes = classBytes(anchored, unanchored, reversed);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (CompiledDFA) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Generated DFA class was rejected", e);
+        }
+    }
+
+    static byte[] classBytes(DFATable anchored, DFATable unanchored, DFATable reversed) {
+        ConstantPool cp = new ConstantPool();
+        int thisClass = cp.cls(CLASS_NAME);
+        int superClass = cp.cls("java/lang/Object");
+        int iface = cp.cls("lab2at/dfa/CompiledDFA");
+
+        List<byte[]> methods = new ArrayList<>();
+        methods.add(method(cp, "<init>", "()V", constructor(cp)));
+        methods.add(method(cp, "matches", "(L" + CHAR_SEQUENCE + ";)Z", body(cp, anchored, Mode.MATCH)));
+        methods.add(method(cp, "searchEnd", "(L" + CHAR_SEQUENCE + ";I)I", body(cp, unanchored, Mode.SEARCH)));
+        methods.add(method(cp, "matchBackward", "(L" + CHAR_SEQUENCE + ";II)I", body(cp, reversed, Mode.BACKWARD)));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(cp.count);
+            out.write(cp.bytes.toByteArray());
+            out.writeShort(0x0031); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(iface);
+            out.writeShort(0); // полей нет
+            out.writeShort(methods.size());
+            for (byte[] m : methods) out.write(m);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Code constructor(ConstantPool cp) {
+        Code c = new Code(cp);
+        c.op(Code.ALOAD_0);
+        c.op(Code.INVOKESPECIAL);
+        c.u2(cp.methodRef("java/lang/Object", "<init>", "()V"));
+        c.op(Code.RETURN);
+        return c;
+    }
+
+    // Локальные: 1 — строка, 2 — позиция, 3 — длина или limit, 4 — результат, 5 — символ
+    private static Code body(ConstantPool cp, DFATable t, Mode mode) {
+        Code c = new Code(cp);
+        int charAt = cp.interfaceMethodRef(CHAR_SEQUENCE, "charAt", "(I)C");
+        int length = cp.interfaceMethodRef(CHAR_SEQUENCE, "length", "()I");
+
+        if (mode == Mode.MATCH) {
+            c.iconst(0);
+            c.local(Code.ISTORE, 2);
+        }
+        if (mode != Mode.BACKWARD) {
+            c.local(Code.ALOAD, 1);
+            c.invokeInterface(length, 1);
+            c.local(Code.ISTORE, 3);
+        }
+        c.iconst(-1);
+        c.local(Code.ISTORE, 4);
+
+        int n = t.stateCount();
+        int[] state = new int[n];
+        int[] edge = new int[n]; // переход в состояние — через goto назад: интерпретатор считает
+        for (int q = 0; q < n; q++) { // обратные переходы только у goto/if, и так срабатывает OSR-компиляция
+            state[q] = c.newLabel();
+            edge[q] = c.newLabel();
+        }
+        int fail = c.newLabel();
+        int ret = c.newLabel();
+
+        for (int q = 0; q < n; q++) {
+            c.bind(state[q]);
+            if (mode == Mode.MATCH) {
+                int read = c.newLabel();
+                c.local(Code.ILOAD, 2);
+                c.local(Code.ILOAD, 3);
+                c.jump(Code.IF_ICMPLT, read);
+                c.iconst(t.accept[q] ? 1 : 0);
+                c.op(Code.IRETURN);
+                c.bind(read);
+            } else {
+                if (t.accept[q]) {
+                    c.local(Code.ILOAD, 2);
+                    c.local(Code.ISTORE, 4);
+                }
+                c.local(Code.ILOAD, 2);
+                c.local(Code.ILOAD, 3);
+                c.jump(mode == Mode.SEARCH ? Code.IF_ICMPGE : Code.IF_ICMPLE, ret);
+            }
+            if (mode == Mode.BACKWARD) c.iinc(2, -1);
+            c.local(Code.ALOAD, 1);
+            c.local(Code.ILOAD, 2);
+            c.invokeInterface(charAt, 2);
+            if (mode != Mode.BACKWARD) c.iinc(2, 1);
+            dispatch(c, t, q, edge, fail);
+        }
+        for (int q = 0; q < n; q++) {
+            c.bind(edge[q]);
+            c.jump(Code.GOTO, state[q]);
+        }
+
+        c.bind(fail);
+        if (mode == Mode.MATCH) {
+            c.iconst(0);
+            c.op(Code.IRETURN);
+        }
+        c.bind(ret);
+        c.local(Code.ILOAD, 4);
+        c.op(Code.IRETURN);
+        return c;
+    }
+
+    // символ на стеке: узкие диапазоны — ключи switch, широкие — сравнения в ветке default.
+    // Класс 0 (все прочие символы) — сама ветка default: в неякорном ДКА он ведет обратно в старт
+    private static void dispatch(Code c, DFATable t, int q, int[] state, int fail) {
+        int other = t.next(q, 0) == DFATable.DEAD ? fail : state[t.next(q, 0)];
+        List<int[]> ranges = new ArrayList<>(); // lo, hi, цель
+        for (int cls = 1; cls < t.classCount; cls++) {
+            int to = t.next(q, cls);
+            if (to == DFATable.DEAD) continue;
+            char[] r = t.alphabet.ranges(cls);
+            for (int i = 0; i < r.length; i += 2) ranges.add(new int[]{r[i], r[i + 1], to});
+        }
+        ranges.sort(Comparator.comparingInt(r -> r[0]));
+
+        TreeMap<Integer, Integer> keys = new TreeMap<>();
+        List<int[]> wide = new ArrayList<>();
+        for (int[] r : ranges) {
+            if (r[1] - r[0] < MAX_SWITCH_SPAN) {
+                for (int ch = r[0]; ch <= r[1]; ch++) keys.put(ch, state[r[2]]);
+            } else {
+                wide.add(r);
+            }
+        }
+
+        if (wide.isEmpty()) {
+            if (keys.isEmpty()) {
+                c.op(Code.POP);
+                c.jump(Code.GOTO, other);
+            } else {
+                c.switchOn(keys, other);
+            }
+            return;
+        }
+        c.local(Code.ISTORE, 5);
+        int rest = c.newLabel();
+        if (!keys.isEmpty()) {
+            c.local(Code.ILOAD, 5);
+            c.switchOn(keys, rest);
+        }
+        c.bind(rest);
+        for (int[] r : wide) {
+            int next = c.newLabel();
+            c.local(Code.ILOAD, 5);
+            c.iconst(r[0]);
+            c.jump(Code.IF_ICMPLT, next);
+            c.local(Code.ILOAD, 5);
+            c.iconst(r[1]);
+            c.jump(Code.IF_ICMPLE, state[r[2]]);
+            c.bind(next);
+        }
+        c.jump(Code.GOTO, other);
+    }
+
+    private static byte[] method(ConstantPool cp, String name, String desc, Code code) {
+        byte[] body = code.finish();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(0x0001); // public
+            out.writeShort(cp.utf8(name));
+            out.writeShort(cp.utf8(desc));
+            out.writeShort(1);
+            out.writeShort(cp.utf8("Code"));
+            out.writeInt(12 + body.length);
+            out.writeShort(4); // max_stack
+            out.writeShort(6); // max_locals
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0); // исключений нет
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class ConstantPool {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final Map<String, Integer> index = new HashMap<>();
+        int count = 1;
+
+        int utf8(String s) {
+            Integer id = index.get("U" + s);
+            if (id != null) return id;
+            try {
+                out.writeByte(1);
+                out.writeUTF(s);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return register("U" + s);
+        }
+
+        int cls(String name) {
+            Integer id = index.get("C" + name);
+            if (id != null) return id;
+            int nameId = utf8(name);
+            entry(7, nameId);
+            return register("C" + name);
+        }
+
+        int integer(int v) {
+            Integer id = index.get("I" + v);
+            if (id != null) return id;
+            try {
+                out.writeByte(3);
+                out.writeInt(v);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return register("I" + v);
+        }
+
+        int methodRef(String owner, String name, String desc) {
+            return ref(10, owner, name, desc);
+        }
+
+        int interfaceMethodRef(String owner, String name, String desc) {
+            return ref(11, owner, name, desc);
+        }
+
+        private int ref(int tag, String owner, String name, String desc) {
+            String key = "R" + tag + owner + "." + name + desc;
+            Integer id = index.get(key);
+            if (id != null) return id;
+            int ownerId = cls(owner);
+            String ntKey = "N" + name + ":" + desc;
+            Integer nt = index.get(ntKey);
+            if (nt == null) {
+                int nameId = utf8(name);
+                int descId = utf8(desc);
+                entry(12, nameId, descId);
+                nt = register(ntKey);
+            }
+            entry(tag, ownerId, nt);
+            return register(key);
+        }
+
+        private void entry(int tag, int... shorts) {
+            try {
+                out.writeByte(tag);
+                for (int s : shorts) out.writeShort(s);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private int register(String key) {
+            index.put(key, count);
+            return count++;
+        }
+    }
+
+    // Байткод метода с метками: смещения переходов дописываются в finish
+    private static final class Code {
+        static final int POP = 87, ALOAD_0 = 42, ILOAD = 21, ALOAD = 25, ISTORE = 54, IINC = 132;
+        static final int BIPUSH = 16, SIPUSH = 17, LDC_W = 19;
+        static final int IF_ICMPLT = 161, IF_ICMPGE = 162, IF_ICMPLE = 164, GOTO = 167;
+        static final int TABLESWITCH = 170, LOOKUPSWITCH = 171, IRETURN = 172, RETURN = 177;
+        static final int INVOKESPECIAL = 183, INVOKEINTERFACE = 185;
+
+        final ConstantPool cp;
+        byte[] buf = new byte[256];
+        int len;
+        int[] labels = new int[16];
+        int labelCount;
+        final List<int[]> fixups = new ArrayList<>(); // начало инструкции, поле смещения, метка, ширина
+
+        Code(ConstantPool cp) {
+            this.cp = cp;
+        }
+
+        void op(int b) {
+            if (len == buf.length) buf = Arrays.copyOf(buf, len * 2);
+            buf[len++] = (byte) b;
+        }
+
+        void u2(int v) {
+            op(v >>> 8);
+            op(v);
+        }
+
+        void u4(int v) {
+            u2(v >>> 16);
+            u2(v);
+        }
+
+        void local(int opcode, int slot) {
+            op(opcode);
+            op(slot);
+        }
+
+        void iinc(int slot, int delta) {
+            op(IINC);
+            op(slot);
+            op(delta);
+        }
+
+        void iconst(int v) {
+            if (v >= -1 && v <= 5) {
+                op(3 + v); // ICONST_M1 = 2 ... ICONST_5 = 8
+            } else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+                op(BIPUSH);
+                op(v);
+            } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+                op(SIPUSH);
+                u2(v);
+            } else {
+                op(LDC_W);
+                u2(cp.integer(v));
+            }
+        }
+
+        void invokeInterface(int ref, int argSlots) {
+            op(INVOKEINTERFACE);
+            u2(ref);
+            op(argSlots);
+            op(0);
+        }
+
+        int newLabel() {
+            if (labelCount == labels.length) labels = Arrays.copyOf(labels, labelCount * 2);
+            labels[labelCount] = -1;
+            return labelCount++;
+        }
+
+        void bind(int label) {
+            labels[label] = len;
+        }
+
+        void jump(int opcode, int label) {
+            int insn = len;
+            op(opcode);
+            fixups.add(new int[]{insn, len, label, 2});
+            u2(0);
+        }
+
+        // tableswitch, если ключи плотные, иначе lookupswitch
+        void switchOn(TreeMap<Integer, Integer> keys, int dflt) {
+            int insn = len;
+            int lo = keys.firstKey(), hi = keys.lastKey();
+            boolean table = (long) hi - lo + 1 <= 2L * keys.size() + 8;
+            op(table ? TABLESWITCH : LOOKUPSWITCH);
+            while (len % 4 != 0) op(0);
+            offset(insn, dflt);
+            if (table) {
+                u4(lo);
+                u4(hi);
+                for (int k = lo; k <= hi; k++) offset(insn, keys.getOrDefault(k, dflt));
+            } else {
+                u4(keys.size());
+                for (var e : keys.entrySet()) {
+                    u4(e.getKey());
+                    offset(insn, e.getValue());
+                }
+            }
+        }
+
+        private void offset(int insn, int label) {
+            fixups.add(new int[]{insn, len, label, 4});
+            u4(0);
+        }
+
+        byte[] finish() {
+            if (len > 0xFFFF)
+                throw new IllegalArgumentException("DFA is too large for the bytecode backend");
+            for (int[] f : fixups) {
+                int delta = labels[f[2]] - f[0];
+                if (f[3] == 2) {
+                    if (delta < Short.MIN_VALUE || delta > Short.MAX_VALUE)
+                        throw new IllegalArgumentException("DFA is too large for the bytecode backend");
+                    buf[f[1]] = (byte) (delta >>> 8);
+                    buf[f[1] + 1] = (byte) delta;
+                } else {
+                    for (int i = 0; i < 4; i++) buf[f[1] + i] = (byte) (delta >>> (24 - 8 * i));
+                }
+            }
+            return Arrays.copyOf(buf, len);
+        }
+    }
+}
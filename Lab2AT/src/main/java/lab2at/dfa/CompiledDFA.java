@@ -0,0 +1,13 @@
+package lab2at.dfa;
+
+// ДКА, превращенный в код (BytecodeCompiler): те же проходы, что у DFARunner по таблицам
+public interface CompiledDFA {
+    // вся строка принадлежит языку (якорный ДКА)
+    boolean matches(CharSequence str);
+
+    // конец самого левого самого длинного совпадения, -1 — нет (неякорный ДКА)
+    int searchEnd(CharSequence str, int from);
+
+    // самое левое начало совпадения, которое заканчивается в end (обратный ДКА)
+    int matchBackward(CharSequence str, int end, int limit);
+}
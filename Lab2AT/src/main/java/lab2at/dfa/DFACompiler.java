@@ -10,6 +10,8 @@ public final class DFACompiler {
     private final Map<String, Integer> nameToDfa = new HashMap<>(); // id для групп
     @Getter
     private final List<List<DFAState>> all = new ArrayList<>(); // список скомпилированных ДКА
+    @Getter
+    private final List<DFATable> tables = new ArrayList<>(); // те же ДКА в табличном виде для DFARunner
 
     public DFACompiler(Map<String,Node> defs) {
         this.groupDefs = defs;
@@ -25,20 +27,111 @@ public final class DFACompiler {
         return build(mainAst);
     }
 
+    // Ленивый режим: только нумерация и followpos, состояния строит LazyDFA по ходу сопоставления.
+    // Вызовы групп должны быть уже подставлены (DFAOperations.inlineGroups)
+    public LazyDFA compileLazy(Node root, int cacheStates) {
+        if (containsRepeat(root)) root = DFAOperations.expandRepeats(root); // у LazyDFA нет счетчиков
+        if (!hasEndMarker(root)) {
+            root = new Node(NodeType.CONCAT, root, new Node(NodeType.LITERAL, "#", null, null));
+        }
+        Numeration num = analyze(root, false);
+        if (!num.posToGroup.isEmpty())
+            throw new IllegalArgumentException("Lazy mode expects a pattern without group calls");
+        Alphabet alphabet = partitionAlphabet(num);
+
+        int[][] classes = positionClasses(num, alphabet);
+        BitSet[] posClasses = new BitSet[classes.length];
+        for (int p = 0; p < classes.length; p++) {
+            posClasses[p] = new BitSet();
+            if (classes[p] != null) for (int cls : classes[p]) posClasses[p].set(cls);
+        }
+        List<BitSet> follow = new ArrayList<>(); // LazyDFA объединяет followpos побитово
+        for (List<PosSet> sets : num.followPos) follow.add(union(sets));
+        return new LazyDFA(alphabet, posClasses, follow, num.endPos, num.first().toBitSet(), cacheStates);
+    }
+
+    // Набор шаблонов: OR(шаблон_i END_i), принимающие состояния помнят номера шаблонов.
+    // Вызовы групп должны быть уже подставлены
+    public SetDFA compileSet(List<Node> roots) {
+        if (roots.isEmpty())
+            throw new IllegalArgumentException("Empty pattern set");
+        Node root = null;
+        for (int i = 0; i < roots.size(); i++) {
+            Node withEnd = new Node(NodeType.CONCAT, unrollNested(roots.get(i)), new Node(NodeType.END, String.valueOf(i)));
+            root = root == null ? withEnd : new Node(NodeType.OR, root, withEnd);
+        }
+        Numeration num = analyze(root, true);
+        if (!num.posToGroup.isEmpty())
+            throw new IllegalArgumentException("Pattern set expects patterns without group calls");
+        Alphabet alphabet = partitionAlphabet(num);
+        List<DFAState> states = createDFA(num, alphabet);
+
+        // состояния с разными наборами принятых шаблонов не склеиваем
+        // метка 0 — непринимающие: в ее блоке минимизатор держит мертвое состояние
+        Map<List<Integer>, Integer> labelOf = new HashMap<>();
+        labelOf.put(List.of(), 0);
+        int[] labels = new int[states.size()];
+        for (int q = 0; q < states.size(); q++)
+            labels[q] = labelOf.computeIfAbsent(acceptedPatterns(states.get(q).positions(), num), k -> labelOf.size());
+        states = DFAMinimizer.minimize(states, alphabet, labels);
+
+        int[][] accepts = new int[states.size()][];
+        for (int q = 0; q < states.size(); q++) {
+            List<Integer> ids = acceptedPatterns(states.get(q).positions(), num);
+            accepts[q] = ids.isEmpty() ? null : ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new SetDFA(DFATable.fromStates(states, alphabet), accepts, roots.size());
+    }
+
+    private static List<Integer> acceptedPatterns(int[] pos, Numeration numeration) {
+        List<Integer> ids = new ArrayList<>();
+        for (int p : pos) {
+            Integer id = numeration.endToPattern.get(p);
+            if (id != null) ids.add(id);
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
     private int build(Node root) {
+        root = unrollNested(root);
         if (!hasEndMarker(root)) {
             root = new Node(NodeType.CONCAT, root, new Node(NodeType.LITERAL, "#", null, null));
         }
-        Numeration num = new Numeration();
-        number(root, num);
-        new TreeAnalyzer(num.followPos).analyze(root);
-        List<DFAState> states = createDFA(root, num);
-        states = DFAMinimizer.minimize(states);
+        Numeration num = analyze(root, true);
+        Alphabet alphabet = partitionAlphabet(num);
+        List<DFAState> states = createDFA(num, alphabet);
+        states = DFAMinimizer.minimize(states, alphabet);
         int id = all.size();
         all.add(states);
+        tables.add(DFATable.fromStates(states, alphabet));
         return id;
     }
 
+    // Счетчик есть только у внешнего REPEAT: вложенные повторы в его теле разворачиваются.
+    // Исходное дерево не меняется, новые узлы — только на пути к развернутым
+    private static Node unrollNested(Node root) {
+        Deque<Node> done = new ArrayDeque<>(); // результаты поддеревьев
+        Deque<Boolean> hasRepeat = new ArrayDeque<>(); // есть ли REPEAT в исходном поддереве
+        for (Node n : Node.postOrder(root)) {
+            Node right = n.right == null ? null : done.pop();
+            boolean inRight = n.right != null && hasRepeat.pop();
+            Node left = n.left == null ? null : done.pop();
+            boolean inLeft = n.left != null && hasRepeat.pop();
+            if (n.type == NodeType.REPEAT)
+                done.push(inLeft ? new Node(NodeType.REPEAT, n.text, DFAOperations.expandRepeats(n.left), null) : n);
+            else
+                done.push(left == n.left && right == n.right ? n : new Node(n.type, n.text, left, right));
+            hasRepeat.push(n.type == NodeType.REPEAT || inLeft || inRight);
+        }
+        return done.pop();
+    }
+
+    private static boolean containsRepeat(Node root) {
+        for (Node n : Node.postOrder(root)) if (n.type == NodeType.REPEAT) return true;
+        return false;
+    }
+
     private static boolean hasEndMarker(Node n) {
         return n.type == NodeType.CONCAT
                 && n.right != null
@@ -47,107 +140,243 @@ public final class DFACompiler {
     }
 
     private static class Numeration {
+        Arena tree;
+        TreeAnalyzer analysis;
         int next = 1; // следующая свободная позиция
         int endPos = -1; // позиция '#'
-        List<BitSet> followPos = new ArrayList<>(); // followpos для каждой node
+        Map<Integer, Integer> endToPattern = new HashMap<>(); // позиции END -> номер шаблона набора
+        BitSet patternEnds = new BitSet(); // все позиции END
+        List<List<PosSet>> followPos = new ArrayList<>(); // followpos позиции — объединение общих множеств
         Map<Integer, Character> posToSym = new HashMap<>();
+        Map<Integer, String> posToClass = new HashMap<>(); // позиции CLASS -> пары lo, hi
         Map<Integer, Integer> posToGroup = new HashMap<>();
+        List<Integer> repeats = new ArrayList<>(); // узлы внешних REPEAT
+        Map<Integer, Integer> posToRepeat = new HashMap<>(); // позиция тела -> номер повтора
+        Map<Integer, List<PosSet>> bodyFollow = new HashMap<>(); // last(тела) -> followpos внутри тела
+
+        PosSet first() {
+            return analysis.first(tree.root());
+        }
+    }
+
+    // дерево в массивы, нумерация позиций и followpos; counters — REPEAT со счетчиком, иначе повторов нет
+    private Numeration analyze(Node root, boolean counters) {
+        Numeration num = new Numeration();
+        num.tree = Arena.of(root);
+        number(num);
+        num.analysis = counters ? new TreeAnalyzer(num.tree, num.followPos, num.bodyFollow)
+                : new TreeAnalyzer(num.tree, num.followPos);
+        num.analysis.analyze();
+        return num;
+    }
+
+    private static BitSet union(List<PosSet> sets) {
+        BitSet bits = new BitSet();
+        for (PosSet set : sets) set.orInto(bits);
+        return bits;
+    }
+
+    private void number(Numeration numeration) {
+        Arena t = numeration.tree;
+        int[] firstPos = new int[t.size()]; // первая позиция поддерева
+        for (int n = 0; n < t.size(); n++) { // дети пронумерованы раньше родителя
+            firstPos[n] = t.left[n] >= 0 ? firstPos[t.left[n]] : t.right[n] >= 0 ? firstPos[t.right[n]] : numeration.next;
+            number(n, firstPos[n], numeration);
+        }
     }
 
-    private void number(Node n, Numeration numeration) {
-        if (n.left!=null)  number(n.left, numeration);
-        if (n.right!=null) number(n.right, numeration);
+    // дети n уже пронумерованы, их позиции — с from
+    private void number(int n, int from, Numeration numeration) {
+        Arena t = numeration.tree;
+        NodeType type = t.type(n);
+        if (type == NodeType.REPEAT) { // позиции тела нумеруются один раз, копии различает счетчик
+            int r = numeration.repeats.size();
+            numeration.repeats.add(n);
+            for (int p = from; p < numeration.next; p++) numeration.posToRepeat.put(p, r);
+        }
 
-        if (n.type == NodeType.LITERAL || n.type == NodeType.GROUP_CALL) {
-            n.pos = numeration.next++; // даем номер позиции
-            while (numeration.followPos.size() <= n.pos) numeration.followPos.add(new BitSet());
+        if (type == NodeType.LITERAL || type == NodeType.CLASS || type == NodeType.GROUP_CALL || type == NodeType.END) {
+            int pos = t.pos[n] = numeration.next++; // даем номер позиции
+            while (numeration.followPos.size() <= pos) numeration.followPos.add(new ArrayList<>(1));
 
-            if (n.type == NodeType.LITERAL) {
-                char c = n.text.charAt(0);
-                numeration.posToSym.put(n.pos, c);
+            if (type == NodeType.LITERAL) {
+                char c = t.text(n).charAt(0);
+                numeration.posToSym.put(pos, c);
                 if (c == '#') {
-                    numeration.endPos = n.pos;
+                    numeration.endPos = pos;
                 }
+            } else if (type == NodeType.CLASS) { // одна позиция на весь класс
+                numeration.posToClass.put(pos, t.text(n));
+            } else if (type == NodeType.END) {
+                numeration.endToPattern.put(pos, Integer.parseInt(t.text(n)));
+                numeration.patternEnds.set(pos);
             } else {                       // GROUP_CALL
-                int groupID = nameToDfa.get(n.text);
-                numeration.posToGroup.put(n.pos, groupID);
+                int groupID = nameToDfa.get(t.text(n));
+                numeration.posToGroup.put(pos, groupID);
             }
         }
     }
 
-    private List<DFAState> createDFA(Node root, Numeration numeration) {
+    // классы символов по позициям Глушкова: символы, которые не различает ни одна позиция, попадают в один класс
+    private static Alphabet partitionAlphabet(Numeration numeration) {
+        List<char[]> sets = new ArrayList<>();
+        for (var e : numeration.posToSym.entrySet()) {
+            if (e.getKey() == numeration.endPos) continue;
+            char c = e.getValue();
+            sets.add(new char[]{c, c});
+        }
+        for (String ranges : numeration.posToClass.values()) sets.add(CharClass.ranges(ranges));
+        return Alphabet.partition(sets);
+    }
+
+    // классы алфавита, которые читает позиция: у литерала один, у CLASS — все внутри множества; null — не символ
+    private static int[][] positionClasses(Numeration numeration, Alphabet alphabet) {
+        int[][] classes = new int[numeration.followPos.size()][];
+        for (var e : numeration.posToSym.entrySet()) {
+            if (e.getKey() != numeration.endPos) classes[e.getKey()] = new int[]{alphabet.classOf(e.getValue())};
+        }
+        for (var e : numeration.posToClass.entrySet()) {
+            List<Integer> inside = new ArrayList<>();
+            for (int cls = 1; cls < alphabet.size(); cls++) // класс алфавита целиком внутри множества или вне его
+                if (CharClass.contains(e.getValue(), alphabet.ranges(cls)[0])) inside.add(cls);
+            classes[e.getKey()] = inside.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return classes;
+    }
+
+    // Построение подмножеств. Элемент состояния — позиция и номер копии тела повтора-счетчика (0 вне
+    // повторов), упакованные в long; состояние — отсортированный набор элементов. Размер ключа — по числу
+    // элементов, а не по наибольшей позиции, как у BitSet: цепочка из 10^5 позиций дает 10^5 ключей
+    // по одному элементу, а не 10^5 битовых масок по 12 КБ. От числа копий размер тоже не зависит
+    private List<DFAState> createDFA(Numeration numeration, Alphabet alphabet) {
         List<DFAState> dfaStates = new ArrayList<>();
-        Map<BitSet, Integer> setToStateId = new HashMap<>(); // позиции, которые описывают состояние автомата
-        Queue<BitSet> queue = new ArrayDeque<>();
+        Map<Items, Integer> itemsToStateId = new HashMap<>();
+        Queue<Items> queue = new ArrayDeque<>();
+        int[][] posClasses = positionClasses(numeration, alphabet);
 
-        // первое состояние
-        BitSet startSet = root.first;
-        setToStateId.put((BitSet) startSet.clone(), 0);
-        queue.add(startSet);
+        Items start = new Items();
+        addAll(start, numeration.first(), 0);
+        getStateId(start.sorted(), itemsToStateId, queue);
 
         while (!queue.isEmpty()) {
-            BitSet currentSet = queue.remove();
-
-            Map<Character, BitSet> moveBySymbol = new HashMap<>(); // переходы по символу
-            Map<Integer, BitSet> moveByGroup = new HashMap<>(); // переходы по группе
+            Items current = queue.remove();
 
-            for (int p = currentSet.nextSetBit(0); p >= 0; p = currentSet.nextSetBit(p + 1)) {
+            Items[] moveByClass = new Items[alphabet.size()];
+            Map<Integer, Items> moveByGroup = new HashMap<>();
+            boolean accept = false;
 
-                if (p == numeration.endPos)
+            for (int i = 0; i < current.size; i++) {
+                int p = (int) current.items[i];
+                int copy = (int) (current.items[i] >>> 32);
+                if (p == numeration.endPos || numeration.patternEnds.get(p)) {
+                    accept = true;
                     continue;
+                }
 
-                BitSet followPosFromCurSet = numeration.followPos.get(p);
-
-                if (numeration.posToSym.containsKey(p)) {      // символ
-                    char symbol = numeration.posToSym.get(p);
-                    moveBySymbol.computeIfAbsent(symbol, k -> new BitSet()).or(followPosFromCurSet); // объединяем
-                } else if (numeration.posToGroup.containsKey(p)) { // если группа
-                    int groupId = numeration.posToGroup.get(p);
-                    moveByGroup.computeIfAbsent(groupId, k -> new BitSet()).or(followPosFromCurSet); // объединяем
+                if (posClasses[p] != null) {
+                    for (int cls : posClasses[p]) {
+                        if (moveByClass[cls] == null) moveByClass[cls] = new Items();
+                        follow(p, copy, numeration, moveByClass[cls]);
+                    }
+                } else if (numeration.posToGroup.containsKey(p)) {
+                    follow(p, copy, numeration, moveByGroup.computeIfAbsent(numeration.posToGroup.get(p), k -> new Items()));
                 }
             }
 
-            // переход по символу
-            Map<Character, Integer> transBySymbol = new HashMap<>();
-            for (var e : moveBySymbol.entrySet()) {
-                char symbol = e.getKey();
-                BitSet targetSet = e.getValue();
-                int targetId = getStateId(targetSet, setToStateId, queue);
-                transBySymbol.put(symbol, targetId);
+            IntervalMap.Builder transBySymbol = new IntervalMap.Builder();
+            for (int cls = 1; cls < moveByClass.length; cls++) {
+                if (moveByClass[cls] == null) continue;
+                int targetId = getStateId(moveByClass[cls].sorted(), itemsToStateId, queue);
+                char[] ranges = alphabet.ranges(cls);
+                for (int r = 0; r < ranges.length; r += 2) transBySymbol.add(ranges[r], ranges[r + 1], targetId);
             }
 
-            // переход по группе
             Map<Integer, Integer> transByGroup = new HashMap<>();
-            for (var e : moveByGroup.entrySet()) {
-                int groupId = e.getKey();
-                BitSet targetSet = e.getValue();
-                int targetId = getStateId(targetSet, setToStateId, queue);
-                transByGroup.put(groupId, targetId);
-            }
-
-            boolean accept = numeration.endPos >= 0 && currentSet.get(numeration.endPos);
+            for (var e : moveByGroup.entrySet())
+                transByGroup.put(e.getKey(), getStateId(e.getValue().sorted(), itemsToStateId, queue));
 
-            dfaStates.add(new DFAState(
-                    (BitSet) currentSet.clone(),
-                    accept,
-                    transBySymbol,
-                    transByGroup)
-            );
+            dfaStates.add(new DFAState(current.positions(), accept, transBySymbol.build(), transByGroup));
         }
 
         return dfaStates;
     }
 
+    // followpos для копии copy позиции p
+    private static void follow(int p, int copy, Numeration numeration, Items target) {
+        List<PosSet> inBody = numeration.bodyFollow.get(p);
+        if (inBody == null) { // внутри тела (та же копия) или вне повторов (копия 0), в т.ч. вход в повтор
+            addAll(target, numeration.followPos.get(p), copy);
+            return;
+        }
+        // p завершает копию тела: продолжаем эту копию, начинаем следующую или выходим из повтора
+        Arena t = numeration.tree;
+        int repeat = numeration.repeats.get(numeration.posToRepeat.get(p));
+        int min = numeration.analysis.nullable(t.left[repeat]) ? 0 : t.repeatMin(repeat); // пустые копии добирают минимум
+        addAll(target, inBody, copy);
+        if (copy + 1 < t.repeatMax(repeat)) addAll(target, numeration.analysis.first(repeat), copy + 1);
+        if (copy + 1 >= min) addAll(target, numeration.followPos.get(p), 0);
+    }
+
+    private static void addAll(Items target, List<PosSet> sets, int copy) {
+        for (PosSet set : sets) addAll(target, set, copy);
+    }
+
+    private static void addAll(Items target, PosSet positions, int copy) {
+        for (int i = 0; i < positions.size(); i++)
+            target.add((long) copy << 32 | positions.get(i));
+    }
+
     // проверяет существует ли данное состояние, если нет, то создает его
-    private int getStateId(BitSet posSet, Map<BitSet,Integer> setToStateId, Queue<BitSet> queue) {
-        Integer exist = setToStateId.get(posSet);
-        if (exist != null) {
-            return exist;
-        } else {
-            int newId = setToStateId.size();
-            setToStateId.put((BitSet) posSet.clone(), newId);
-            queue.add(posSet);
-            return newId;
+    private int getStateId(Items items, Map<Items, Integer> itemsToStateId, Queue<Items> queue) {
+        Integer exist = itemsToStateId.get(items);
+        if (exist != null) return exist;
+        int newId = itemsToStateId.size();
+        itemsToStateId.put(items, newId);
+        queue.add(items);
+        return newId;
+    }
+
+    // набор элементов (копия << 32 | позиция)
+    private static final class Items {
+        long[] items = new long[4];
+        int size;
+
+        void add(long item) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = item;
+        }
+
+        // сортирует и убирает повторы: одинаковые наборы дают равные ключи
+        Items sorted() {
+            Arrays.sort(items, 0, size);
+            int n = 0;
+            for (int i = 0; i < size; i++)
+                if (n == 0 || items[i] != items[n - 1]) items[n++] = items[i];
+            size = n;
+            return this;
+        }
+
+        // позиции без номеров копий, по возрастанию
+        int[] positions() {
+            int[] res = new int[size];
+            for (int i = 0; i < size; i++) res[i] = (int) items[i];
+            Arrays.sort(res);
+            int n = 0;
+            for (int i = 0; i < size; i++)
+                if (n == 0 || res[i] != res[n - 1]) res[n++] = res[i];
+            return n == size ? res : Arrays.copyOf(res, n);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Items other && Arrays.equals(items, 0, size, other.items, 0, other.size);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 1;
+            for (int i = 0; i < size; i++) h = 31 * h + Long.hashCode(items[i]);
+            return h;
         }
     }
 }
@@ -2,67 +2,208 @@ package lab2at.dfa;
 
 import java.util.*;
 
+// Минимизация Хопкрофта: дробим разбиение состояний по классам символов и переходам по группам
 public final class DFAMinimizer {
 
     private DFAMinimizer(){}
 
     public static List<DFAState> minimize(List<DFAState> raw) {
+        return minimize(raw, Alphabet.ofTransitions(raw));
+    }
+
+    // все символы одного класса alphabet обязаны вести в одно и то же состояние
+    public static List<DFAState> minimize(List<DFAState> raw, Alphabet alphabet) {
+        int[] labels = new int[raw.size()];
+        for (int q = 0; q < raw.size(); q++) labels[q] = raw.get(q).accept() ? 1 : 0;
+        return minimize(raw, alphabet, labels);
+    }
 
+    // начальное разбиение задают метки: состояния с разными метками не склеиваются.
+    // Метка 0 — только у непринимающих: с ними в одном блоке начинает мертвое состояние
+    public static List<DFAState> minimize(List<DFAState> raw, Alphabet alphabet, int[] labels) {
         int n = raw.size();
-        int[] old2new = new int[n];
-        Arrays.fill(old2new, -1);
+        if (n == 0) return new ArrayList<>();
 
-        List<DFAState> dst = new ArrayList<>();
+        // символы автомата: классы 1..size-1, затем группы
+        TreeSet<Integer> groups = new TreeSet<>();
+        for (DFAState s : raw) groups.addAll(s.groupTrans().keySet());
+        int[] groupIds = groups.stream().mapToInt(Integer::intValue).toArray();
+        int classes = alphabet.size() - 1;
+        int k = classes + groupIds.length;
+
+        // полный автомат: состояние n — мертвое
+        int total = n + 1;
+        int dead = n;
+        int[] delta = new int[total * k];
+        Arrays.fill(delta, dead);
         for (int q = 0; q < n; q++) {
-            if (old2new[q] != -1) continue;          // уже куда-то склеили
+            DFAState s = raw.get(q);
+            for (int a = 0; a < classes; a++) {
+                Integer to = s.charTrans().get(alphabet.ranges(a + 1)[0]);
+                if (to != null) delta[q * k + a] = to;
+            }
+            for (int g = 0; g < groupIds.length; g++) {
+                Integer to = s.groupTrans().get(groupIds[g]);
+                if (to != null) delta[q * k + classes + g] = to;
+            }
+        }
+
+        // обратные переходы: для (символ, цель) — список источников
+        int[] invStart = new int[k * total + 1];
+        for (int q = 0; q < total; q++)
+            for (int a = 0; a < k; a++) invStart[a * total + delta[q * k + a] + 1]++;
+        for (int i = 0; i < k * total; i++) invStart[i + 1] += invStart[i];
+        int[] invSrc = new int[k * total];
+        int[] fillPos = Arrays.copyOf(invStart, k * total);
+        for (int q = 0; q < total; q++)
+            for (int a = 0; a < k; a++) invSrc[fillPos[a * total + delta[q * k + a]]++] = q;
+
+        Partition p = new Partition(total);
+        int maxLabel = 0;
+        for (int q = 0; q < n; q++) maxLabel = Math.max(maxLabel, labels[q]);
+        int[] labelStart = new int[maxLabel + 2]; // состояния, отсортированные по метке подсчетом
+        for (int q = 0; q < n; q++) labelStart[labels[q] + 1]++;
+        for (int l = 0; l <= maxLabel; l++) labelStart[l + 1] += labelStart[l];
+        int[] byLabel = new int[n];
+        int[] fill = Arrays.copyOf(labelStart, maxLabel + 1);
+        for (int q = 0; q < n; q++) byLabel[fill[labels[q]]++] = q;
+        for (int label = 1; label <= maxLabel; label++) {
+            for (int i = labelStart[label]; i < labelStart[label + 1]; i++) p.mark(byLabel[i]);
+            p.splitMarked();
+        }
+
+        Deque<Integer> work = new ArrayDeque<>();
+        boolean[] inWork = new boolean[total + 1];
+        for (int b = 0; b < p.blocks; b++) {
+            work.add(b);
+            inWork[b] = true;
+        }
 
-            old2new[q] = dst.size();                 // номер нового состояния
-            for (int r = q + 1; r < n; r++) {
-                if (old2new[r] != -1) continue;
-                if (eq(raw.get(q), raw.get(r), old2new)) {
-                    old2new[r] = old2new[q];         // склеиваем r к q
+        int[] splitter = new int[total];
+        while (!work.isEmpty()) {
+            int b = work.poll();
+            inWork[b] = false;
+            int size = p.end[b] - p.start[b];
+            System.arraycopy(p.elems, p.start[b], splitter, 0, size); // снимок блока: он может раздробиться
+
+            for (int a = 0; a < k; a++) {
+                for (int i = 0; i < size; i++) {
+                    int t = splitter[i];
+                    for (int j = invStart[a * total + t]; j < invStart[a * total + t + 1]; j++)
+                        p.mark(invSrc[j]);
+                }
+                p.splitMarked();
+                for (int s = 0; s < p.splitCount; s++) {
+                    int old = p.splitOld[s], fresh = p.splitNew[s];
+                    if (inWork[old]) {
+                        work.add(fresh);
+                        inWork[fresh] = true;
+                    } else {
+                        int smaller = p.end[fresh] - p.start[fresh] <= p.end[old] - p.start[old] ? fresh : old;
+                        work.add(smaller);
+                        inWork[smaller] = true;
+                    }
                 }
             }
-            dst.add(null);                           // зарезервировали место
         }
 
+        // нумеруем блоки по первому вхождению, блок мертвого состояния выкидываем
+        int deadBlock = p.blockOf[dead];
+        int[] blockToNew = new int[p.blocks];
+        Arrays.fill(blockToNew, -1);
+        int[] old2new = new int[n];
+        int[] repr = new int[n];
+        int count = 0;
         for (int q = 0; q < n; q++) {
-            int newId = old2new[q];
-            if (dst.get(newId) != null) continue;    // уже заполнили
+            int b = p.blockOf[q];
+            if (b == deadBlock && q != 0) {
+                old2new[q] = -1;
+                continue;
+            }
+            if (blockToNew[b] == -1) {
+                blockToNew[b] = count;
+                repr[count++] = q;
+            }
+            old2new[q] = blockToNew[b];
+        }
 
-            DFAState src = raw.get(q);
-            Map<Character,Integer> ch = new HashMap<>();
-            for (var e : src.charTrans().entrySet())
-                ch.put(e.getKey(), old2new[e.getValue()]);
+        List<DFAState> dst = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            DFAState src = raw.get(repr[id]);
+            Map<Character,Integer> ch = IntervalMap.of(src.charTrans()).remap(old2new);
 
             Map<Integer,Integer> gr = new HashMap<>();
-            for (var e : src.groupTrans().entrySet())
-                gr.put(e.getKey(), old2new[e.getValue()]);
+            for (var e : src.groupTrans().entrySet()) {
+                int to = old2new[e.getValue()];
+                if (to >= 0) gr.put(e.getKey(), to);
+            }
 
-            dst.set(newId, new DFAState(
-                    (BitSet)src.positions().clone(),
+            dst.add(new DFAState(
+                    src.positions(), // не меняются, общие с исходным состоянием
                     src.accept(), ch, gr));
         }
         return dst;
     }
 
-    private static boolean eq(DFAState a, DFAState b, int[] old2new) {
-        if (a.accept() != b.accept()) return false;
-        if (!a.charTrans().keySet().equals(b.charTrans().keySet())) return false;
-        if (!a.groupTrans().keySet().equals(b.groupTrans().keySet())) return false;
+    // Разбиение на блоки: элементы блока лежат подряд в elems, помеченные — в начале блока
+    private static final class Partition {
+        final int[] elems, loc, blockOf, start, end, marked;
+        int blocks;
+        final int[] touched;
+        int touchedCount;
+        final int[] splitOld, splitNew;
+        int splitCount;
 
-        for (var e : a.charTrans().entrySet()) {
-            int toA = e.getValue(), toB = b.charTrans().get(e.getKey());
-            if (mapped(toA, old2new) != mapped(toB, old2new)) return false;
+        Partition(int size) {
+            elems = new int[size];
+            loc = new int[size];
+            blockOf = new int[size];
+            start = new int[size];
+            end = new int[size];
+            marked = new int[size];
+            touched = new int[size];
+            splitOld = new int[size];
+            splitNew = new int[size];
+            for (int i = 0; i < size; i++) {
+                elems[i] = i;
+                loc[i] = i;
+            }
+            end[0] = size;
+            blocks = 1;
         }
-        for (var e : a.groupTrans().entrySet()) {
-            int toA = e.getValue(), toB = b.groupTrans().get(e.getKey());
-            if (mapped(toA, old2new) != mapped(toB, old2new)) return false;
+
+        void mark(int q) {
+            int b = blockOf[q];
+            int pos = loc[q];
+            int target = start[b] + marked[b];
+            if (pos < target) return; // уже помечено
+            if (marked[b] == 0) touched[touchedCount++] = b;
+            int other = elems[target];
+            elems[target] = q;
+            loc[q] = target;
+            elems[pos] = other;
+            loc[other] = pos;
+            marked[b]++;
         }
-        return true;
-    }
 
-    private static int mapped(int old, int[] map){
-        return map[old] == -1 ? old : map[old];   // если уже слит – берём новое id
+        // помеченная часть каждого затронутого блока становится новым блоком
+        void splitMarked() {
+            splitCount = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                int b = touched[t];
+                int m = marked[b];
+                marked[b] = 0;
+                if (m == end[b] - start[b]) continue;
+
+                int nb = blocks++;
+                start[nb] = start[b];
+                end[nb] = start[b] + m;
+                start[b] += m;
+                for (int i = start[nb]; i < end[nb]; i++) blockOf[elems[i]] = nb;
+                splitOld[splitCount] = b;
+                splitNew[splitCount++] = nb;
+            }
+            touchedCount = 0;
+        }
     }
 }
@@ -4,28 +4,365 @@ import lab2at.ast.Node;
 import lab2at.ast.NodeType;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 public final class DFAOperations {
 
     private DFAOperations() {}
 
-    public static Node reverse(Node n) {
-        if (n == null) return null;
+    public static Node reverse(Node root) {
+        if (root == null) return null;
+        Deque<Node> done = new ArrayDeque<>(); // обращенные поддеревья, как стек вычисления выражения
+        for (Node n : Node.postOrder(root)) {
+            Node b = n.right == null ? null : done.pop();
+            Node a = n.left == null ? null : done.pop();
+            done.push(switch (n.type) {
+                case LITERAL, CLASS, GROUP_CALL -> new Node(n.type, n.text, null, null);
+                case CONCAT -> new Node(NodeType.CONCAT, b, a);
+                case OR -> new Node(NodeType.OR, a, b);
+                case KLEENE,
+                     OPTIONAL,
+                     NULL_REPEAT -> new Node(n.type,  a, null);
+                case REPEAT -> new Node(NodeType.REPEAT, n.text, a, null);
+                default -> throw new IllegalStateException("Unexpected: " + n.type);
+            });
+        }
+        return done.pop();
+    }
+
+    // копия дерева, где вместо GROUP_CALL подставлены тела групп
+    public static Node inlineGroups(Node n, Map<String, Node> groupDefs) {
+        return inline(n, groupDefs, new HashSet<>());
+    }
+
+    // рекурсия — только по вложенности групп, само дерево обходится без нее
+    private static Node inline(Node root, Map<String, Node> groupDefs, Set<String> open) {
+        if (root == null) return null;
+        Deque<Node> done = new ArrayDeque<>();
+        for (Node n : Node.postOrder(root)) {
+            Node right = n.right == null ? null : done.pop();
+            Node left = n.left == null ? null : done.pop();
+            if (n.type == NodeType.GROUP_DEF) {
+                done.push(left);
+            } else if (n.type == NodeType.GROUP_CALL) {
+                Node body = groupDefs.get(n.text);
+                if (body == null)
+                    throw new IllegalArgumentException("Unknown group: " + n.text);
+                if (!open.add(n.text))
+                    throw new IllegalStateException("Recursive group: " + n.text);
+                done.push(inline(body, groupDefs, open));
+                open.remove(n.text);
+            } else {
+                done.push(new Node(n.type, n.text, left, right));
+            }
+        }
+        return done.pop();
+    }
+
+    // копия дерева, где REPEAT развернут: x{n,m} -> n копий x и m-n копий x?.
+    // Копии сцепляются сбалансированно, чтобы глубина дерева росла как log(m)
+    public static Node expandRepeats(Node root) {
+        if (root == null) return null;
+        Deque<Node> done = new ArrayDeque<>();
+        for (Node n : Node.postOrder(root)) {
+            Node right = n.right == null ? null : done.pop();
+            Node left = n.left == null ? null : done.pop();
+            if (n.type != NodeType.REPEAT) {
+                done.push(new Node(n.type, n.text, left, right));
+                continue;
+            }
+            int min = n.repeatMin();
+            int max = n.repeatMax();
+            List<Node> copies = new ArrayList<>(max);
+            for (int i = 0; i < max; i++) {
+                Node body = i == 0 ? left : copy(left); // у каждой копии свои узлы: в них пишутся позиции
+                copies.add(i < min ? body : new Node(NodeType.OPTIONAL, body, null));
+            }
+            done.push(concatAll(copies, 0, copies.size()));
+        }
+        return done.pop();
+    }
+
+    private static Node copy(Node root) {
+        Deque<Node> done = new ArrayDeque<>();
+        for (Node n : Node.postOrder(root)) {
+            Node right = n.right == null ? null : done.pop();
+            Node left = n.left == null ? null : done.pop();
+            done.push(new Node(n.type, n.text, left, right));
+        }
+        return done.pop();
+    }
+
+    private static Node concatAll(List<Node> nodes, int from, int to) {
+        if (to - from == 1) return nodes.get(from);
+        int mid = (from + to) >>> 1;
+        return new Node(NodeType.CONCAT, concatAll(nodes, from, mid), concatAll(nodes, mid, to));
+    }
+
+    // Слова, если дерево — альтернатива (OR) из цепочек литералов, иначе null
+    public static List<String> literalAlternatives(Node root) {
+        if (root.type != NodeType.OR) return null;
+        List<String> words = new ArrayList<>();
+        Deque<Node> alts = new ArrayDeque<>();
+        alts.push(root);
+        while (!alts.isEmpty()) {
+            Node n = alts.pop();
+            if (n.type == NodeType.OR) {
+                alts.push(n.right);
+                alts.push(n.left);
+                continue;
+            }
+            String word = literalWord(n);
+            if (word == null) return null;
+            words.add(word);
+        }
+        return words;
+    }
+
+    // CONCAT из одних LITERAL -> строка (обход слева направо без рекурсии)
+    private static String literalWord(Node n) {
+        StringBuilder sb = new StringBuilder();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(n);
+        while (!stack.isEmpty()) {
+            Node cur = stack.pop();
+            if (cur.type == NodeType.LITERAL) {
+                sb.append(cur.text);
+            } else if (cur.type == NodeType.CONCAT) {
+                stack.push(cur.right);
+                stack.push(cur.left);
+            } else {
+                return null;
+            }
+        }
+        return sb.toString();
+    }
+
+    // Неякорный вариант ДКА без групп: неявный Σ* перед шаблоном, семантика leftmost-longest.
+    // Состояние — список потоков (состояний исходного ДКА), упорядоченный по позиции начала;
+    // после первого совпадения новые потоки не запускаются, а более поздние отбрасываются
+    public static DFATable unanchored(DFATable dfa) {
+        return buildUnanchored(dfa, null, null, null);
+    }
+
+    // Тот же автомат (номера состояний совпадают с unanchored) с одним регистром на поток: где он начался.
+    // Регистр j — поток j списка, в нем позиция символа перед началом потока (начало - 1, поэтому
+    // стартовому потоку подходит -1). В принимающем состоянии единственный тег — регистр совпавшего потока.
+    // Для StreamSearchRunner: у автомата нет групп, matchPrefix к нему не применяется
+    public static TaggedDFA unanchoredStarts(DFATable dfa) {
+        List<Integer> opStart = new ArrayList<>();
+        List<Integer> ops = new ArrayList<>();
+        List<int[]> lists = new ArrayList<>();
+        DFATable table = buildUnanchored(dfa, opStart, ops, lists);
+        int n = table.stateCount();
+        int registerCount = 1;
+        int[][] finalTags = new int[n][];
+        for (int id = 0; id < n; id++) {
+            int last = lists.get(id).length - 1;
+            registerCount = Math.max(registerCount, last + 1);
+            if (table.accept[id]) finalTags[id] = new int[]{last};
+        }
+        return new TaggedDFA(table.alphabet, table.next, toArray(opStart), toArray(ops), finalTags,
+                registerCount, List.of());
+    }
+
+    // ops != null — для каждого перехода операции над регистрами потоков: поток j нового списка берет
+    // регистр потока i старого (j <= i, порядок потоков сохраняется, поэтому копии по возрастанию j
+    // ничего не затирают), новый поток — текущую позицию. lists получает списки потоков состояний.
+    // Поток, вернувшийся в старт исходного ДКА, записывается как n (копия старта): тогда состояние 0
+    // неякорного автомата — ровно «живых потоков нет, кроме начинающегося здесь» (DFARunner.searchEnd с limit)
+    private static DFATable buildUnanchored(DFATable dfa, List<Integer> opStart, List<Integer> ops,
+                                            List<int[]> lists) {
+        int n = dfa.stateCount();
+        Map<Threads, Integer> ids = new HashMap<>();
+        List<Threads> states = new ArrayList<>();
+        Threads start = normalize(new int[]{0}, false, dfa);
+        ids.put(start, 0);
+        states.add(start);
+
+        int k = dfa.classCount;
+        List<int[]> rows = new ArrayList<>();
+        boolean[] seen = new boolean[n + 1];
+        for (int id = 0; id < states.size(); id++) {
+            Threads cur = states.get(id);
+            int[] row = new int[k];
+            for (int cls = 0; cls < k; cls++) {
+                if (ops != null) opStart.add(ops.size() / 2);
+                int[] buf = new int[cur.list.length + 1];
+                int[] from = new int[cur.list.length + 1]; // номер потока в cur, TaggedDFA.CURRENT — новый поток
+                int size = 0;
+                for (int i = 0; i < cur.list.length; i++) {
+                    int to = dfa.next(original(cur.list[i], n), cls);
+                    if (to == 0) to = n;
+                    if (to != DFATable.DEAD && !seen[to]) {
+                        seen[to] = true;
+                        from[size] = i;
+                        buf[size++] = to;
+                    }
+                }
+                if (!cur.matched && !seen[n]) { // поток, начинающийся со следующего символа
+                    from[size] = TaggedDFA.CURRENT;
+                    buf[size++] = 0;
+                }
+                for (int i = 0; i < size; i++) seen[buf[i]] = false;
+
+                if (size == 0) {
+                    row[cls] = DFATable.DEAD;
+                    continue;
+                }
+                Threads next = normalize(Arrays.copyOf(buf, size), cur.matched, dfa);
+                row[cls] = ids.computeIfAbsent(next, t -> {
+                    states.add(t);
+                    return states.size() - 1;
+                });
+                for (int j = 0; ops != null && j < next.list.length; j++) {
+                    if (from[j] == j) continue;
+                    ops.add(j);
+                    ops.add(from[j]);
+                }
+            }
+            rows.add(row);
+        }
+        if (ops != null) opStart.add(ops.size() / 2);
+
+        DFATable res = new DFATable(dfa.alphabet, states.size());
+        for (int id = 0; id < states.size(); id++) {
+            System.arraycopy(rows.get(id), 0, res.next, id * k, k);
+            Threads t = states.get(id);
+            res.accept[id] = t.matched && dfa.accept(original(t.list[t.list.length - 1], n));
+            if (lists != null) lists.add(t.list);
+        }
+        return res;
+    }
+
+    // Обязательный литеральный префикс ДКА без групп: идем от старта, пока у непринимающего
+    // состояния ровно один переход и его класс — один символ
+    public static String literalPrefix(DFATable dfa) {
+        StringBuilder sb = new StringBuilder();
+        boolean[] visited = new boolean[dfa.stateCount()];
+        int st = 0;
+        while (!visited[st] && !dfa.accept(st)) {
+            visited[st] = true;
+            int only = -1;
+            for (int cls = 0; cls < dfa.classCount; cls++) {
+                if (dfa.next(st, cls) == DFATable.DEAD) continue;
+                if (only != -1) return sb.toString();
+                only = cls;
+            }
+            if (only == -1) break;
+            char[] ranges = dfa.alphabet.ranges(only);
+            if (ranges.length != 2 || ranges[0] != ranges[1]) break;
+            sb.append(ranges[0]);
+            st = dfa.next(st, only);
+        }
+        return sb.toString();
+    }
+
+    // ДКА обращенного языка: разворачиваем переходы и детерминизируем, старт — все принимающие
+    public static DFATable reverse(DFATable dfa) {
+        int n = dfa.stateCount();
+        int k = dfa.classCount;
+
+        // pred[cls * n + to] — откуда можно прийти в to по классу cls
+        List<List<Integer>> pred = new ArrayList<>(k * n);
+        for (int i = 0; i < k * n; i++) pred.add(null);
+        for (int q = 0; q < n; q++) {
+            for (int cls = 0; cls < k; cls++) {
+                int to = dfa.next(q, cls);
+                if (to == DFATable.DEAD) continue;
+                if (pred.get(cls * n + to) == null) pred.set(cls * n + to, new ArrayList<>());
+                pred.get(cls * n + to).add(q);
+            }
+        }
+
+        // состояние — отсортированный список состояний исходного ДКА: у цепочки из 10^5 состояний
+        // это 10^5 списков из одного элемента, битовые маски заняли бы 10^5 * n / 8 байт
+        StateSet start = new StateSet(IntStream.range(0, n).filter(dfa::accept).toArray());
+        Map<StateSet, Integer> ids = new HashMap<>();
+        List<StateSet> sets = new ArrayList<>();
+        ids.put(start, 0);
+        sets.add(start);
+
+        List<int[]> rows = new ArrayList<>();
+        boolean[] seen = new boolean[n];
+        int[] buf = new int[n];
+        for (int id = 0; id < sets.size(); id++) {
+            StateSet cur = sets.get(id);
+            int[] row = new int[k];
+            for (int cls = 0; cls < k; cls++) {
+                int size = 0;
+                for (int q : cur.states) {
+                    List<Integer> from = pred.get(cls * n + q);
+                    if (from == null) continue;
+                    for (int p : from) {
+                        if (seen[p]) continue;
+                        seen[p] = true;
+                        buf[size++] = p;
+                    }
+                }
+                for (int i = 0; i < size; i++) seen[buf[i]] = false;
+                if (size == 0) {
+                    row[cls] = DFATable.DEAD;
+                    continue;
+                }
+                int[] target = Arrays.copyOf(buf, size);
+                Arrays.sort(target);
+                row[cls] = ids.computeIfAbsent(new StateSet(target), t -> {
+                    sets.add(t);
+                    return sets.size() - 1;
+                });
+            }
+            rows.add(row);
+        }
 
-        if (n.type == NodeType.LITERAL || n.type == NodeType.GROUP_CALL)
-            return new Node(n.type, n.text, null, null);
+        DFATable res = new DFATable(dfa.alphabet, sets.size());
+        for (int id = 0; id < sets.size(); id++) {
+            System.arraycopy(rows.get(id), 0, res.next, id * k, k);
+            int[] states = sets.get(id).states;
+            res.accept[id] = states.length > 0 && states[0] == 0; // дошли до старта исходного ДКА
+        }
+        return res;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private record StateSet(int[] states) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateSet t && Arrays.equals(states, t.states);
+        }
 
-        Node a = reverse(n.left);
-        Node b = reverse(n.right);
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(states);
+        }
+    }
 
-        return switch (n.type) {
-            case CONCAT -> new Node(NodeType.CONCAT, b, a);
-            case OR -> new Node(NodeType.OR, a, b);
-            case KLEENE,
-                 OPTIONAL,
-                 NULL_REPEAT -> new Node(n.type,  a, null);
-            default -> throw new IllegalStateException("Unexpected: " + n.type);
-        };
+    private static int original(int q, int n) {
+        return q == n ? 0 : q;
+    }
+
+    // первый принимающий поток — текущий кандидат, все, кто начался позже, не нужны
+    private static Threads normalize(int[] list, boolean matched, DFATable dfa) {
+        for (int i = 0; i < list.length; i++) {
+            if (dfa.accept(original(list[i], dfa.stateCount())))
+                return new Threads(Arrays.copyOf(list, i + 1), true);
+        }
+        return new Threads(list, matched);
+    }
+
+    private record Threads(int[] list, boolean matched) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Threads t && matched == t.matched && Arrays.equals(list, t.list);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(list) + (matched ? 1 : 0);
+        }
     }
 
     public static List<DFAState> intersect(List<DFAState> dfa1, List<DFAState> dfa2) {
@@ -48,26 +385,25 @@ public final class DFAOperations {
             // принимающее состояние, если оба принимают
             boolean accept = s1.accept() && s2.accept();
 
-            Map<Character, Integer> charTrans = new HashMap<>();
+            IntervalMap.Builder charTrans = new IntervalMap.Builder();
             Map<Integer, Integer> groupTrans = new HashMap<>();
 
-            // все символы из обоих DFA
-            Set<Character> allChars = new HashSet<>();
-            allChars.addAll(s1.charTrans().keySet());
-            allChars.addAll(s2.charTrans().keySet());
-
-            // по символу
-            for (char c : allChars) {
-                Integer to1 = s1.charTrans().get(c);
-                Integer to2 = s2.charTrans().get(c);
-                if (to1 != null && to2 != null) {
-                    Pair<Integer, Integer> next = new Pair<>(to1, to2);
+            // по символу: пересечения интервалов обоих DFA
+            IntervalMap t1 = IntervalMap.of(s1.charTrans());
+            IntervalMap t2 = IntervalMap.of(s2.charTrans());
+            for (int i = 0, j = 0; i < t1.count() && j < t2.count(); ) {
+                char lo = (char) Math.max(t1.lo(i), t2.lo(j));
+                char hi = (char) Math.min(t1.hi(i), t2.hi(j));
+                if (lo <= hi) {
+                    Pair<Integer, Integer> next = new Pair<>(t1.target(i), t2.target(j));
                     int nextId = stateMap.computeIfAbsent(next, k -> {
                         queue.add(k);
                         return result.size() + queue.size();
                     });
-                    charTrans.put(c, nextId);
+                    charTrans.add(lo, hi, nextId);
                 }
+                if (t1.hi(i) < t2.hi(j)) i++;
+                else j++;
             }
 
             // по группам
@@ -88,7 +424,7 @@ public final class DFAOperations {
                 }
             }
 
-            result.add(new DFAState(s1.positions(), accept, charTrans, groupTrans));
+            result.add(new DFAState(s1.positions(), accept, charTrans.build(), groupTrans));
         }
 
         return result;
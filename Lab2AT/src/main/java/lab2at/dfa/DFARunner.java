@@ -1,51 +1,315 @@
 package lab2at.dfa;
 
+import lombok.Getter;
+
 import java.util.*;
 
 public final class DFARunner {
-    private final List<List<DFAState>> all;
+    @Getter
+    private final List<DFATable> tables;
+    private final int[] groupSlot; // id ДКА -> номер слота группы, -1 — в этот ДКА не входят как в группу
+    private final int groupCount;
+    private final ThreadLocal<PrefixMatch> local = ThreadLocal.withInitial(this::newMatch);
 
-    public DFARunner(List<List<DFAState>> all) {
-        this.all = all;
+    public DFARunner(List<DFATable> tables) {
+        this.tables = tables;
+        boolean[] called = new boolean[tables.size()];
+        for (DFATable t : tables) {
+            for (int g : t.groupDfa) if (g != DFATable.NO_GROUP) called[g] = true;
+        }
+        this.groupSlot = new int[tables.size()];
+        int count = 0;
+        for (int id = 0; id < called.length; id++) groupSlot[id] = called[id] ? count++ : -1;
+        this.groupCount = count;
     }
 
+    // Результат и рабочая память matchPrefix. Заводит вызывающий (newMatch) и переиспользует:
+    // слоты групп и стек вызовов — массивы, разбор ничего не выделяет
     public static final class PrefixMatch {
-        public int length; //  –1, если не совпало
-        public final Map<Integer, int[]> namedGroupSubs = new HashMap<>(); // dfaId, [start, end]
+        public int length = -1; // –1, если не совпало
+        // группа со слотом s — [captures[2s], captures[2s + 1]) в тексте; конец -1 — группа не совпала
+        public final int[] captures;
+        private int[] stack = new int[3 * 4]; // кадры: ДКА, состояние возврата, слот группы
+
+        public PrefixMatch(int groupCount) {
+            this.captures = new int[2 * groupCount];
+        }
+
+        public int start(int slot) {
+            return slot < 0 || captures[2 * slot + 1] < 0 ? -1 : captures[2 * slot];
+        }
+
+        public int end(int slot) {
+            return slot < 0 ? -1 : captures[2 * slot + 1];
+        }
+    }
+
+    public PrefixMatch newMatch() {
+        return new PrefixMatch(groupCount);
+    }
+
+    // PrefixMatch текущего потока — для тех, кому результат нужен только до следующего вызова
+    public PrefixMatch localMatch() {
+        return local.get();
+    }
+
+    // слот группы, которая компилируется в ДКА dfaId, -1 — такой группы нет
+    public int slotOf(int dfaId) {
+        return dfaId >= 0 && dfaId < groupSlot.length ? groupSlot[dfaId] : -1;
+    }
+
+    public int groupCount() {
+        return groupCount;
+    }
+
+    // Один проход неякорного ДКА (DFAOperations.unanchored): конец самого левого
+    // самого длинного совпадения, -1 — совпадений нет
+    public static int searchEnd(DFATable unanchored, CharSequence str, int from) {
+        return searchEnd(unanchored, str, from, "");
+    }
+
+    // То же с обязательным префиксом: пока живых потоков нет (стартовое состояние),
+    // перепрыгиваем indexOf-ом к следующему вхождению префикса
+    public static int searchEnd(DFATable unanchored, CharSequence str, int from, String prefix) {
+        return searchEnd(unanchored, str, from, prefix, Integer.MAX_VALUE);
+    }
+
+    // Совпадения, начинающиеся с limit и правее, не нужны: в стартовом состоянии (жив только поток,
+    // начинающийся здесь) на позиции >= limit поиск останавливается — кусок ParallelSearch не читается до конца
+    public static int searchEnd(DFATable unanchored, CharSequence str, int from, String prefix, int limit) {
+        int[] next = unanchored.next;
+        boolean[] accept = unanchored.accept;
+        char[][] blocks = unanchored.alphabet.blocks;
+        int classCount = unanchored.classCount;
+        boolean skip = !prefix.isEmpty();
+
+        int st = 0;
+        int end = accept[0] ? from : -1;
+        for (int i = from, len = str.length(); i < len; i++) {
+            if (st == 0) {
+                if (skip) i = indexOf(str, prefix, i);
+                if (i < 0 || i >= limit) break;
+            }
+            char c = str.charAt(i);
+            st = next[st * classCount + blocks[c >>> 8][c & 0xFF]];
+            if (st == DFATable.DEAD) break;
+            if (accept[st]) end = i + 1;
+        }
+        return end;
+    }
+
+    // Обратный прогон ДКА (DFAOperations.reverse) от end влево не дальше limit:
+    // самое левое начало совпадения, которое заканчивается в end, -1 — нет
+    public static int matchBackward(DFATable reversed, CharSequence str, int end, int limit) {
+        int[] next = reversed.next;
+        char[][] blocks = reversed.alphabet.blocks;
+        int classCount = reversed.classCount;
+
+        int st = 0;
+        int start = reversed.accept[0] ? end : -1;
+        for (int i = end - 1; i >= limit; i--) {
+            char c = str.charAt(i);
+            st = next[st * classCount + blocks[c >>> 8][c & 0xFF]];
+            if (st == DFATable.DEAD) break;
+            if (reversed.accept[st]) start = i;
+        }
+        return start;
+    }
+
+    // Те же проходы по отображенному файлу: позиции — смещения в байтах,
+    // символ вне BMP подается в ДКА парой суррогатов
+    public static long searchEnd(DFATable unanchored, MappedText text, long from, byte[] prefix) {
+        return searchEnd(unanchored, text, from, prefix, Long.MAX_VALUE);
+    }
+
+    public static long searchEnd(DFATable unanchored, MappedText text, long from, byte[] prefix, long limit) {
+        int[] next = unanchored.next;
+        boolean[] accept = unanchored.accept;
+
+        int st = 0;
+        long end = accept[0] ? from : -1;
+        for (long pos = from, len = text.length(); pos < len; ) {
+            if (st == 0) {
+                if (prefix.length > 0) pos = text.indexOf(prefix, pos);
+                if (pos < 0 || pos >= limit) break;
+            }
+            int cp = text.decode(pos);
+            pos += text.width;
+            st = step(unanchored, next, st, cp, false);
+            if (st == DFATable.DEAD) break;
+            if (accept[st]) end = pos;
+        }
+        return end;
+    }
+
+    public static long matchBackward(DFATable reversed, MappedText text, long end, long limit) {
+        int[] next = reversed.next;
+
+        int st = 0;
+        long start = reversed.accept[0] ? end : -1;
+        for (long pos = end; pos > limit; ) {
+            int cp = text.decodeBefore(pos);
+            pos -= text.width;
+            st = step(reversed, next, st, cp, true);
+            if (st == DFATable.DEAD) break;
+            if (reversed.accept[st]) start = pos;
+        }
+        return start;
+    }
+
+    // Перечислительный прогон куска [from, to) сразу из всех состояний: ends[s] — где окажется ДКА,
+    // начав в s (DEAD — умрет). Сошедшиеся пути склеиваются, обычно через несколько символов
+    // живых различных состояний остается одно-два
+    public static int[] runFromAll(DFATable t, CharSequence str, int from, int to) {
+        Speculation sp = new Speculation(t);
+        for (int i = from; i < to && sp.alive(); i++) sp.step(t.alphabet.classOf(str.charAt(i)));
+        return sp.ends();
+    }
+
+    public static int[] runFromAll(DFATable t, MappedText text, long from, long to) {
+        Speculation sp = new Speculation(t);
+        for (long pos = from; pos < to && sp.alive(); ) {
+            int cp = text.decode(pos);
+            pos += text.width;
+            if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                sp.step(t.alphabet.classOf((char) cp));
+            } else {
+                sp.step(t.alphabet.classOf(Character.highSurrogate(cp)));
+                sp.step(t.alphabet.classOf(Character.lowSurrogate(cp)));
+            }
+        }
+        return sp.ends();
+    }
+
+    private static final class Speculation {
+        private static final int COMPACT_EVERY = 64;
+
+        final int[] next;
+        final int classCount;
+        final int[] active; // различные текущие состояния
+        final int[] slot; // начальное состояние -> индекс в active
+        final int[] seen; // состояние + 1 -> новый индекс при склейке
+        final int[] remap;
+        int count;
+        int steps;
+
+        Speculation(DFATable t) {
+            int n = t.stateCount();
+            next = t.next;
+            classCount = t.classCount;
+            active = new int[n];
+            slot = new int[n];
+            remap = new int[n];
+            seen = new int[n + 1];
+            Arrays.fill(seen, -1);
+            for (int s = 0; s < n; s++) active[s] = slot[s] = s;
+            count = n;
+        }
+
+        boolean alive() {
+            return count > 1 || active[0] != DFATable.DEAD;
+        }
+
+        void step(int cls) {
+            for (int j = 0; j < count; j++) {
+                int q = active[j];
+                if (q != DFATable.DEAD) active[j] = next[q * classCount + cls];
+            }
+            if (++steps % COMPACT_EVERY == 0) compact();
+        }
+
+        void compact() {
+            int fresh = 0;
+            for (int j = 0; j < count; j++) {
+                int q = active[j];
+                if (seen[q + 1] < 0) {
+                    seen[q + 1] = fresh;
+                    active[fresh++] = q;
+                }
+                remap[j] = seen[q + 1];
+            }
+            for (int j = 0; j < fresh; j++) seen[active[j] + 1] = -1;
+            for (int s = 0; s < slot.length; s++) slot[s] = remap[slot[s]];
+            count = fresh;
+        }
+
+        int[] ends() {
+            int[] ends = new int[slot.length];
+            for (int s = 0; s < slot.length; s++) ends[s] = active[slot[s]];
+            return ends;
+        }
     }
 
-    public PrefixMatch matchPrefix(String str, int from, int mainId) {
-        record Frame(int dfa, int retSt, int groupId, int groupStart) {}
+    private static int step(DFATable t, int[] next, int st, int cp, boolean backward) {
+        if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT)
+            return next[st * t.classCount + t.alphabet.classOf((char) cp)];
+        char first = backward ? Character.lowSurrogate(cp) : Character.highSurrogate(cp);
+        char second = backward ? Character.highSurrogate(cp) : Character.lowSurrogate(cp);
+        st = next[st * t.classCount + t.alphabet.classOf(first)];
+        return st == DFATable.DEAD ? st : next[st * t.classCount + t.alphabet.classOf(second)];
+    }
 
-        Deque<Frame> stack = new ArrayDeque<>();
-        PrefixMatch prefixMatch = new PrefixMatch();
-        prefixMatch.length = -1;
+    private static int indexOf(CharSequence str, String prefix, int from) {
+        if (str instanceof String s) return s.indexOf(prefix, from);
+        char first = prefix.charAt(0);
+        for (int i = from, last = str.length() - prefix.length(); i <= last; i++) {
+            if (str.charAt(i) != first) continue;
+            int j = 1;
+            while (j < prefix.length() && str.charAt(i + j) == prefix.charAt(j)) j++;
+            if (j == prefix.length()) return i;
+        }
+        return -1;
+    }
+
+    public PrefixMatch matchPrefix(CharSequence str, int from, int mainId) {
+        PrefixMatch m = newMatch();
+        matchPrefix(str, from, mainId, m);
+        return m;
+    }
+
+    // Группы как вызовы подпрограмм: при входе в группу кадр кладется в m.stack.
+    // Длина совпадения с from или -1, группы — в m.captures
+    public int matchPrefix(CharSequence str, int from, int mainId, PrefixMatch m) {
+        return matchPrefix(str, from, str.length(), mainId, m);
+    }
+
+    // то же, но символы с to и дальше не читаются: совпадение целиком внутри [from, to)
+    public int matchPrefix(CharSequence str, int from, int to, int mainId, PrefixMatch m) {
+        int[] captures = m.captures;
+        int[] stack = m.stack;
+        int sp = 0;
+        Arrays.fill(captures, -1);
+        m.length = -1;
 
         int dfa = mainId;
         int st = 0;
         int i = from;
 
         while (true) {
-            DFAState curState = all.get(dfa).get(st);
+            DFATable t = tables.get(dfa);
 
-            // по символу
-            if (i < str.length()) {
+            // по символу, пока есть переход
+            int[] next = t.next;
+            char[][] blocks = t.alphabet.blocks;
+            int classCount = t.classCount;
+            while (i < to) {
                 char c = str.charAt(i);
-                Integer next = curState.charTrans().get(c);
-                if (next != null) {
-                    st = next;
-                    i++;
-                    continue;
-                }
+                int target = next[st * classCount + blocks[c >>> 8][c & 0xFF]];
+                if (target == DFATable.DEAD) break;
+                st = target;
+                i++;
             }
 
             // по группе
-            if (!curState.groupTrans().isEmpty()) {
-                var e = curState.groupTrans().entrySet().iterator().next();
-                int subId = e.getKey();
-                int retSt = e.getValue(); // куда вернуться
-                stack.push(new Frame(dfa, retSt, subId, i - from));
-                prefixMatch.namedGroupSubs.put(subId, new int[]{i - from, -1});
+            int subId = t.groupDfa[st];
+            if (subId != DFATable.NO_GROUP) {
+                if (sp == stack.length) m.stack = stack = Arrays.copyOf(stack, 2 * stack.length);
+                int slot = groupSlot[subId];
+                stack[sp++] = dfa;
+                stack[sp++] = t.groupRet[st];
+                stack[sp++] = slot;
+                captures[2 * slot] = i;
+                captures[2 * slot + 1] = -1;
 
                 dfa = subId;
                 st = 0;
@@ -53,20 +317,19 @@ public final class DFARunner {
             }
 
             // принимающее?
-            if (curState.accept()) {
-                if (!stack.isEmpty()) {
-                    var frame = stack.pop();
-                    prefixMatch.namedGroupSubs.get(frame.groupId)[1] = i - from; // ставим окончание
-                    dfa = frame.dfa;
-                    st = frame.retSt;
+            if (t.accept[st]) {
+                if (sp > 0) {
+                    captures[2 * stack[--sp] + 1] = i; // ставим окончание
+                    st = stack[--sp];
+                    dfa = stack[--sp];
                     continue;
                 }
-                prefixMatch.length = i - from;
-                return prefixMatch;
+                m.length = i - from;
+                return m.length;
             }
 
            // не распознали
-            return prefixMatch;
+            return -1;
         }
     }
 }
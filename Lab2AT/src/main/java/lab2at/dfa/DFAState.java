@@ -1,10 +1,12 @@
 package lab2at.dfa;
 
-import java.util.BitSet;
 import java.util.Map;
 
+// charTrans скомпилированных состояний — IntervalMap: переход "по любому символу, кроме k исключений"
+// хранится как не больше k + 1 интервалов, а не как 65 536 записей.
+// positions — позиции Глушкова состояния по возрастанию (только для отладки и наборов шаблонов)
 public record DFAState(
-        BitSet positions,
+        int[] positions,
         boolean accept,
         Map<Character, Integer> charTrans,
         Map<Integer, Integer> groupTrans
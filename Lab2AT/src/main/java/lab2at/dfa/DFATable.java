@@ -0,0 +1,117 @@
+package lab2at.dfa;
+
+import java.util.*;
+
+// Скомпилированный ДКА: плоская таблица next[state * classCount + charClass]
+public final class DFATable {
+    public static final int DEAD = -1; // зарезервированное мертвое состояние
+    public static final int NO_GROUP = -1;
+
+    final Alphabet alphabet; // символ -> класс
+    final int classCount;
+    final int[] next;
+    final boolean[] accept;
+    final int[] groupDfa; // первый переход по группе: id ДКА группы
+    final int[] groupRet; // состояние, куда возвращаемся после группы
+
+    DFATable(Alphabet alphabet, int stateCount) {
+        this.alphabet = alphabet;
+        this.classCount = alphabet.size();
+        this.next = new int[stateCount * classCount];
+        this.accept = new boolean[stateCount];
+        this.groupDfa = new int[stateCount];
+        this.groupRet = new int[stateCount];
+        Arrays.fill(next, DEAD);
+        Arrays.fill(groupDfa, NO_GROUP);
+    }
+
+    // алфавит строим по символам переходов (например, для результата intersect)
+    public static DFATable fromStates(List<DFAState> states) {
+        return fromStates(states, Alphabet.ofTransitions(states));
+    }
+
+    // все символы одного класса alphabet обязаны вести в одно и то же состояние
+    public static DFATable fromStates(List<DFAState> states, Alphabet alphabet) {
+        int n = states.size();
+        int k = alphabet.size();
+        int[][] columns = new int[k][n];
+        for (int[] col : columns) Arrays.fill(col, DEAD);
+        for (int st = 0; st < n; st++) { // по одному символу класса: переходы бывают на весь UTF-16
+            Map<Character, Integer> trans = states.get(st).charTrans();
+            for (int cls = 1; cls < k; cls++) {
+                Integer to = trans.get(alphabet.ranges(cls)[0]);
+                if (to != null) columns[cls][st] = to;
+            }
+        }
+
+        // классы с одинаковыми столбцами автомат не различает — склеиваем
+        Map<Column, Integer> colToClass = new HashMap<>();
+        int[] dead = new int[n];
+        Arrays.fill(dead, DEAD);
+        colToClass.put(new Column(dead), 0);
+        int[] oldToNew = new int[k];
+        for (int cls = 1; cls < k; cls++)
+            oldToNew[cls] = colToClass.computeIfAbsent(new Column(columns[cls]), c -> colToClass.size());
+
+        DFATable t = new DFATable(alphabet.merge(oldToNew, colToClass.size()), n);
+        for (int cls = 1; cls < k; cls++) {
+            for (int st = 0; st < n; st++)
+                t.next[st * t.classCount + oldToNew[cls]] = columns[cls][st];
+        }
+        for (int st = 0; st < n; st++) {
+            DFAState s = states.get(st);
+            t.accept[st] = s.accept();
+            if (!s.groupTrans().isEmpty()) { // раннер всегда берет первый переход по группе
+                var e = s.groupTrans().entrySet().iterator().next();
+                t.groupDfa[st] = e.getKey();
+                t.groupRet[st] = e.getValue();
+            }
+        }
+        return t;
+    }
+
+    public int classOf(char c) {
+        return alphabet.classOf(c);
+    }
+
+    public int next(int state, int cls) {
+        return next[state * classCount + cls];
+    }
+
+    public boolean accept(int state) {
+        return accept[state];
+    }
+
+    // id ДКА группы, в которую уходим из state, NO_GROUP — перехода по группе нет
+    public int groupDfa(int state) {
+        return groupDfa[state];
+    }
+
+    public int groupRet(int state) {
+        return groupRet[state];
+    }
+
+    public int stateCount() {
+        return accept.length;
+    }
+
+    public int classCount() {
+        return classCount;
+    }
+
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    private record Column(int[] targets) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Column c && Arrays.equals(targets, c.targets);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(targets);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package lab2at.dfa;
+
+import java.util.*;
+
+// Переходы по символам как отсортированные непересекающиеся интервалы [lo, hi] -> состояние.
+// Это Map<Character, Integer>: get — двоичный поиск, но перебор записей идет по одному символу,
+// поэтому там, где важен размер (классы [^a]), перебирают интервалы
+public final class IntervalMap extends AbstractMap<Character, Integer> {
+    private final char[] lo;
+    private final char[] hi;
+    private final int[] to;
+
+    private IntervalMap(char[] lo, char[] hi, int[] to) {
+        this.lo = lo;
+        this.hi = hi;
+        this.to = to;
+    }
+
+    // та же карта интервалами; соседние символы с одной целью склеиваются
+    public static IntervalMap of(Map<Character, Integer> trans) {
+        if (trans instanceof IntervalMap m) return m;
+        Builder b = new Builder();
+        for (var e : trans.entrySet()) b.add(e.getKey(), e.getKey(), e.getValue());
+        return b.build();
+    }
+
+    public int count() {
+        return lo.length;
+    }
+
+    public char lo(int i) {
+        return lo[i];
+    }
+
+    public char hi(int i) {
+        return hi[i];
+    }
+
+    public int target(int i) {
+        return to[i];
+    }
+
+    // цели через old2new, отрицательная — переход убирается
+    public IntervalMap remap(int[] old2new) {
+        Builder b = new Builder();
+        for (int i = 0; i < lo.length; i++) {
+            int t = old2new[to[i]];
+            if (t >= 0) b.add(lo[i], hi[i], t);
+        }
+        return b.build();
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (!(key instanceof Character ch)) return null;
+        char c = ch;
+        int l = 0, r = lo.length - 1;
+        while (l <= r) {
+            int m = (l + r) >>> 1;
+            if (c < lo[m]) r = m - 1;
+            else if (c > hi[m]) l = m + 1;
+            else return to[m];
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < lo.length; i++) size += hi[i] - lo[i] + 1;
+        return size;
+    }
+
+    @Override
+    public Set<Entry<Character, Integer>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return IntervalMap.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<Character, Integer>> iterator() {
+                return new Iterator<>() {
+                    private int i;
+                    private int c = lo.length > 0 ? lo[0] : 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < lo.length;
+                    }
+
+                    @Override
+                    public Entry<Character, Integer> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        var e = new SimpleImmutableEntry<>((char) c, to[i]);
+                        if (c < hi[i]) {
+                            c++;
+                        } else if (++i < lo.length) {
+                            c = lo[i];
+                        }
+                        return e;
+                    }
+                };
+            }
+        };
+    }
+
+    // интервалы в любом порядке, но без пересечений
+    public static final class Builder {
+        private final List<int[]> ranges = new ArrayList<>();
+
+        public Builder add(char lo, char hi, int to) {
+            ranges.add(new int[]{lo, hi, to});
+            return this;
+        }
+
+        public IntervalMap build() {
+            ranges.sort(Comparator.comparingInt(r -> r[0]));
+            List<int[]> merged = new ArrayList<>();
+            for (int[] r : ranges) {
+                int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && r[0] <= last[1])
+                    throw new IllegalArgumentException("Overlapping intervals at " + (char) r[0]);
+                if (last != null && last[1] + 1 == r[0] && last[2] == r[2]) last[1] = r[1];
+                else merged.add(r.clone());
+            }
+            char[] lo = new char[merged.size()];
+            char[] hi = new char[merged.size()];
+            int[] to = new int[merged.size()];
+            for (int i = 0; i < lo.length; i++) {
+                lo[i] = (char) merged.get(i)[0];
+                hi[i] = (char) merged.get(i)[1];
+                to[i] = merged.get(i)[2];
+            }
+            return new IntervalMap(lo, hi, to);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package lab2at.dfa;
+
+import java.util.*;
+
+// ДКА, который строится по ходу сопоставления прямо из позиций Глушкова.
+// Состояния хранятся в кэше фиксированного размера; когда он заполнен, кэш сбрасывается целиком
+public final class LazyDFA {
+    private static final int UNKNOWN = -2; // переход еще не вычислен
+
+    private final Alphabet alphabet;
+    private final BitSet[] posClasses; // классы символов, которые читает позиция, пусто у '#'
+    private final BitSet[] follow;
+    private final BitSet[] precede; // обратный followpos, бит 0 — начальное состояние
+    private final int endPos;
+    private final BitSet first;
+
+    private final Determinizer<BitSet> anchored;
+    private final Determinizer<Threads> unanchored;
+    private final Determinizer<BitSet> reversed;
+
+    public record CacheStats(long hits, long misses, long flushes, int states) {}
+
+    LazyDFA(Alphabet alphabet, BitSet[] posClasses, List<BitSet> followPos, int endPos, BitSet first, int cacheStates) {
+        if (cacheStates < 2)
+            throw new IllegalArgumentException("Cache must hold at least 2 states");
+        this.alphabet = alphabet;
+        this.posClasses = posClasses;
+        this.follow = followPos.toArray(new BitSet[0]);
+        this.endPos = endPos;
+        this.first = first;
+
+        this.precede = new BitSet[follow.length];
+        for (int q = 0; q < follow.length; q++) precede[q] = new BitSet();
+        for (int q = first.nextSetBit(0); q >= 0; q = first.nextSetBit(q + 1)) precede[q].set(0);
+        for (int p = 1; p < follow.length; p++) {
+            for (int q = follow[p].nextSetBit(0); q >= 0; q = follow[p].nextSetBit(q + 1)) precede[q].set(p);
+        }
+
+        int k = alphabet.size();
+        this.anchored = new Determinizer<>(cacheStates, k, first) {
+            BitSet successor(BitSet from, int cls) {
+                BitSet to = move(from, cls);
+                return to.isEmpty() ? null : to;
+            }
+
+            boolean accepting(BitSet key) {
+                return key.get(endPos);
+            }
+        };
+
+        this.unanchored = new Determinizer<>(cacheStates, k, normalize(List.of(first), false)) {
+            Threads successor(Threads from, int cls) {
+                List<BitSet> out = new ArrayList<>();
+                Set<BitSet> seen = new HashSet<>();
+                for (BitSet t : from.list) {
+                    BitSet to = move(t, cls);
+                    if (!to.isEmpty() && seen.add(to)) out.add(to);
+                }
+                if (!from.matched && seen.add(first)) out.add(first); // поток со следующего символа
+                return out.isEmpty() ? null : normalize(out, from.matched);
+            }
+
+            boolean accepting(Threads key) {
+                return key.matched && key.list.get(key.list.size() - 1).get(endPos);
+            }
+        };
+
+        BitSet last = new BitSet(); // позиции, после которых может идти '#'
+        for (int q = endPos >= 0 ? precede[endPos].nextSetBit(0) : -1; q >= 0; q = precede[endPos].nextSetBit(q + 1))
+            last.set(q);
+        this.reversed = new Determinizer<>(cacheStates, k, last) {
+            BitSet successor(BitSet from, int cls) {
+                BitSet to = new BitSet();
+                for (int q = from.nextSetBit(1); q >= 0; q = from.nextSetBit(q + 1)) {
+                    if (posClasses[q].get(cls)) to.or(precede[q]);
+                }
+                return to.isEmpty() ? null : to;
+            }
+
+            boolean accepting(BitSet key) {
+                return key.get(0);
+            }
+        };
+    }
+
+    // вся строка принадлежит языку
+    public boolean matches(CharSequence str) {
+        Determinizer<BitSet> d = anchored;
+        int st = d.start();
+        for (int i = 0, len = str.length(); i < len; i++) {
+            st = d.step(st, alphabet.classOf(str.charAt(i)));
+            if (st == DFATable.DEAD) return false;
+        }
+        return d.accept[st];
+    }
+
+    // конец самого левого самого длинного совпадения, -1 — совпадений нет (как DFARunner.searchEnd)
+    public int searchEnd(CharSequence str, int from) {
+        Determinizer<Threads> d = unanchored;
+        int st = d.start();
+        int end = d.accept[st] ? from : -1;
+        for (int i = from, len = str.length(); i < len; i++) {
+            st = d.step(st, alphabet.classOf(str.charAt(i)));
+            if (st == DFATable.DEAD) break;
+            if (d.accept[st]) end = i + 1;
+        }
+        return end;
+    }
+
+    // самое левое начало совпадения, которое заканчивается в end (как DFARunner.matchBackward)
+    public int matchBackward(CharSequence str, int end, int limit) {
+        Determinizer<BitSet> d = reversed;
+        int st = d.start();
+        int start = d.accept[st] ? end : -1;
+        for (int i = end - 1; i >= limit; i--) {
+            st = d.step(st, alphabet.classOf(str.charAt(i)));
+            if (st == DFATable.DEAD) break;
+            if (d.accept[st]) start = i;
+        }
+        return start;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(
+                anchored.hits + unanchored.hits + reversed.hits,
+                anchored.misses + unanchored.misses + reversed.misses,
+                anchored.flushes + unanchored.flushes + reversed.flushes,
+                anchored.keys.size() + unanchored.keys.size() + reversed.keys.size());
+    }
+
+    private BitSet move(BitSet from, int cls) {
+        BitSet to = new BitSet();
+        for (int p = from.nextSetBit(0); p >= 0; p = from.nextSetBit(p + 1)) {
+            if (posClasses[p].get(cls)) to.or(follow[p]);
+        }
+        return to;
+    }
+
+    // как в DFAOperations.unanchored: первый принимающий поток — кандидат, более поздние отбрасываем
+    private Threads normalize(List<BitSet> list, boolean matched) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).get(endPos))
+                return new Threads(List.copyOf(list.subList(0, i + 1)), true);
+        }
+        return new Threads(List.copyOf(list), matched);
+    }
+
+    private record Threads(List<BitSet> list, boolean matched) {}
+
+    // Кэш состояний: ключ -> номер, строка переходов заполняется по мере надобности
+    private abstract static class Determinizer<K> {
+        final int capacity;
+        final int classCount;
+        final K startKey;
+        final Map<K, Integer> ids = new HashMap<>();
+        final List<K> keys = new ArrayList<>();
+        final int[] next;
+        final boolean[] accept;
+        long hits, misses, flushes;
+
+        Determinizer(int capacity, int classCount, K startKey) {
+            this.capacity = capacity;
+            this.classCount = classCount;
+            this.startKey = startKey;
+            this.next = new int[capacity * classCount];
+            this.accept = new boolean[capacity];
+        }
+
+        abstract K successor(K from, int cls); // null — мертвое состояние
+
+        abstract boolean accepting(K key);
+
+        int start() {
+            Integer id = ids.get(startKey);
+            if (id != null) return id;
+            if (keys.size() == capacity) flush();
+            return add(startKey);
+        }
+
+        // номер st после сброса кэша недействителен, действителен только возвращенный
+        int step(int st, int cls) {
+            int to = next[st * classCount + cls];
+            if (to != UNKNOWN) {
+                hits++;
+                return to;
+            }
+            misses++;
+            K target = successor(keys.get(st), cls);
+            if (target == null) {
+                next[st * classCount + cls] = DFATable.DEAD;
+                return DFATable.DEAD;
+            }
+            Integer id = ids.get(target);
+            if (id == null) {
+                if (keys.size() == capacity) {
+                    flush();
+                    return add(target);
+                }
+                id = add(target);
+            }
+            next[st * classCount + cls] = id;
+            return id;
+        }
+
+        private int add(K key) {
+            int id = keys.size();
+            keys.add(key);
+            ids.put(key, id);
+            Arrays.fill(next, id * classCount, (id + 1) * classCount, UNKNOWN);
+            accept[id] = accepting(key);
+            return id;
+        }
+
+        private void flush() {
+            flushes++;
+            keys.clear();
+            ids.clear();
+        }
+    }
+}
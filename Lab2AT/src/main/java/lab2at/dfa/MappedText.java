@@ -0,0 +1,130 @@
+package lab2at.dfa;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Файл, отображенный в память кусками по 1 ГБ: позиции — смещения в байтах (long),
+// в кучу файл не читается, чтение берет на себя страничный кэш ОС
+public final class MappedText {
+    public enum Encoding { LATIN1, UTF8 }
+
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+    private static final int REPLACEMENT = 0xFFFD; // битая последовательность UTF-8
+
+    private final MappedByteBuffer[] segments;
+    private final long length;
+    private final Encoding encoding;
+    int width; // длина в байтах последнего декодированного символа
+
+    private MappedText(MappedByteBuffer[] segments, long length, Encoding encoding) {
+        this.segments = segments;
+        this.length = length;
+        this.encoding = encoding;
+    }
+
+    public static MappedText map(Path path, Encoding encoding) throws IOException {
+        // отображение остается действительным и после закрытия канала
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            for (int i = 0; i < segments.length; i++) {
+                long off = (long) i << SEGMENT_BITS;
+                segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, off, Math.min(SEGMENT_MASK + 1, size - off));
+            }
+            return new MappedText(segments, size, encoding);
+        }
+    }
+
+    // тот же файл с собственным состоянием декодера — для параллельной работы
+    public MappedText copy() {
+        return new MappedText(segments, length, encoding);
+    }
+
+    // ближайшее начало символа не левее pos
+    public long boundary(long pos) {
+        if (encoding == Encoding.UTF8) {
+            while (pos < length && (byteAt(pos) & 0xC0) == 0x80) pos++;
+        }
+        return Math.min(pos, length);
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    int byteAt(long pos) {
+        return segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & SEGMENT_MASK)) & 0xFF;
+    }
+
+    // код символа, который начинается в pos; его длина — в width
+    public int decode(long pos) {
+        int b = byteAt(pos);
+        width = 1;
+        if (encoding == Encoding.LATIN1 || b < 0x80) return b;
+        int n = b >= 0xF8 ? -1 : b >= 0xF0 ? 3 : b >= 0xE0 ? 2 : b >= 0xC0 ? 1 : -1; // байтов продолжения
+        if (n < 0 || pos + n >= length) return REPLACEMENT;
+        int cp = b & (0x3F >> n);
+        for (int j = 1; j <= n; j++) {
+            int c = byteAt(pos + j);
+            if ((c & 0xC0) != 0x80) return REPLACEMENT;
+            cp = cp << 6 | c & 0x3F;
+        }
+        width = n + 1;
+        return cp;
+    }
+
+    // код символа, который заканчивается в pos; его длина — в width
+    public int decodeBefore(long pos) {
+        if (encoding == Encoding.LATIN1) {
+            width = 1;
+            return byteAt(pos - 1);
+        }
+        long start = pos - 1;
+        while (start > 0 && start > pos - 4 && (byteAt(start) & 0xC0) == 0x80) start--;
+        int cp = decode(start);
+        if (start + width != pos) {
+            width = 1;
+            return REPLACEMENT;
+        }
+        return cp;
+    }
+
+    // смещение следующего вхождения байтов needle не левее from, -1 — нет
+    public long indexOf(byte[] needle, long from) {
+        int first = needle[0] & 0xFF;
+        for (long i = from, last = length - needle.length; i <= last; i++) {
+            if (byteAt(i) != first) continue;
+            int j = 1;
+            while (j < needle.length && byteAt(i + j) == (needle[j] & 0xFF)) j++;
+            if (j == needle.length) return i;
+        }
+        return -1;
+    }
+
+    // байты строки в кодировке файла, пустой массив — строку не закодировать.
+    // Префикс шаблона может разрезать суррогатную пару ((😀|😁)x дает префикс из одного старшего
+    // суррогата): одиночный суррогат getBytes заменил бы на '?', поэтому строка обрезается перед ним
+    public byte[] encode(String s) {
+        if (encoding == Encoding.UTF8) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) i++;
+                else if (Character.isSurrogate(c)) return s.substring(0, i).getBytes(StandardCharsets.UTF_8);
+            }
+            return s.getBytes(StandardCharsets.UTF_8);
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) return new byte[0];
+        }
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,94 @@
+package lab2at.dfa;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Множество позиций Глушкова: отсортированный массив без повторов. Размер — по числу позиций,
+// а не по наибольшей, как у BitSet, поэтому {p} в шаблоне из 10^5 позиций — один int.
+// Общее множество (share) больше не меняется: на него ссылаются followpos нескольких позиций
+public final class PosSet {
+    private int[] items;
+    private int size;
+    private boolean shared;
+
+    private PosSet(int[] items, int size) {
+        this.items = items;
+        this.size = size;
+    }
+
+    public static PosSet empty() {
+        return new PosSet(new int[0], 0);
+    }
+
+    public static PosSet of(int p) {
+        return new PosSet(new int[]{p}, 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int i) {
+        return items[i];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public PosSet share() {
+        shared = true;
+        return this;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public PosSet copy() {
+        return new PosSet(Arrays.copyOf(items, size), size);
+    }
+
+    // объединение на месте. Позиции правого поддерева больше позиций левого,
+    // поэтому обычно other просто дописывается в конец
+    public PosSet addAll(PosSet other) {
+        if (shared)
+            throw new IllegalStateException("Shared position set is read-only");
+        if (other.size == 0) return this;
+        if (size == 0 || other.items[0] > items[size - 1]) {
+            if (size + other.size > items.length)
+                items = Arrays.copyOf(items, Math.max(size + other.size, 2 * items.length));
+            System.arraycopy(other.items, 0, items, size, other.size);
+            size += other.size;
+            return this;
+        }
+        int[] merged = new int[size + other.size];
+        int i = 0, j = 0, n = 0;
+        while (i < size || j < other.size) {
+            int a = i < size ? items[i] : Integer.MAX_VALUE;
+            int b = j < other.size ? other.items[j] : Integer.MAX_VALUE;
+            int min = Math.min(a, b);
+            merged[n++] = min;
+            if (a == min) i++;
+            if (b == min) j++;
+        }
+        items = merged;
+        size = n;
+        return this;
+    }
+
+    public void orInto(BitSet target) {
+        for (int i = 0; i < size; i++) target.set(items[i]);
+    }
+
+    public BitSet toBitSet() {
+        BitSet bits = new BitSet();
+        orInto(bits);
+        return bits;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(items, size));
+    }
+}
@@ -0,0 +1,109 @@
+package lab2at.dfa;
+
+import java.util.*;
+
+// ДКА-произведение для набора шаблонов (DFACompiler.compileSet): в принимающих состояниях —
+// номера шаблонов, которые там заканчиваются
+public final class SetDFA {
+    private final int patternCount;
+    private final DFATable anchored;
+    private final int[][] anchoredAccepts; // null — ни один шаблон не принят
+    private final DFATable unanchored; // тот же автомат с неявным Σ* в начале
+    private final int[][] unanchoredAccepts;
+
+    SetDFA(DFATable anchored, int[][] acceptIds, int patternCount) {
+        this.patternCount = patternCount;
+        this.anchored = anchored;
+        this.anchoredAccepts = acceptIds;
+
+        // подмножества состояний anchored, на каждом шаге добавляем старт
+        Map<BitSet, Integer> ids = new HashMap<>();
+        List<BitSet> sets = new ArrayList<>();
+        BitSet start = new BitSet();
+        start.set(0);
+        ids.put(start, 0);
+        sets.add(start);
+
+        int k = anchored.classCount;
+        List<int[]> rows = new ArrayList<>();
+        for (int id = 0; id < sets.size(); id++) {
+            BitSet cur = sets.get(id);
+            int[] row = new int[k];
+            for (int cls = 0; cls < k; cls++) {
+                BitSet target = new BitSet();
+                target.set(0);
+                for (int q = cur.nextSetBit(0); q >= 0; q = cur.nextSetBit(q + 1)) {
+                    int to = anchored.next(q, cls);
+                    if (to != DFATable.DEAD) target.set(to);
+                }
+                row[cls] = ids.computeIfAbsent(target, t -> {
+                    sets.add(t);
+                    return sets.size() - 1;
+                });
+            }
+            rows.add(row);
+        }
+
+        this.unanchored = new DFATable(anchored.alphabet, sets.size());
+        this.unanchoredAccepts = new int[sets.size()][];
+        for (int id = 0; id < sets.size(); id++) {
+            System.arraycopy(rows.get(id), 0, unanchored.next, id * k, k);
+            TreeSet<Integer> accepted = new TreeSet<>();
+            BitSet set = sets.get(id);
+            for (int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1)) {
+                if (acceptIds[q] != null) for (int p : acceptIds[q]) accepted.add(p);
+            }
+            if (!accepted.isEmpty()) {
+                unanchoredAccepts[id] = accepted.stream().mapToInt(Integer::intValue).toArray();
+                unanchored.accept[id] = true;
+            }
+        }
+    }
+
+    // номера шаблонов, которым соответствует вся строка
+    public int[] matchAll(CharSequence str) {
+        int st = 0;
+        for (int i = 0, len = str.length(); i < len; i++) {
+            st = anchored.next(st, anchored.alphabet.classOf(str.charAt(i)));
+            if (st == DFATable.DEAD) return new int[0];
+        }
+        return anchoredAccepts[st] == null ? new int[0] : anchoredAccepts[st].clone();
+    }
+
+    // Один проход: для каждого шаблона конец самого раннего совпадения, -1 — не встретился
+    public int[] searchEnds(CharSequence str) {
+        int[] ends = new int[patternCount];
+        Arrays.fill(ends, -1);
+        int[] next = unanchored.next;
+        char[][] blocks = unanchored.alphabet.blocks;
+        int classCount = unanchored.classCount;
+
+        int remaining = record(ends, unanchoredAccepts[0], 0, patternCount);
+        int st = 0;
+        for (int i = 0, len = str.length(); i < len && remaining > 0; i++) {
+            char c = str.charAt(i);
+            st = next[st * classCount + blocks[c >>> 8][c & 0xFF]];
+            if (unanchoredAccepts[st] != null) remaining = record(ends, unanchoredAccepts[st], i + 1, remaining);
+        }
+        return ends;
+    }
+
+    private static int record(int[] ends, int[] accepted, int pos, int remaining) {
+        if (accepted == null) return remaining;
+        for (int id : accepted) {
+            if (ends[id] < 0) {
+                ends[id] = pos;
+                remaining--;
+            }
+        }
+        return remaining;
+    }
+
+    public int patternCount() {
+        return patternCount;
+    }
+
+    public int stateCount() {
+        return unanchored.stateCount();
+    }
+}
@@ -0,0 +1,136 @@
+package lab2at.dfa;
+
+import java.util.*;
+
+// matchPrefix, которому вход подается кусками: поток разбирается на идущие подряд совпадения.
+// Между вызовами feed хранятся только id ДКА, состояние, стек вызовов групп и смещения групп,
+// уже прочитанные символы не запоминаются
+public final class StreamRunner {
+    @FunctionalInterface
+    public interface MatchSink {
+        void onMatch(long start, long end);
+    }
+
+    private final List<DFATable> tables;
+    private final int mainId;
+    private final MatchSink sink;
+
+    private int dfa, st;
+    private int depth; // глубина стека вызовов групп
+    private int[] frameDfa = new int[4], frameRet = new int[4], frameGroup = new int[4];
+    private final long[] groupStart, groupEnd; // по id ДКА группы, -1 — группа не закончилась
+    private long matchStart, pos;
+    private boolean failed, finished;
+
+    public StreamRunner(List<DFATable> tables, int mainId, MatchSink sink) {
+        this.tables = tables;
+        this.mainId = mainId;
+        this.sink = sink;
+        this.groupStart = new long[tables.size()];
+        this.groupEnd = new long[tables.size()];
+        reset();
+    }
+
+    public void reset() {
+        pos = 0;
+        failed = finished = false;
+        restart();
+    }
+
+    public void feed(char[] buf, int off, int len) {
+        if (finished)
+            throw new IllegalStateException("Stream already finished");
+        for (int i = off, end = off + len; i < end && !failed; i++) step(buf[i]);
+    }
+
+    // конец потока: дописываем последнее совпадение; false — поток не разбирается на совпадения
+    public boolean finish() {
+        if (!finished && !failed) {
+            while (epsilon(tables.get(dfa))) ;
+            if (tables.get(dfa).accept[st]) emit();
+            else failed = true;
+        }
+        finished = true;
+        return !failed;
+    }
+
+    public boolean failed() {
+        return failed;
+    }
+
+    // сколько символов прочитано; после неудачи — где разбор остановился
+    public long position() {
+        return pos;
+    }
+
+    // смещения группы в текущем совпадении (действительны внутри onMatch), -1 — группа не совпала
+    public long groupStart(int dfaId) {
+        return groupEnd[dfaId] < 0 ? -1 : groupStart[dfaId];
+    }
+
+    public long groupEnd(int dfaId) {
+        return groupEnd[dfaId];
+    }
+
+    private void step(char c) {
+        while (true) {
+            DFATable t = tables.get(dfa);
+            int to = t.next[st * t.classCount + t.alphabet.classOf(c)];
+            if (to != DFATable.DEAD) {
+                st = to;
+                pos++;
+                return;
+            }
+            if (epsilon(t)) continue;
+            // как в matchPrefix: дальше не пройти — совпадение закончилось здесь или его нет;
+            // пустое совпадение не продвигает разбор, это тоже неудача
+            if (!t.accept[st] || pos == matchStart) {
+                failed = true;
+                return;
+            }
+            emit();
+        }
+    }
+
+    // переход без символа: вызов группы или возврат из нее, порядок как в matchPrefix
+    private boolean epsilon(DFATable t) {
+        int subId = t.groupDfa[st];
+        if (subId != DFATable.NO_GROUP) {
+            if (depth == frameDfa.length) {
+                frameDfa = Arrays.copyOf(frameDfa, depth * 2);
+                frameRet = Arrays.copyOf(frameRet, depth * 2);
+                frameGroup = Arrays.copyOf(frameGroup, depth * 2);
+            }
+            frameDfa[depth] = dfa;
+            frameRet[depth] = t.groupRet[st];
+            frameGroup[depth++] = subId;
+            groupStart[subId] = pos;
+            groupEnd[subId] = -1;
+            dfa = subId;
+            st = 0;
+            return true;
+        }
+        if (t.accept[st] && depth > 0) {
+            depth--;
+            groupEnd[frameGroup[depth]] = pos;
+            dfa = frameDfa[depth];
+            st = frameRet[depth];
+            return true;
+        }
+        return false;
+    }
+
+    private void emit() {
+        sink.onMatch(matchStart, pos);
+        restart();
+    }
+
+    private void restart() {
+        dfa = mainId;
+        st = 0;
+        depth = 0;
+        matchStart = pos;
+        Arrays.fill(groupStart, -1);
+        Arrays.fill(groupEnd, -1);
+    }
+}
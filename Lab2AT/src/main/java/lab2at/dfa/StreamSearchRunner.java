@@ -0,0 +1,111 @@
+package lab2at.dfa;
+
+import java.util.Arrays;
+
+// Неякорный поиск в потоке, который приходит кусками: совпадения leftmost-longest без пересечений, как у Matcher.
+// Автомат — DFAOperations.unanchoredStarts (неякорный ДКА и регистр начала у каждого потока), между
+// вызовами feed хранятся состояние, регистры и последнее совпадение. Совпадение окончательно, когда автомат
+// умирает; следующий поиск начинается с конца совпадения, поэтому символы после него буферизуются, пока
+// автомат жив, и читаются повторно. Без совпадения буфер пуст
+public final class StreamSearchRunner {
+    private final TaggedDFA dfa;
+    private final StreamRunner.MatchSink sink;
+    private final long[] regs; // позиции — long: поток не ограничен 2^31 символами
+
+    private int st;
+    private long pos; // позиция автомата, при повторном чтении меньше read
+    private long read; // сколько символов прочитано
+    private char[] buf = new char[16]; // символы [bufStart, read), которые еще могут понадобиться
+    private long bufStart;
+    private long matchStart, matchEnd; // последнее совпадение текущего поиска, -1 — его нет
+    private boolean finished;
+
+    public StreamSearchRunner(TaggedDFA dfa, StreamRunner.MatchSink sink) {
+        this.dfa = dfa;
+        this.sink = sink;
+        this.regs = new long[dfa.registerCount];
+        reset();
+    }
+
+    public void reset() {
+        pos = read = bufStart = 0;
+        finished = false;
+        restart();
+    }
+
+    public void feed(char[] chars, int off, int len) {
+        if (finished)
+            throw new IllegalStateException("Stream already finished");
+        for (int i = off, end = off + len; i < end; i++) {
+            push(chars[i]);
+            run();
+        }
+    }
+
+    // конец потока: дописываем последнее совпадение и ищем дальше по буферу, как Matcher
+    public void finish() {
+        if (finished) return;
+        while (matchEnd >= 0) {
+            sink.onMatch(matchStart, matchEnd);
+            if (!resume()) break;
+            run();
+        }
+        finished = true;
+    }
+
+    // сколько символов прочитано
+    public long position() {
+        return read;
+    }
+
+    private void run() {
+        while (pos < read) {
+            char c = buf[(int) (pos - bufStart)];
+            int idx = st * dfa.classCount + dfa.alphabet.classOf(c);
+            if (dfa.next[idx] == DFATable.DEAD) {
+                // потоков не осталось — последнее совпадение окончательное (без совпадения
+                // неякорный автомат не умирает: каждый символ запускает новый поток)
+                sink.onMatch(matchStart, matchEnd);
+                resume();
+                continue;
+            }
+            st = dfa.next[idx];
+            for (int j = dfa.opStart[idx], end = dfa.opStart[idx + 1]; j < end; j++) {
+                int src = dfa.ops[2 * j + 1];
+                regs[dfa.ops[2 * j]] = src == TaggedDFA.CURRENT ? pos : regs[src];
+            }
+            pos++;
+            int[] tags = dfa.finalTags[st];
+            if (tags != null) {
+                matchStart = regs[tags[0]] + 1;
+                matchEnd = pos;
+            }
+        }
+    }
+
+    // следующий поиск — с конца совпадения, после пустого — символом дальше; false — поток кончился
+    private boolean resume() {
+        pos = matchStart == matchEnd ? matchEnd + 1 : matchEnd;
+        if (pos > read) return false;
+        restart();
+        return true;
+    }
+
+    private void restart() {
+        st = 0;
+        Arrays.fill(regs, pos - 1); // стартовый поток начинается здесь
+        matchStart = matchEnd = dfa.finalTags[0] == null ? -1 : pos; // шаблон принимает пустую строку
+    }
+
+    private void push(char c) {
+        if (read - bufStart == buf.length) {
+            // до конца совпадения (или до автомата, если совпадения нет) символы больше не читаются
+            long keep = Math.min(pos, matchEnd >= 0 ? matchEnd : pos);
+            int drop = (int) (keep - bufStart);
+            System.arraycopy(buf, drop, buf, 0, buf.length - drop);
+            bufStart = keep;
+            if (read - bufStart == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        buf[(int) (read++ - bufStart)] = c;
+    }
+}
@@ -0,0 +1,319 @@
+package lab2at.dfa;
+
+import lab2at.ast.CharClass;
+import lab2at.ast.Node;
+import lab2at.ast.NodeType;
+
+import java.util.*;
+
+// Построение TaggedDFA (Лаурикари). Позиции Глушкова, как в DFACompiler, но first и followpos —
+// упорядоченные по приоритету списки (левая альтернатива, повтор раньше выхода), у каждого ребра —
+// теги, которые оно пересекает; выход из подвыражения — ребро EXIT на своем месте в списке. Группы подставляются, вызов группы g оборачивается тегами 2g и 2g + 1.
+// Состояние ДКА — упорядоченный список позиций, у каждой свой регистр на каждый тег. Из совпадений
+// одной длины выигрывает поток с наибольшим приоритетом, как у сопоставления с возвратом
+public final class TaggedCompiler {
+    public static final int MAX_STATES = 1 << 14;
+
+    private static final int NEW = -1; // источник — позиция текущего перехода
+    private static final int EXIT = -1; // ребро наружу из подвыражения
+    private static final int[] NO_TAGS = new int[0];
+
+    private final Map<String, Node> groupDefs;
+    private final Map<String, Integer> groupIndex = new HashMap<>();
+    private final List<String> posToSet = new ArrayList<>(); // пары lo, hi как у CLASS; 0 — псевдопозиция перед началом
+    private final List<List<Edge>> follow = new ArrayList<>();
+    private final Set<String> open = new HashSet<>();
+
+    // ребро в позицию pos или EXIT — выход из текущего подвыражения; tags — пересекаемые теги
+    private record Edge(int pos, int[] tags) {}
+
+    // first — куда можно войти (EXIT — пустой путь на своем месте по приоритету),
+    // last — позиции, в followpos которых есть EXIT
+    private record Frag(List<Edge> first, List<Integer> last) {}
+
+    private TaggedCompiler(Map<String, Node> groupDefs, List<String> groupNames) {
+        this.groupDefs = groupDefs;
+        for (String name : groupNames) groupIndex.put(name, groupIndex.size());
+        posToSet.add(null);
+        follow.add(new ArrayList<>());
+    }
+
+    // root — дерево с вызовами групп (как RegexLib.getMainRoot), groupNames задает номера групп
+    public static TaggedDFA compile(Node root, Map<String, Node> groupDefs, List<String> groupNames) {
+        TaggedCompiler c = new TaggedCompiler(groupDefs, groupNames);
+        c.follow.set(0, c.build(root).first);
+        return c.determinize(groupNames);
+    }
+
+    private Frag build(Node n) {
+        switch (n.type) {
+            case LITERAL, CLASS -> {
+                int p = posToSet.size();
+                posToSet.add(n.type == NodeType.CLASS ? n.text : n.text.substring(0, 1).repeat(2));
+                follow.add(new ArrayList<>(List.of(new Edge(EXIT, NO_TAGS))));
+                return new Frag(List.of(new Edge(p, NO_TAGS)), List.of(p));
+            }
+            case NULL_REPEAT -> {
+                return new Frag(List.of(new Edge(EXIT, NO_TAGS)), List.of());
+            }
+            case REPEAT -> {
+                return build(DFAOperations.expandRepeats(n)); // регистрам нужны позиции каждой копии
+            }
+            case GROUP_DEF -> {
+                return group(n.text, n.left);
+            }
+            case GROUP_CALL -> {
+                Node body = groupDefs.get(n.text);
+                if (body == null)
+                    throw new IllegalArgumentException("Unknown group: " + n.text);
+                return group(n.text, body);
+            }
+            case CONCAT -> {
+                Frag a = build(n.left);
+                Frag b = build(n.right);
+                boolean bNullable = hasExit(b.first);
+                List<Integer> last = new ArrayList<>(b.last);
+                for (int p : a.last) {
+                    follow.set(p, substitute(follow.get(p), b.first));
+                    if (bNullable) last.add(p);
+                }
+                return new Frag(substitute(a.first, b.first), last);
+            }
+            case OR -> {
+                Frag a = build(n.left);
+                Frag b = build(n.right);
+                List<Edge> first = new ArrayList<>(a.first);
+                first.addAll(b.first);
+                List<Integer> last = new ArrayList<>(a.last);
+                last.addAll(b.last);
+                return new Frag(dedupe(first), last);
+            }
+            case KLEENE -> {
+                // жадно: новый круг приоритетнее выхода; пустой круг не нужен
+                Frag a = build(n.left);
+                List<Edge> loop = new ArrayList<>();
+                for (Edge e : a.first) if (e.pos != EXIT) loop.add(e);
+                loop.add(new Edge(EXIT, NO_TAGS));
+                for (int p : a.last) follow.set(p, substitute(follow.get(p), loop));
+                return new Frag(loop, a.last);
+            }
+            case OPTIONAL -> {
+                Frag a = build(n.left);
+                List<Edge> first = new ArrayList<>(a.first);
+                first.add(new Edge(EXIT, NO_TAGS));
+                return new Frag(dedupe(first), a.last);
+            }
+            default -> throw new IllegalArgumentException("Unsupported node in tagged mode: " + n.type);
+        }
+    }
+
+    private Frag group(String name, Node body) {
+        Integer g = groupIndex.get(name);
+        if (g == null)
+            throw new IllegalArgumentException("Unknown group: " + name);
+        if (!open.add(name))
+            throw new IllegalStateException("Recursive group: " + name);
+        Frag a = build(body);
+        open.remove(name);
+
+        List<Edge> close = List.of(new Edge(EXIT, new int[]{2 * g + 1}));
+        for (int p : a.last) follow.set(p, substitute(follow.get(p), close));
+        List<Edge> first = new ArrayList<>();
+        for (Edge e : substitute(a.first, close)) first.add(new Edge(e.pos, concat(new int[]{2 * g}, e.tags)));
+        return new Frag(first, a.last);
+    }
+
+    // EXIT в edges заменяется на next (с тегами пути до EXIT впереди)
+    private static List<Edge> substitute(List<Edge> edges, List<Edge> next) {
+        List<Edge> res = new ArrayList<>();
+        for (Edge e : edges) {
+            if (e.pos != EXIT) {
+                res.add(e);
+                continue;
+            }
+            for (Edge q : next) res.add(new Edge(q.pos, concat(e.tags, q.tags)));
+        }
+        return dedupe(res);
+    }
+
+    // из ребер в одну позицию (и из нескольких EXIT) остается первое — оно приоритетнее
+    private static List<Edge> dedupe(List<Edge> edges) {
+        Set<Integer> seen = new HashSet<>();
+        List<Edge> res = new ArrayList<>();
+        for (Edge e : edges) if (seen.add(e.pos)) res.add(e);
+        return res;
+    }
+
+    private static boolean hasExit(List<Edge> edges) {
+        for (Edge e : edges) if (e.pos == EXIT) return true;
+        return false;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+        int[] r = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
+
+    // состояние: позиции по приоритету и регистры regs[item][tag]
+    private record State(int[] positions, int[][] regs) {}
+
+    private TaggedDFA determinize(List<String> groupNames) {
+        int tagCount = 2 * groupNames.size();
+        List<char[]> sets = new ArrayList<>();
+        for (int p = 1; p < posToSet.size(); p++) sets.add(CharClass.ranges(posToSet.get(p)));
+        Alphabet alphabet = Alphabet.partition(sets);
+        int k = alphabet.size();
+        BitSet[] posClasses = new BitSet[posToSet.size()];
+        for (int p = 1; p < posToSet.size(); p++) {
+            posClasses[p] = new BitSet();
+            for (int cls = 1; cls < k; cls++)
+                if (CharClass.contains(posToSet.get(p), alphabet.ranges(cls)[0])) posClasses[p].set(cls);
+        }
+
+        // в старте все теги в своих регистрах, перед проходом их заполняют -1
+        int[][] startRegs = new int[1][tagCount];
+        for (int t = 0; t < tagCount; t++) startRegs[0][t] = t;
+        List<State> states = new ArrayList<>();
+        Map<List<Integer>, List<Integer>> byPositions = new HashMap<>(); // кандидаты для отображения регистров
+        states.add(new State(new int[]{0}, startRegs));
+        byPositions.computeIfAbsent(List.of(0), x -> new ArrayList<>()).add(0);
+
+        int registerCount = tagCount;
+        List<Integer> next = new ArrayList<>();
+        List<Integer> opStart = new ArrayList<>();
+        List<Integer> ops = new ArrayList<>();
+        for (int s = 0; s < states.size(); s++) {
+            State cur = states.get(s);
+            for (int cls = 0; cls < k; cls++) {
+                opStart.add(ops.size() / 2);
+                // потоки в порядке приоритета: позиция, откуда берется каждый тег
+                List<Integer> positions = new ArrayList<>();
+                List<int[]> sources = new ArrayList<>();
+                BitSet seen = new BitSet();
+                for (int item = 0; item < cur.positions.length && cls != 0; item++) {
+                    for (Edge e : follow.get(cur.positions[item])) {
+                        if (e.pos == EXIT || !posClasses[e.pos].get(cls) || seen.get(e.pos)) continue;
+                        seen.set(e.pos);
+                        int[] src = cur.regs[item].clone();
+                        for (int t : e.tags) src[t] = NEW;
+                        positions.add(e.pos);
+                        sources.add(src);
+                    }
+                }
+                if (positions.isEmpty()) {
+                    next.add(DFATable.DEAD);
+                    continue;
+                }
+
+                Map<Integer, Integer> mapping = null;
+                int target = -1;
+                for (int id : byPositions.getOrDefault(positions, List.of())) {
+                    mapping = mapRegisters(sources, states.get(id).regs);
+                    if (mapping != null) {
+                        target = id;
+                        break;
+                    }
+                }
+                if (mapping == null) { // новое состояние: старые регистры остаются на месте, NEW — в свободный
+                    Set<Integer> used = new HashSet<>();
+                    for (int[] src : sources) for (int r : src) if (r != NEW) used.add(r);
+                    int fresh = 0;
+                    while (used.contains(fresh)) fresh++;
+                    registerCount = Math.max(registerCount, fresh + 1);
+                    int[][] regs = new int[sources.size()][];
+                    for (int item = 0; item < regs.length; item++) {
+                        regs[item] = sources.get(item).clone();
+                        for (int t = 0; t < tagCount; t++) if (regs[item][t] == NEW) regs[item][t] = fresh;
+                    }
+                    target = states.size();
+                    if (target >= MAX_STATES)
+                        throw new IllegalArgumentException("Tagged DFA has more than " + MAX_STATES + " states");
+                    states.add(new State(positions.stream().mapToInt(Integer::intValue).toArray(), regs));
+                    byPositions.computeIfAbsent(positions, x -> new ArrayList<>()).add(target);
+                    mapping = mapRegisters(sources, regs);
+                }
+                next.add(target);
+                sequence(mapping, ops);
+            }
+        }
+        opStart.add(ops.size() / 2);
+
+        // ops могли сослаться на временный регистр registerCount
+        int maxReg = registerCount - 1;
+        for (int j = 0; j < ops.size(); j++) if (ops.get(j) != TaggedDFA.CURRENT) maxReg = Math.max(maxReg, ops.get(j));
+
+        int[][] finalTags = new int[states.size()][];
+        for (int s = 0; s < states.size(); s++) {
+            State st = states.get(s);
+            for (int item = 0; item < st.positions.length; item++) {
+                Edge exit = null;
+                for (Edge e : follow.get(st.positions[item])) if (e.pos == EXIT) exit = e;
+                if (exit == null) continue;
+                int[] tags = st.regs[item].clone();
+                for (int t : exit.tags) tags[t] = TaggedDFA.CURRENT;
+                finalTags[s] = tags;
+                break; // самый приоритетный принимающий поток
+            }
+        }
+        return new TaggedDFA(alphabet, toArray(next), toArray(opStart), toArray(ops), finalTags,
+                maxReg + 1, groupNames);
+    }
+
+    // src -> dst, если регистры потоков переводятся друг в друга взаимно однозначно, иначе null
+    private static Map<Integer, Integer> mapRegisters(List<int[]> sources, int[][] regs) {
+        Map<Integer, Integer> forward = new HashMap<>();
+        Map<Integer, Integer> backward = new HashMap<>();
+        for (int item = 0; item < regs.length; item++) {
+            int[] src = sources.get(item);
+            for (int t = 0; t < src.length; t++) {
+                Integer d = forward.putIfAbsent(src[t], regs[item][t]);
+                if (d != null && d != regs[item][t]) return null;
+                Integer s = backward.putIfAbsent(regs[item][t], src[t]);
+                if (s != null && s != src[t]) return null;
+            }
+        }
+        return forward;
+    }
+
+    // Параллельное присваивание в последовательность: копия ждет, пока ее dst кто-то читает,
+    // цикл разрываем временным регистром; запись позиции — в конце, она ничего не читает
+    private static void sequence(Map<Integer, Integer> mapping, List<Integer> ops) {
+        Map<Integer, Integer> copies = new LinkedHashMap<>(); // dst -> src
+        List<Integer> sets = new ArrayList<>();
+        int tmp = 0;
+        for (var e : mapping.entrySet()) {
+            if (e.getKey() == NEW) sets.add(e.getValue());
+            else if (!e.getKey().equals(e.getValue())) copies.put(e.getValue(), e.getKey());
+            tmp = Math.max(tmp, Math.max(e.getKey(), e.getValue()) + 1);
+        }
+        while (!copies.isEmpty()) {
+            Integer ready = null;
+            for (int dst : copies.keySet()) {
+                if (!copies.containsValue(dst)) {
+                    ready = dst;
+                    break;
+                }
+            }
+            if (ready == null) { // только циклы: сохраняем dst одной копии во временный регистр
+                int dst = copies.keySet().iterator().next();
+                ops.add(tmp);
+                ops.add(dst);
+                for (var e : copies.entrySet()) if (e.getValue() == dst) e.setValue(tmp);
+                continue;
+            }
+            ops.add(ready);
+            ops.add(copies.remove(ready));
+        }
+        for (int dst : sets) {
+            ops.add(dst);
+            ops.add(TaggedDFA.CURRENT);
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
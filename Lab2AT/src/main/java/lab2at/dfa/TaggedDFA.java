@@ -0,0 +1,112 @@
+package lab2at.dfa;
+
+import java.util.Arrays;
+import java.util.List;
+
+// ДКА с тегами (TaggedCompiler): границы групп — теги на переходах одного плоского автомата.
+// На переходе выполняются операции над регистрами (dst = позиция или dst = src), в принимающем
+// состоянии значения тегов берутся из регистров. Группа g — теги 2g (начало) и 2g + 1 (конец)
+public final class TaggedDFA {
+    static final int CURRENT = -1; // источник операции / финального тега — текущая позиция
+
+    final Alphabet alphabet;
+    final int classCount;
+    final int[] next; // next[state * classCount + cls], DEAD — перехода нет
+    final int[] opStart; // операции перехода idx — пары ops[2j], ops[2j + 1] для j из [opStart[idx], opStart[idx + 1])
+    final int[] ops; // (dst, src), src = CURRENT — записать позицию
+    final int[][] finalTags; // для принимающего состояния: регистр каждого тега или CURRENT, иначе null
+    final int registerCount;
+    private final List<String> groupNames;
+
+    TaggedDFA(Alphabet alphabet, int[] next, int[] opStart, int[] ops, int[][] finalTags,
+              int registerCount, List<String> groupNames) {
+        this.alphabet = alphabet;
+        this.classCount = alphabet.size();
+        this.next = next;
+        this.opStart = opStart;
+        this.ops = ops;
+        this.finalTags = finalTags;
+        this.registerCount = registerCount;
+        this.groupNames = List.copyOf(groupNames);
+    }
+
+    // Самое длинное совпадение с from за один проход: длина или -1.
+    // captures[2g], captures[2g + 1] — [начало, конец) группы g в str, -1 — группа не совпала.
+    // regs — рабочие регистры длины не меньше registerCount(); ничего не выделяет
+    public int matchPrefix(CharSequence str, int from, int[] regs, int[] captures) {
+        return matchPrefix(str, from, str.length(), regs, captures);
+    }
+
+    // самое длинное совпадение внутри [from, to): символы с to не читаются
+    public int matchPrefix(CharSequence str, int from, int to, int[] regs, int[] captures) {
+        int[] next = this.next;
+        int[] opStart = this.opStart;
+        int[] ops = this.ops;
+        char[][] blocks = alphabet.blocks;
+        int classCount = this.classCount;
+        Arrays.fill(regs, 0, registerCount, -1);
+
+        int length = -1;
+        if (finalTags[0] != null) {
+            length = 0;
+            capture(finalTags[0], regs, from, captures);
+        }
+        int st = 0;
+        for (int i = from; i < to; i++) {
+            char c = str.charAt(i);
+            int idx = st * classCount + blocks[c >>> 8][c & 0xFF];
+            st = next[idx];
+            if (st == DFATable.DEAD) break;
+            for (int j = opStart[idx], end = opStart[idx + 1]; j < end; j++) {
+                int src = ops[2 * j + 1];
+                regs[ops[2 * j]] = src == CURRENT ? i : regs[src];
+            }
+            if (finalTags[st] != null) {
+                length = i + 1 - from;
+                capture(finalTags[st], regs, i + 1, captures);
+            }
+        }
+        return length;
+    }
+
+    private static void capture(int[] tags, int[] regs, int pos, int[] captures) {
+        for (int t = 0; t < tags.length; t++) captures[t] = tags[t] == CURRENT ? pos : regs[tags[t]];
+    }
+
+    // таблицы в открытом виде (MatcherSourceGenerator), как у DFATable
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    public int next(int state, int cls) {
+        return next[state * classCount + cls];
+    }
+
+    // операции перехода парами (dst, src), src = -1 — записать текущую позицию
+    public int[] ops(int state, int cls) {
+        int idx = state * classCount + cls;
+        return Arrays.copyOfRange(ops, 2 * opStart[idx], 2 * opStart[idx + 1]);
+    }
+
+    // регистр каждого тега в принимающем состоянии (-1 — текущая позиция), null — состояние не принимает
+    public int[] finalTags(int state) {
+        return finalTags[state] == null ? null : finalTags[state].clone();
+    }
+
+    public List<String> groupNames() {
+        return groupNames;
+    }
+
+    // длина массива captures для matchPrefix
+    public int captureCount() {
+        return 2 * groupNames.size();
+    }
+
+    public int registerCount() {
+        return registerCount;
+    }
+
+    public int stateCount() {
+        return finalTags.length;
+    }
+}
@@ -1,70 +1,135 @@
 package lab2at.dfa;
 
-import lab2at.ast.Node;
+import lab2at.ast.Arena;
 
-import java.util.BitSet;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+// nullable, first, last и followpos по дереву-массиву. followpos позиции — список общих множеств first,
+// а не их объединение: одно first(right) у CONCAT или first у KLEENE хранится один раз на все позиции last
 public final class TreeAnalyzer {
-    private final List<BitSet> followPos;
+    private final Arena tree;
+    private final List<List<PosSet>> followPos;
+    private final Map<Integer, List<PosSet>> bodyFollow; // для REPEAT: followpos last(тела) внутри тела, null — REPEAT запрещен
+    private final boolean[] nullable;
+    private final PosSet[] first, last; // после разбора остаются у корня и REPEAT, у остальных забирает родитель
+    private boolean keepSets;
 
-    public TreeAnalyzer(List<BitSet> followPos) {
+    public TreeAnalyzer(Arena tree, List<List<PosSet>> followPos) {
+        this(tree, followPos, null);
+    }
+
+    public TreeAnalyzer(Arena tree, List<List<PosSet>> followPos, Map<Integer, List<PosSet>> bodyFollow) {
+        this.tree = tree;
         this.followPos = followPos;
+        this.bodyFollow = bodyFollow;
+        this.nullable = new boolean[tree.size()];
+        this.first = new PosSet[tree.size()];
+        this.last = new PosSet[tree.size()];
+    }
+
+    public void analyze() {
+        for (int i = 0; i < tree.size(); i++) visit(i); // дети разобраны раньше родителя
+    }
+
+    // для отладки (GraphVizRenderer): родитель копирует множества детей, first и last остаются у каждого узла
+    public void analyzeKeepingSets() {
+        keepSets = true;
+        analyze();
+    }
+
+    public boolean nullable(int node) {
+        return nullable[node];
+    }
+
+    public PosSet first(int node) {
+        return first[node];
+    }
+
+    public PosSet last(int node) {
+        return last[node];
+    }
+
+    // Множество ребенка после разбора родителя больше не нужно: родитель забирает его себе и дописывает
+    // вместо копирования. Общее множество (на него ссылается followpos или счетчик REPEAT) копируется
+    private PosSet takeFirst(int child) {
+        PosSet set = first[child];
+        if (keepSets || set.isShared()) return set.copy();
+        first[child] = null;
+        return set;
     }
 
-    public void analyze(Node n) {
-        if (n.left  != null) analyze(n.left);
-        if (n.right != null) analyze(n.right);
+    private PosSet takeLast(int child) {
+        PosSet set = last[child];
+        if (keepSets || set.isShared()) return set.copy();
+        last[child] = null;
+        return set;
+    }
+
+    private void follow(PosSet from, PosSet to) {
+        if (to.isEmpty()) return;
+        to.share();
+        for (int i = 0; i < from.size(); i++) followPos.get(from.get(i)).add(to);
+    }
 
-        switch (n.type) {
-            case LITERAL, GROUP_CALL -> {
-                n.nullable = false;
-                n.first.set(n.pos);
-                n.last.set(n.pos);
+    private void visit(int n) {
+        int l = tree.left[n], r = tree.right[n];
+        switch (tree.type(n)) {
+            case LITERAL, CLASS, GROUP_CALL, END -> {
+                nullable[n] = false;
+                first[n] = PosSet.of(tree.pos[n]);
+                last[n] = PosSet.of(tree.pos[n]);
             }
             case NULL_REPEAT -> {
-                n.nullable = true;
+                nullable[n] = true;
+                first[n] = PosSet.empty();
+                last[n] = PosSet.empty();
             }
             case CONCAT -> {
-                n.nullable = n.left.nullable && n.right.nullable;
+                nullable[n] = nullable[l] && nullable[r];
 
-                if (n.left.nullable) { // если левая nullable, то берем из левой и правой
-                    n.first.or(n.left.first);
-                    n.first.or(n.right.first);
-                } else {
-                    n.first.or(n.left.first);
-                }
-
-                if (n.right.nullable) { // аналогично
-                    n.last.or(n.left.last);
-                    n.last.or(n.right.last);
-                } else {
-                    n.last.or(n.right.last);
-                }
+                // для каждой позиции last(left) добавляем first(right) — пока множества детей не тронуты
+                follow(last[l], first[r]);
 
-                // для каждой позиции last(left) добавляем first(right)
-                for (int p = n.left.last.nextSetBit(0); p >= 0; p = n.left.last.nextSetBit(p+1))
-                    followPos.get(p).or(n.right.first);
+                // позиции right больше позиций left, объединение дописывает right в конец
+                first[n] = takeFirst(l);
+                if (nullable[l]) first[n].addAll(first[r]); // если левая nullable, то берем из левой и правой
+                if (nullable[r]) last[n] = takeLast(l).addAll(last[r]); // аналогично
+                else last[n] = takeLast(r);
             }
             case OR -> {
-                n.nullable = n.left.nullable || n.right.nullable;
-                n.first.or(n.left.first); n.first.or(n.right.first); // first = first(left) v first(right)
-                n.last.or(n.left.last); n.last.or(n.right.last); // last = last(left) v last(right)
+                nullable[n] = nullable[l] || nullable[r];
+                first[n] = takeFirst(l).addAll(first[r]); // first = first(left) v first(right)
+                last[n] = takeLast(l).addAll(last[r]); // last = last(left) v last(right)
             }
             case KLEENE -> {
-                n.nullable = true;
-                n.first.or(n.left.first); // как у ребенка
-                n.last.or(n.left.last); // как у ребенка
+                nullable[n] = true;
+                first[n] = takeFirst(l); // как у ребенка
+                last[n] = takeLast(l); // как у ребенка
                 // для каждой позиции last(left) добавляем весь first(left)
-                for (int p = n.last.nextSetBit(0); p >= 0; p = n.last.nextSetBit(p+1))
-                    followPos.get(p).or(n.first);
+                follow(last[n], first[n]);
             }
             case OPTIONAL -> {
-                n.nullable = true;
-                n.first.or(n.left.first); // как у ребенка
-                n.last.or(n.left.last); // как у ребенка
+                nullable[n] = true;
+                first[n] = takeFirst(l); // как у ребенка
+                last[n] = takeLast(l); // как у ребенка
+            }
+            case REPEAT -> {
+                if (bodyFollow == null)
+                    throw new IllegalStateException("Counted repeat is not supported here, expand it first");
+                nullable[n] = nullable[l] || tree.repeatMin(n) == 0;
+                first[n] = takeFirst(l).share(); // нужен счетчику копий после разбора
+                last[n] = takeLast(l).share();
+                // переходы между копиями тела дает счетчик. Внутренний followpos last(тела) откладываем,
+                // и выше в followPos попадут только выходы из повтора
+                for (int i = 0; i < last[n].size(); i++) {
+                    int p = last[n].get(i);
+                    bodyFollow.put(p, followPos.get(p));
+                    followPos.set(p, new ArrayList<>(1));
+                }
             }
-            default -> throw new IllegalStateException("Unsupported node: " + n.type);
+            default -> throw new IllegalStateException("Unsupported node: " + tree.type(n));
         }
     }
 }
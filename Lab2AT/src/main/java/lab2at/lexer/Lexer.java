@@ -1,5 +1,7 @@
 package lab2at.lexer;
 
+import lab2at.ast.CharClass;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,6 +28,7 @@ public final class Lexer {
             }
 
             switch (c) {
+                case '.' -> { tokens.add(new Token(TokenType.CLASS, CharClass.ANY)); i++; }
                 case '|' -> { tokens.add(new Token(TokenType.OR, null)); i++; }
                 case '?' -> { tokens.add(new Token(TokenType.QUESTION, null)); i++; }
                 case '(' -> { tokens.add(new Token(TokenType.LPAREN, null)); i++; }
@@ -40,6 +43,16 @@ public final class Lexer {
                         num.append(src.charAt(j));
                         j++;
                     }
+                    if (j < n && src.charAt(j) == ',') { // {n,m}
+                        num.append(',');
+                        j++;
+                        if (j >= n || !Character.isDigit(src.charAt(j)))
+                            throw new IllegalArgumentException("Digit expected after ','");
+                        while (j < n && Character.isDigit(src.charAt(j))) {
+                            num.append(src.charAt(j));
+                            j++;
+                        }
+                    }
                     if (j >= n || src.charAt(j) != '}')
                         throw new IllegalArgumentException("Missing '}' after repeat number");
 
@@ -56,6 +69,7 @@ public final class Lexer {
                     tokens.add(new Token(TokenType.LITERAL, String.valueOf(src.charAt(i+1))));
                     i += 3;  // пропускаем %...%
                 }
+                case '[' -> { tokens.add(readClass()); }
                 case '<' -> { tokens.add(readGroupName()); } //
                 default -> {
                     tokens.add(new Token(
@@ -71,6 +85,44 @@ public final class Lexer {
         return tokens;
     }
 
+    // [a-z0-9], [^...]: диапазоны, '-' в начале или в конце — обычный символ, экранирование как везде — %x%
+    private Token readClass() {
+        i++; // '['
+        boolean negate = i < n && src.charAt(i) == '^';
+        if (negate) i++;
+        List<char[]> ranges = new ArrayList<>();
+        while (i < n && src.charAt(i) != ']') {
+            char lo = readClassChar();
+            char hi = lo;
+            if (i + 1 < n && src.charAt(i) == '-' && src.charAt(i + 1) != ']') {
+                i++;
+                hi = readClassChar();
+                if (hi < lo)
+                    throw new IllegalArgumentException("Invalid range " + lo + "-" + hi + " in class");
+            }
+            ranges.add(new char[]{lo, hi});
+        }
+        if (i >= n)
+            throw new IllegalArgumentException("Missing ']' after character class");
+        i++; // ']'
+        String text = CharClass.normalize(ranges, negate);
+        if (text.isEmpty())
+            throw new IllegalArgumentException("Empty character class");
+        return new Token(TokenType.CLASS, text);
+    }
+
+    private char readClassChar() {
+        char c = src.charAt(i);
+        if (c != '%') {
+            i++;
+            return c;
+        }
+        if (i + 2 >= n || src.charAt(i + 2) != '%')
+            throw new IllegalArgumentException("Invalid using \"%\"");
+        i += 3;
+        return src.charAt(i - 2);
+    }
+
     // group_name или group_ref
     private Token readGroupName() {
         int j = i + 1;
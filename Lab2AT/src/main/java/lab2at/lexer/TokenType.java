@@ -2,6 +2,7 @@ package lab2at.lexer;
 
 public enum TokenType {
     LITERAL,      // любой символ (включая экранированный %x%)
+    CLASS,        // [a-z], [^0-9], . — text в виде CharClass
     OR,           // |
     QUESTION,     // ?
     LBRACE,       // {
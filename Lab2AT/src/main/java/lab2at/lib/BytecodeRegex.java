@@ -0,0 +1,44 @@
+package lab2at.lib;
+
+import lab2at.dfa.BytecodeCompiler;
+import lab2at.dfa.CompiledDFA;
+import lab2at.dfa.DFAOperations;
+import lab2at.dfa.DFATable;
+import lombok.Getter;
+
+// RegexLib, у которого ДКА превращены в байткод скрытого класса (BytecodeCompiler).
+// Группы подставляются как обычные подвыражения. Для горячих шаблонов; большой ДКА не компилируется
+public final class BytecodeRegex {
+    private final CompiledDFA dfa;
+    @Getter
+    private final String pattern;
+
+    private BytecodeRegex(CompiledDFA dfa, String pattern) {
+        this.dfa = dfa;
+        this.pattern = pattern;
+    }
+
+    public static BytecodeRegex compile(String pattern) {
+        return from(RegexLib.compile(pattern));
+    }
+
+    public static BytecodeRegex from(RegexLib lib) {
+        DFATable flat = lib.getFlatTable();
+        // у альтернатив литералов RegexLib ищет Ахо–Корасиком, неякорного и обратного ДКА у нее нет
+        DFATable unanchored = lib.getSearchTable() != null ? lib.getSearchTable() : DFAOperations.unanchored(flat);
+        DFATable reversed = lib.getReverseTable() != null ? lib.getReverseTable() : DFAOperations.reverse(flat);
+        return new BytecodeRegex(BytecodeCompiler.compile(flat, unanchored, reversed), lib.getPattern());
+    }
+
+    public boolean match(String input) {
+        return dfa.matches(input);
+    }
+
+    // самое левое, затем самое длинное совпадение (как RegexLib.search)
+    public String search(String text) {
+        if (text.isEmpty()) return null;
+        int end = dfa.searchEnd(text, 0);
+        if (end < 0) return null;
+        return text.substring(dfa.matchBackward(text, end, 0), end);
+    }
+}
@@ -0,0 +1,54 @@
+package lab2at.lib;
+
+import lab2at.ast.Node;
+import lab2at.dfa.DFACompiler;
+import lab2at.dfa.DFAOperations;
+import lab2at.dfa.LazyDFA;
+import lab2at.lexer.Lexer;
+import lab2at.parser.RegexParser;
+import lombok.Getter;
+
+import java.util.Map;
+
+// Ленивый режим RegexLib: компиляция O(шаблона), ДКА достраивается во время поиска
+// в кэше на cacheStates состояний. Группы подставляются как обычные подвыражения. Не потокобезопасен
+public final class LazyRegex {
+    public static final int DEFAULT_CACHE_STATES = 1024;
+
+    private final LazyDFA dfa;
+    @Getter
+    private final String pattern;
+
+    private LazyRegex(LazyDFA dfa, String pattern) {
+        this.dfa = dfa;
+        this.pattern = pattern;
+    }
+
+    public static LazyRegex compile(String pattern) {
+        return compile(pattern, DEFAULT_CACHE_STATES);
+    }
+
+    public static LazyRegex compile(String pattern, int cacheStates) {
+        RegexParser parser = new RegexParser(new Lexer(pattern).scan());
+        Node ast = parser.parse();
+        Node flat = DFAOperations.inlineGroups(ast, parser.getGroupDefs());
+        return new LazyRegex(new DFACompiler(Map.of()).compileLazy(flat, cacheStates), pattern);
+    }
+
+    public boolean match(String input) {
+        return dfa.matches(input);
+    }
+
+    // самое левое, затем самое длинное совпадение (как RegexLib.search)
+    public String search(String text) {
+        if (text.isEmpty()) return null;
+        int end = dfa.searchEnd(text, 0);
+        if (end < 0) return null;
+        return text.substring(dfa.matchBackward(text, end, 0), end);
+    }
+
+    // попадания, промахи и сбросы кэша состояний
+    public LazyDFA.CacheStats getStats() {
+        return dfa.stats();
+    }
+}
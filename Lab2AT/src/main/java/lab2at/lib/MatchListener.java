@@ -0,0 +1,7 @@
+package lab2at.lib;
+
+// получатель совпадений, найденных без материализации текста: [start, end) — смещения
+@FunctionalInterface
+public interface MatchListener {
+    void onMatch(long start, long end);
+}
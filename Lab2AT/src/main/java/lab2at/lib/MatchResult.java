@@ -2,21 +2,151 @@ package lab2at.lib;
 
 import java.util.*;
 
+// Совпадение как смещения в исходном тексте: строки строятся только при обращении к group.
+// Текст не копируется — у изменяемой CharSequence результат видит ее изменения
 public final class MatchResult implements Iterable<String> {
-    private final Map<String, String> namedGroups;
+    private final CharSequence text;
+    private final List<String> names; // имена групп в порядке пар offsets
+    private final int[] offsets; // [начало, конец) совпадения, затем [начало, конец) каждой группы, -1 — не совпала
+    private final boolean detached; // из готовых строк групп: текста совпадения нет
 
+    MatchResult(CharSequence text, List<String> names, int[] offsets) {
+        this(text, names, offsets, false);
+    }
+
+    // Устарело: результат хранит смещения в тексте. Строки групп склеиваются в один текст,
+    // group() и view() без аргументов недоступны — текста всего совпадения нет
+    @Deprecated
     public MatchResult(Map<String, String> namedGroups) {
-        this.namedGroups = Collections.unmodifiableMap(new LinkedHashMap<>(namedGroups));
+        this(-1, -1, namedGroups);
+    }
+
+    // Устарело, как и конструктор выше; start и end возвращают переданные значения
+    @Deprecated
+    public MatchResult(int start, int end, Map<String, String> namedGroups) {
+        this(detachedText(namedGroups), List.copyOf(namedGroups.keySet()), detachedOffsets(start, end, namedGroups), true);
+    }
+
+    private MatchResult(CharSequence text, List<String> names, int[] offsets, boolean detached) {
+        this.text = text;
+        this.names = names;
+        this.offsets = offsets;
+        this.detached = detached;
+    }
+
+    private static String detachedText(Map<String, String> namedGroups) {
+        StringBuilder sb = new StringBuilder();
+        for (String value : namedGroups.values()) if (value != null) sb.append(value);
+        return sb.toString();
+    }
+
+    // группы — подряд идущие отрезки склеенного текста, в порядке итерации map
+    private static int[] detachedOffsets(int start, int end, Map<String, String> namedGroups) {
+        int[] offsets = new int[2 + 2 * namedGroups.size()];
+        offsets[0] = start;
+        offsets[1] = end;
+        int pos = 0, i = 2;
+        for (String value : namedGroups.values()) {
+            offsets[i++] = value == null ? -1 : pos;
+            if (value != null) pos += value.length();
+            offsets[i++] = value == null ? -1 : pos;
+        }
+        return offsets;
+    }
+
+    // [start, end) — положение совпадения в тексте
+    public int start() {
+        return offsets[0];
+    }
+
+    public int end() {
+        return offsets[1];
+    }
+
+    public String group() {
+        checkAttached();
+        return text.subSequence(offsets[0], offsets[1]).toString();
+    }
+
+    // начало группы в тексте, -1 — группа не участвовала в совпадении
+    public int start(String name) {
+        return offsets[2 + 2 * indexOf(name)];
+    }
+
+    public int end(String name) {
+        return offsets[3 + 2 * indexOf(name)];
     }
 
     public String group(String name) {
-        if (!namedGroups.containsKey(name))
-            throw new IllegalArgumentException("No such group: " + name);
-        return namedGroups.get(name);
+        int g = indexOf(name);
+        int start = offsets[2 + 2 * g];
+        return start < 0 ? null : text.subSequence(start, offsets[3 + 2 * g]).toString();
     }
 
+    // совпадение и группа без копирования символов
+    public CharSequence view() {
+        checkAttached();
+        return new Slice(text, offsets[0], offsets[1]);
+    }
+
+    public CharSequence view(String name) {
+        int g = indexOf(name);
+        int start = offsets[2 + 2 * g];
+        return start < 0 ? null : new Slice(text, start, offsets[3 + 2 * g]);
+    }
+
+    // значения групп в порядке имен
     @Override
     public Iterator<String> iterator() {
-        return namedGroups.values().iterator();
+        return new Iterator<>() {
+            private int g;
+
+            @Override
+            public boolean hasNext() {
+                return g < names.size();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return group(names.get(g++));
+            }
+        };
+    }
+
+    private void checkAttached() {
+        if (detached)
+            throw new UnsupportedOperationException("Match text is not known");
+    }
+
+    private int indexOf(String name) {
+        int g = names.indexOf(name);
+        if (g < 0)
+            throw new IllegalArgumentException("No such group: " + name);
+        return g;
+    }
+
+    private record Slice(CharSequence text, int start, int end) implements CharSequence {
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) throw new IndexOutOfBoundsException(index);
+            return text.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > length() || from > to) throw new IndexOutOfBoundsException();
+            return new Slice(text, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return text.subSequence(start, end).toString();
+        }
     }
-}
\ No newline at end of file
+}
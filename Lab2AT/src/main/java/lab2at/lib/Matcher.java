@@ -0,0 +1,131 @@
+package lab2at.lib;
+
+import lab2at.dfa.DFARunner.PrefixMatch;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Курсор по всем совпадениям в тексте (самое левое, затем самое длинное; без пересечений).
+// find() ничего не выделяет: позиции хранятся в полях и переиспользуются,
+// группы разбираются только при первом обращении к ним
+public final class Matcher {
+    private final RegexLib lib;
+    private CharSequence text;
+    private final int[] span = new int[2];
+    private int from; // откуда ищем следующее совпадение, > length — текст исчерпан
+    private int start = -1, end = -1;
+    private PrefixMatch runnerMatch; // рабочий разбор группового раннера, заводится один раз на курсор
+    private int[] groups; // группы текущего совпадения, как offsets MatchResult
+    private boolean parsed; // группы текущего совпадения уже разобраны
+
+    Matcher(RegexLib lib, CharSequence text) {
+        this.lib = lib;
+        this.text = text;
+    }
+
+    public boolean find() {
+        parsed = false;
+        if (from > text.length() || !lib.locate(text, from, span)) {
+            from = text.length() + 1;
+            start = end = -1;
+            return false;
+        }
+        start = span[0];
+        end = span[1];
+        from = end == start ? end + 1 : end; // пустое совпадение — сдвигаемся, чтобы не зациклиться
+        return true;
+    }
+
+    public Matcher reset() {
+        from = 0;
+        start = end = -1;
+        parsed = false;
+        return this;
+    }
+
+    public Matcher reset(CharSequence text) {
+        this.text = text;
+        return reset();
+    }
+
+    public int start() {
+        checkMatch();
+        return start;
+    }
+
+    public int end() {
+        checkMatch();
+        return end;
+    }
+
+    public CharSequence group() {
+        checkMatch();
+        return text.subSequence(start, end);
+    }
+
+    // начало группы в тексте, -1 — группа не участвовала в совпадении
+    public int start(String name) {
+        int g = groupIndex(name);
+        return groups[2 + 2 * g];
+    }
+
+    public int end(String name) {
+        int g = groupIndex(name);
+        return groups[3 + 2 * g];
+    }
+
+    public CharSequence group(String name) {
+        int s = start(name);
+        return s < 0 ? null : text.subSequence(s, end(name));
+    }
+
+    // снимок текущего совпадения, который переживет следующий find()
+    public MatchResult toMatchResult() {
+        checkMatch();
+        List<String> names = lib.getGroupNames();
+        int[] offsets = new int[2 + 2 * names.size()];
+        offsets[0] = start;
+        offsets[1] = end;
+        for (int g = 0; g < names.size(); g++) {
+            offsets[2 + 2 * g] = start(names.get(g));
+            offsets[3 + 2 * g] = end(names.get(g));
+        }
+        return new MatchResult(text, names, offsets);
+    }
+
+    public Stream<MatchResult> results() {
+        Spliterator<MatchResult> it = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super MatchResult> action) {
+                if (!find()) return false;
+                action.accept(toMatchResult());
+                return true;
+            }
+        };
+        return StreamSupport.stream(it, false);
+    }
+
+    private int groupIndex(String name) {
+        checkMatch();
+        int g = lib.getGroupNames().indexOf(name);
+        if (g < 0)
+            throw new IllegalArgumentException("No such group: " + name);
+        if (!parsed) {
+            if (groups == null) {
+                groups = new int[2 + 2 * lib.getGroupNames().size()];
+                runnerMatch = lib.getRunner().newMatch();
+            }
+            lib.groups(text, start, end, runnerMatch, groups); // ровно [start, end), как в searchWithGroups
+            parsed = true;
+        }
+        return g;
+    }
+
+    private void checkMatch() {
+        if (start < 0)
+            throw new IllegalStateException("No match available");
+    }
+}
@@ -0,0 +1,181 @@
+package lab2at.lib;
+
+import lab2at.dfa.DFARunner;
+import lab2at.dfa.DFATable;
+import lab2at.dfa.MappedText;
+
+import java.util.*;
+
+// Параллельная обработка одного большого входа: вход режется на куски, куски считаются
+// в ForkJoinPool (параллельный стрим), затем результаты сшиваются по порядку
+final class ParallelSearch {
+    private static final long MIN_CHUNK = 1 << 16;
+    private static final int STORED_RESTARTS = 256; // сколько точек рестарта кусок хранит для сшивки
+
+    private ParallelSearch() {}
+
+    // вход в позициях long: строка или отображенный файл
+    interface Source {
+        long length();
+
+        long boundary(long pos); // ближайшее начало символа
+
+        boolean locate(long from, long limit, long[] span); // совпадения с началом >= limit не нужны
+
+        long advance(long pos); // позиция после символа в pos
+
+        int[] runFromAll(DFATable t, long from, long to);
+
+        Source copy(); // свой экземпляр на поток
+    }
+
+    // Вся строка принадлежит языку: каждый кусок прогоняется из всех состояний,
+    // потом отображения состояний сцепляются с настоящим начальным
+    static boolean match(DFATable flat, Source src) {
+        List<long[]> chunks = chunks(src, src.length());
+        int[][] maps = chunks.parallelStream()
+                .map(c -> src.copy().runFromAll(flat, c[0], c[1]))
+                .toArray(int[][]::new);
+        int st = 0;
+        for (int[] map : maps) {
+            st = map[st];
+            if (st == DFATable.DEAD) return false;
+        }
+        return flat.accept(st);
+    }
+
+    // Число совпадений без пересечений, как у Matcher. Каждый кусок ищет со своего начала;
+    // если настоящий поиск вошел в кусок правее (совпадение пересекло границу), доискиваем
+    // последовательно, пока точка рестарта не совпадет с одной из точек куска
+    static long count(Source src) {
+        long len = src.length();
+        List<long[]> chunks = chunks(src, len + 1); // пустое совпадение в конце — в последнем куске
+        List<Chunk> done = chunks.parallelStream().map(c -> scan(src.copy(), c[0], c[1])).toList();
+
+        long[] span = new long[2];
+        long total = 0;
+        long from = 0;
+        for (Chunk c : done) {
+            // между from и началом куска совпадения не начинаются: поиск с from и с c.start одинаков
+            if (from <= c.start) {
+                total += c.count;
+                if (c.count > 0) from = c.finalFrom;
+                continue;
+            }
+            int j = 0;
+            while (true) {
+                while (j < c.stored && c.restarts[j] < from) j++;
+                if (j < c.stored && c.restarts[j] == from) { // дальше поиск повторяет кусок
+                    total += c.count - (j + 1);
+                    from = c.finalFrom;
+                    break;
+                }
+                if (from > len || !src.locate(from, c.end, span) || span[0] >= c.end) break;
+                total++;
+                from = next(src, span);
+            }
+        }
+        return total;
+    }
+
+    private static Chunk scan(Source src, long start, long end) {
+        long[] span = new long[2];
+        long[] restarts = new long[STORED_RESTARTS];
+        long count = 0;
+        long from = start;
+        long len = src.length();
+        // поиск ограничен куском: без совпадения он останавливается вскоре после end, а не в конце входа
+        while (from <= len && src.locate(from, end, span) && span[0] < end) {
+            from = next(src, span);
+            if (count < STORED_RESTARTS) restarts[(int) count] = from;
+            count++;
+        }
+        return new Chunk(start, end, restarts, (int) Math.min(count, STORED_RESTARTS), count, from);
+    }
+
+    private static long next(Source src, long[] span) {
+        if (span[0] != span[1]) return span[1];
+        return span[1] < src.length() ? src.advance(span[1]) : span[1] + 1; // пустое совпадение
+    }
+
+    private static List<long[]> chunks(Source src, long end) {
+        long len = src.length();
+        int n = (int) Math.max(1, Math.min(len / MIN_CHUNK, 4L * Runtime.getRuntime().availableProcessors()));
+        List<long[]> chunks = new ArrayList<>(n);
+        long start = 0;
+        for (int i = 1; i <= n; i++) {
+            long to = i == n ? end : src.boundary(len / n * i);
+            if (to > start) {
+                chunks.add(new long[]{start, to});
+                start = to;
+            }
+        }
+        if (chunks.isEmpty()) chunks.add(new long[]{0, end});
+        return chunks;
+    }
+
+    private record Chunk(long start, long end, long[] restarts, int stored, long count, long finalFrom) {}
+
+    static Source of(RegexLib lib, CharSequence text) {
+        return new Source() {
+            private final int[] span = new int[2];
+
+            public long length() {
+                return text.length();
+            }
+
+            public long boundary(long pos) {
+                return pos;
+            }
+
+            public boolean locate(long from, long limit, long[] out) {
+                if (!lib.locate(text, (int) from, (int) Math.min(limit, Integer.MAX_VALUE), span)) return false;
+                out[0] = span[0];
+                out[1] = span[1];
+                return true;
+            }
+
+            public long advance(long pos) {
+                return pos + 1;
+            }
+
+            public int[] runFromAll(DFATable t, long from, long to) {
+                return DFARunner.runFromAll(t, text, (int) from, (int) to);
+            }
+
+            public Source copy() {
+                return of(lib, text);
+            }
+        };
+    }
+
+    static Source of(RegexLib lib, MappedText text) {
+        byte[] prefix = text.encode(lib.getLiteralPrefix());
+        return new Source() {
+            public long length() {
+                return text.length();
+            }
+
+            public long boundary(long pos) {
+                return text.boundary(pos);
+            }
+
+            public boolean locate(long from, long limit, long[] span) {
+                return lib.locate(text, prefix, from, limit, span);
+            }
+
+            public long advance(long pos) {
+                text.decode(pos);
+                return pos + text.width();
+            }
+
+            public int[] runFromAll(DFATable t, long from, long to) {
+                return DFARunner.runFromAll(t, text, from, to);
+            }
+
+            public Source copy() {
+                return of(lib, text.copy());
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package lab2at.lib;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Потокобезопасный кэш скомпилированных шаблонов с вытеснением давно не использованных (LRU).
+// Компиляция идет вне блокировки: параллельные промахи по одному ключу не ждут друг друга,
+// в кэше остается результат, вставленный первым
+public final class PatternCache {
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    private final int maxSize;
+    private final Function<String, RegexLib> loader;
+    private final LinkedHashMap<String, RegexLib> map;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    public record Stats(long hits, long misses, long evictions, long loadNanos, int size) {}
+
+    public PatternCache(int maxSize) {
+        this(maxSize, RegexLib::compile);
+    }
+
+    PatternCache(int maxSize, Function<String, RegexLib> loader) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Cache must hold at least 1 pattern");
+        this.maxSize = maxSize;
+        this.loader = loader;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) { // порядок доступа: первый — самый старый
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RegexLib> eldest) {
+                if (size() <= PatternCache.this.maxSize) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    public RegexLib get(String pattern) {
+        synchronized (map) {
+            RegexLib lib = map.get(pattern);
+            if (lib != null) {
+                hits.increment();
+                return lib;
+            }
+        }
+        misses.increment();
+        long t0 = System.nanoTime();
+        RegexLib compiled = loader.apply(pattern);
+        loadNanos.add(System.nanoTime() - t0);
+        synchronized (map) {
+            RegexLib raced = map.putIfAbsent(pattern, compiled);
+            return raced != null ? raced : compiled;
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (map) {
+            size = map.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), loadNanos.sum(), size);
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+}
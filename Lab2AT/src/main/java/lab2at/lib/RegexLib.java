@@ -1,7 +1,13 @@
 package lab2at.lib;
 
+import lab2at.dfa.AhoCorasick;
+import lab2at.dfa.DFAMinimizer;
 import lab2at.dfa.DFAOperations;
 import lab2at.dfa.DFAState;
+import lab2at.dfa.DFATable;
+import lab2at.dfa.MappedText;
+import lab2at.dfa.TaggedCompiler;
+import lab2at.dfa.TaggedDFA;
 import lab2at.lexer.Lexer;
 import lab2at.lexer.Token;
 import lab2at.parser.RegexParser;
@@ -9,54 +15,155 @@ import lab2at.ast.Node;
 import lab2at.dfa.DFACompiler;
 import lab2at.dfa.DFARunner;
 import lab2at.dfa.DFARunner.PrefixMatch;
+import lombok.AccessLevel;
 import lombok.Getter;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.Stream;
 
 @Getter
 public final class RegexLib {
-    private final DFARunner runner;
-    private final int mainDFAId;
     private final List<String> groupNames; // группы
-    private final Map<String, Integer> nameToDfaId;
-    private final List<List<DFAState>> allDFA;
     private final Map<String, Node> groupDefs;
-    private Node mainRoot;
+    private final Node mainRoot;
     private final String pattern;
+    private final DFATable searchTable; // flatTable с неявным Σ* в начале
+    private final DFATable reverseTable; // flatTable для обращенного языка: ищем начало совпадения
+    private final String literalPrefix; // с него начинается любое совпадение, "" — префикса нет
+    private final AhoCorasick ahoCorasick; // для шаблонов foo|bar|..., иначе null
+    @Getter(AccessLevel.NONE)
+    private volatile Automata automata; // для альтернативы литералов строится при первом обращении
+    @Getter(AccessLevel.NONE)
+    private volatile TaggedDFA tagged; // для групп, которые не разобрал групповой раннер; строится по требованию
+    @Getter(AccessLevel.NONE)
+    private volatile boolean taggedFailed;
 
-    private RegexLib(DFARunner runner,
-                     int mainDFAId,
+    // ДКА группового раннера и плоский ДКА (группы подставлены)
+    private record Automata(DFARunner runner,
+                            int mainDFAId,
+                            Map<String, Integer> nameToDfaId,
+                            List<List<DFAState>> allDFA,
+                            List<DFAState> flatDFA,
+                            DFATable flatTable) {
+
+        static Automata build(Node ast, Map<String, Node> groupDefs) {
+            DFACompiler compiler = new DFACompiler(groupDefs);
+            int mainId = compiler.compile(ast);
+            DFACompiler flat = groupDefs.isEmpty() ? compiler : new DFACompiler(Map.of()); // без групп основной ДКА уже плоский
+            int flatId = flat == compiler ? mainId : flat.compile(DFAOperations.inlineGroups(ast, groupDefs));
+            return new Automata(new DFARunner(compiler.getTables()), mainId, Map.copyOf(compiler.getNameToDfa()),
+                    List.copyOf(compiler.getAll()), flat.getAll().get(flatId), flat.getTables().get(flatId));
+        }
+    }
+
+    // Альтернатива литералов (literalWords != null) ищется Ахо–Корасиком: ни неякорный и обратный ДКА,
+    // ни ДКА группового раннера для нее сразу не строятся. Иначе automata уже построены
+    private RegexLib(Automata automata,
                      List<String> groupNames,
-                     Map<String, Integer> nameToDfaId,
-                     List<List<DFAState>> allDFA,
                      Map<String, Node> groupDefs,
                      Node mainRoot,
-                     String pattern) {
-        this.runner = runner;
-        this.mainDFAId = mainDFAId;
+                     String pattern,
+                     List<String> literalWords) {
+        this.automata = automata;
         this.groupNames = List.copyOf(groupNames);
-        this.nameToDfaId = Map.copyOf(nameToDfaId);
-        this.allDFA = List.copyOf(allDFA);
         this.groupDefs = Map.copyOf(groupDefs);
         this.mainRoot = mainRoot;
         this.pattern = pattern;
+        if (literalWords == null) {
+            this.searchTable = DFAOperations.unanchored(automata.flatTable());
+            this.reverseTable = DFAOperations.reverse(automata.flatTable());
+            this.literalPrefix = DFAOperations.literalPrefix(automata.flatTable());
+            this.ahoCorasick = null;
+        } else {
+            this.searchTable = null;
+            this.reverseTable = null;
+            this.literalPrefix = commonPrefix(literalWords);
+            this.ahoCorasick = AhoCorasick.build(literalWords);
+        }
     }
 
-    private RegexLib(DFARunner runner,
-                     int mainDFAId,
-                     List<String> groupNames,
-                     Map<String, Integer> nameToDfaId,
-                     List<List<DFAState>> allDFA,
-                     Map<String, Node> groupDefs,
-                     String pattern) {
-        this.runner = runner;
-        this.mainDFAId = mainDFAId;
+    // все поля готовы (RegexLibFormat.load)
+    RegexLib(DFARunner runner,
+             int mainDFAId,
+             List<String> groupNames,
+             Map<String, Integer> nameToDfaId,
+             List<List<DFAState>> allDFA,
+             Map<String, Node> groupDefs,
+             Node mainRoot,
+             String pattern,
+             List<DFAState> flatDFA,
+             DFATable flatTable,
+             DFATable searchTable,
+             DFATable reverseTable,
+             String literalPrefix,
+             AhoCorasick ahoCorasick) {
+        this.automata = new Automata(runner, mainDFAId, Map.copyOf(nameToDfaId), List.copyOf(allDFA), flatDFA, flatTable);
         this.groupNames = List.copyOf(groupNames);
-        this.nameToDfaId = Map.copyOf(nameToDfaId);
-        this.allDFA = List.copyOf(allDFA);
         this.groupDefs = Map.copyOf(groupDefs);
+        this.mainRoot = mainRoot;
         this.pattern = pattern;
-        this.mainRoot = null;
+        this.searchTable = searchTable;
+        this.reverseTable = reverseTable;
+        this.literalPrefix = literalPrefix;
+        this.ahoCorasick = ahoCorasick;
+    }
+
+    private static String commonPrefix(List<String> words) {
+        String prefix = words.get(0);
+        for (String w : words) {
+            int n = 0;
+            while (n < prefix.length() && n < w.length() && prefix.charAt(n) == w.charAt(n)) n++;
+            prefix = prefix.substring(0, n);
+        }
+        return prefix;
+    }
+
+    private Automata automata() {
+        Automata a = automata;
+        if (a == null) {
+            synchronized (this) {
+                a = automata;
+                if (a == null) automata = a = Automata.build(mainRoot, groupDefs);
+            }
+        }
+        return a;
+    }
+
+    public DFARunner getRunner() {
+        return automata().runner();
+    }
+
+    public int getMainDFAId() {
+        return automata().mainDFAId();
+    }
+
+    public Map<String, Integer> getNameToDfaId() {
+        return automata().nameToDfaId();
+    }
+
+    public List<List<DFAState>> getAllDFA() {
+        return automata().allDFA();
+    }
+
+    public List<DFAState> getFlatDFA() { // основной ДКА с подставленными группами
+        return automata().flatDFA();
+    }
+
+    public DFATable getFlatTable() {
+        return automata().flatTable();
+    }
+
+    private static final PatternCache CACHE = new PatternCache(PatternCache.DEFAULT_MAX_SIZE);
+
+    // то же через общий кэш скомпилированных шаблонов
+    public static RegexLib compileCached(String pattern) {
+        return CACHE.get(pattern);
+    }
+
+    public static PatternCache cache() {
+        return CACHE;
     }
 
     public static RegexLib compile(String pattern) {
@@ -70,53 +177,180 @@ public final class RegexLib {
 
         List<String> names = new ArrayList<>(groupDefs.keySet());
 
-        DFACompiler compiler = new DFACompiler(groupDefs);
-        int mainId = compiler.compile(ast);
-        List<List<DFAState>> allDFA = compiler.getAll();
-        DFARunner runner = new DFARunner(allDFA);
+        // альтернатива литералов видна по дереву до построения любых ДКА
+        List<String> words = DFAOperations.literalAlternatives(DFAOperations.inlineGroups(ast, groupDefs));
+        return new RegexLib(words == null ? Automata.build(ast, groupDefs) : null, names, groupDefs, ast, pattern, words);
+    }
+
+    // Скомпилированные автоматы в файл: load поднимает их без повторной компиляции
+    public void save(Path path) throws IOException {
+        RegexLibFormat.save(this, path);
+    }
 
-        return new RegexLib(
-                runner,
-                mainId,
-                names,
-                compiler.getNameToDfa(),
-                allDFA,
-                groupDefs,
-                ast,
-                pattern);
+    public static RegexLib load(Path path) throws IOException {
+        return RegexLibFormat.load(path);
     }
 
     public boolean match(String input) {
-        PrefixMatch prefixMatch = runner.matchPrefix(input, 0, mainDFAId);
-        return prefixMatch.length == input.length();
+        if (ahoCorasick != null) { // слово целиком: самое длинное совпадение с 0 — вся строка
+            int[] span = new int[2];
+            return ahoCorasick.leftmostLongest(input, 0, span) && span[0] == 0 && span[1] == input.length();
+        }
+        DFARunner runner = getRunner();
+        return runner.matchPrefix(input, 0, getMainDFAId(), runner.localMatch()) == input.length();
     }
 
+    // самое левое, затем самое длинное совпадение
     public String search(String text) {
-        for (int i = 0; i < text.length(); i++) {
-            PrefixMatch prefixMatch = runner.matchPrefix(text, i, mainDFAId);
-            if (prefixMatch.length >= 0) {
-                return text.substring(i, i + prefixMatch.length);
+        int[] span = new int[2];
+        if (text.isEmpty() || !locate(text, 0, span)) return null;
+        return text.substring(span[0], span[1]);
+    }
+
+    // все совпадения подряд, без пересечений
+    public Matcher matcher(CharSequence text) {
+        return new Matcher(this, text);
+    }
+
+    public Stream<MatchResult> findAll(CharSequence text) {
+        return matcher(text).results();
+    }
+
+    // Параллельные версии для больших входов. Вся строка проверяется по плоскому ДКА
+    // (группы подставлены), число совпадений — как у Matcher
+    public boolean matchParallel(CharSequence text) {
+        return ParallelSearch.match(getFlatTable(), ParallelSearch.of(this, text));
+    }
+
+    public long countParallel(CharSequence text) {
+        return ParallelSearch.count(ParallelSearch.of(this, text));
+    }
+
+    public boolean matchFileParallel(Path path, MappedText.Encoding encoding) throws IOException {
+        return ParallelSearch.match(getFlatTable(), ParallelSearch.of(this, MappedText.map(path, encoding)));
+    }
+
+    public long countInFileParallel(Path path, MappedText.Encoding encoding) throws IOException {
+        return ParallelSearch.count(ParallelSearch.of(this, MappedText.map(path, encoding)));
+    }
+
+    // разбор потока, который приходит кусками, на идущие подряд совпадения
+    public StreamMatcher streamMatcher(MatchListener listener) {
+        return new StreamMatcher(this, listener);
+    }
+
+    // неякорный поиск в потоке, который приходит кусками: между совпадениями может быть что угодно
+    public StreamSearcher streamSearcher(MatchListener listener) {
+        return new StreamSearcher(this, listener);
+    }
+
+    // [начало, конец) совпадения не левее from пишется в span: прямой проход находит конец, обратный — начало
+    boolean locate(CharSequence text, int from, int[] span) {
+        return locate(text, from, Integer.MAX_VALUE, span);
+    }
+
+    // то же, но совпадения, начинающиеся с limit и правее, не нужны: false, если левее limit их нет
+    boolean locate(CharSequence text, int from, int limit, int[] span) {
+        if (ahoCorasick != null) return ahoCorasick.leftmostLongest(text, from, limit, span);
+
+        int end = DFARunner.searchEnd(searchTable, text, from, literalPrefix, limit);
+        if (end < 0) return false;
+        span[0] = DFARunner.matchBackward(reverseTable, text, end, from);
+        span[1] = end;
+        return true;
+    }
+
+    // Поиск в файле без чтения его в кучу: [начало, конец) в байтах, null — совпадений нет
+    public long[] searchFile(Path path, MappedText.Encoding encoding) throws IOException {
+        MappedText text = MappedText.map(path, encoding);
+        long[] span = new long[2];
+        return locate(text, text.encode(literalPrefix), 0, span) ? span : null;
+    }
+
+    // все совпадения в файле подряд, без пересечений (как Matcher); возвращает их число
+    public long findAllInFile(Path path, MappedText.Encoding encoding, MatchListener listener) throws IOException {
+        MappedText text = MappedText.map(path, encoding);
+        byte[] prefix = text.encode(literalPrefix);
+        long[] span = new long[2];
+        long count = 0;
+        long from = 0;
+        while (from <= text.length() && locate(text, prefix, from, span)) {
+            listener.onMatch(span[0], span[1]);
+            count++;
+            if (span[0] != span[1]) {
+                from = span[1];
+            } else if (span[1] < text.length()) { // пустое совпадение — через один символ
+                text.decode(span[1]);
+                from = span[1] + text.width();
+            } else {
+                break;
             }
         }
-        return null;
+        return count;
+    }
+
+    boolean locate(MappedText text, byte[] prefix, long from, long[] span) {
+        return locate(text, prefix, from, Long.MAX_VALUE, span);
+    }
+
+    boolean locate(MappedText text, byte[] prefix, long from, long limit, long[] span) {
+        if (ahoCorasick != null) return ahoCorasick.leftmostLongest(text, from, limit, span);
+
+        long end = DFARunner.searchEnd(searchTable, text, from, prefix, limit);
+        if (end < 0) return false;
+        span[0] = DFARunner.matchBackward(reverseTable, text, end, from);
+        span[1] = end;
+        return true;
     }
 
     public MatchResult searchWithGroups(String text) {
-        for (int i = 0; i < text.length(); i++) {
-            PrefixMatch prefixMatch = runner.matchPrefix(text, i, mainDFAId);
-            if (prefixMatch.length >= 0) { // сохранение групп
-                String str = text.substring(i, i + prefixMatch.length);
-                Map<String, String> map = new LinkedHashMap<>();
-                for (String grName : groupNames) {
-                    int dfaId = nameToDfaId.get(grName);
-                    int[] subStr = prefixMatch.namedGroupSubs.get(dfaId);
-                    String sub = (subStr == null || subStr[1] < 0) ? null : str.substring(subStr[0], subStr[1]);
-                    map.put(grName, sub);
-                }
-                return new MatchResult(map);
+        int[] span = new int[2];
+        if (text.isEmpty() || !locate(text, 0, span)) return null;
+        // offsets MatchResult: совпадение, затем группы в порядке groupNames
+        int[] offsets = new int[2 + 2 * groupNames.size()];
+        offsets[0] = span[0];
+        offsets[1] = span[1];
+        groups(text, span[0], span[1], getRunner().localMatch(), offsets);
+        return new MatchResult(text, groupNames, offsets);
+    }
+
+    // Группы совпадения [start, end), найденного locate: один разбор ровно этого отрезка, символы с end
+    // не читаются. Жадный групповой раннер может не найти разбор (a... съест нужное группе дальше) —
+    // тогда ДКА с тегами, он строится при первой такой неудаче. Группы — в offsets[2 + 2g], offsets[3 + 2g],
+    // -1 — группа не совпала
+    void groups(CharSequence text, int start, int end, PrefixMatch m, int[] offsets) {
+        Arrays.fill(offsets, 2, offsets.length, -1);
+        DFARunner runner = getRunner();
+        if (runner.matchPrefix(text, start, end, getMainDFAId(), m) == end - start) {
+            for (int g = 0; g < groupNames.size(); g++) {
+                int slot = runner.slotOf(getNameToDfaId().get(groupNames.get(g)));
+                offsets[2 + 2 * g] = m.start(slot);
+                offsets[3 + 2 * g] = m.start(slot) < 0 ? -1 : m.end(slot);
             }
+            return;
+        }
+        TaggedDFA dfa = taggedDFA();
+        if (dfa == null) return;
+        int[] captures = new int[dfa.captureCount()];
+        if (dfa.matchPrefix(text, start, end, new int[dfa.registerCount()], captures) != end - start) return;
+        for (int t = 0; t < captures.length; t += 2) {
+            boolean matched = captures[t] >= 0 && captures[t + 1] >= 0;
+            offsets[2 + t] = matched ? captures[t] : -1;
+            offsets[3 + t] = matched ? captures[t + 1] : -1;
         }
-        return null;
+    }
+
+    // null — дерева нет (intersect) или автомат с тегами слишком велик
+    private TaggedDFA taggedDFA() {
+        TaggedDFA dfa = tagged;
+        if (dfa == null && mainRoot != null && !taggedFailed) {
+            try {
+                tagged = dfa = TaggedCompiler.compile(mainRoot, groupDefs, groupNames);
+            } catch (IllegalArgumentException e) {
+                taggedFailed = true;
+            }
+        }
+        return dfa;
     }
 
     public RegexLib reverse() {
@@ -125,43 +359,29 @@ public final class RegexLib {
             revGroupDefs.put(e.getKey(), DFAOperations.reverse(e.getValue()));
         }
 
-        mainRoot = DFAOperations.reverse(mainRoot);
-        DFACompiler compiler = new DFACompiler(revGroupDefs);
-        int mainId = compiler.compile(mainRoot);
-
-        List<List<DFAState>> allDFA = compiler.getAll();
-        DFARunner runner = new DFARunner(allDFA);
-
+        // исходный объект не меняем: скомпилированный шаблон может разделяться между потоками
+        Node revRoot = DFAOperations.reverse(mainRoot);
         List<String> names = new ArrayList<>(revGroupDefs.keySet());
-
-        return new RegexLib(
-                runner,
-                mainId,
-                names,
-                compiler.getNameToDfa(),
-                allDFA,
-                revGroupDefs,
-                mainRoot,
-                this.pattern);
+        List<String> words = DFAOperations.literalAlternatives(DFAOperations.inlineGroups(revRoot, revGroupDefs));
+        return new RegexLib(words == null ? Automata.build(revRoot, revGroupDefs) : null,
+                names, revGroupDefs, revRoot, this.pattern, words);
     }
 
     public RegexLib intersect(RegexLib other) {
-        List<DFAState> dfa1 = this.allDFA.get(this.mainDFAId);
-        List<DFAState> dfa2 = other.allDFA.get(other.mainDFAId);
-
-        List<DFAState> intersected = DFAOperations.intersect(dfa1, dfa2);
+        Automata a = this.automata(), b = other.automata();
+        List<DFAState> intersected = DFAOperations.intersect(a.allDFA().get(a.mainDFAId()), b.allDFA().get(b.mainDFAId()));
 
-        List<List<DFAState>> newAll = new ArrayList<>(this.allDFA);
+        List<List<DFAState>> newAll = new ArrayList<>(a.allDFA());
         newAll.add(intersected);
         int newMainId = newAll.size() - 1;
 
-        return new RegexLib(
-                new DFARunner(newAll),
-                newMainId,
-                this.groupNames,
-                this.nameToDfaId,
-                newAll,
-                this.groupDefs,
-                this.pattern);
+        List<DFATable> newTables = new ArrayList<>(a.runner().getTables());
+        newTables.add(DFATable.fromStates(intersected));
+
+        List<DFAState> flatIntersected = DFAMinimizer.minimize(DFAOperations.intersect(a.flatDFA(), b.flatDFA()));
+
+        Automata result = new Automata(new DFARunner(newTables), newMainId, a.nameToDfaId(), List.copyOf(newAll),
+                flatIntersected, DFATable.fromStates(flatIntersected));
+        return new RegexLib(result, this.groupNames, this.groupDefs, null, this.pattern, null);
     }
 }
@@ -0,0 +1,165 @@
+package lab2at.lib;
+
+import lab2at.ast.Node;
+import lab2at.ast.NodeType;
+import lab2at.dfa.AutomatonFormat;
+import lab2at.dfa.DFARunner;
+import lab2at.dfa.DFAState;
+import lab2at.dfa.DFATable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Формат файла RegexLib.save: заголовок (магия, версия), затем строки, деревья и автоматы.
+// Версия растет при любом несовместимом изменении, чужую версию load не читает
+final class RegexLibFormat {
+    private static final int MAGIC = 0x4C325258; // "L2RX"
+    // 2: переходы состояний — интервалами, 3: деревья в обратном порядке, 4: позиции состояний — списком
+    private static final int VERSION = 4;
+
+    private RegexLibFormat() {}
+
+    static void save(RegexLib lib, Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, lib.getPattern());
+            out.writeInt(lib.getMainDFAId());
+
+            out.writeInt(lib.getGroupNames().size());
+            for (String name : lib.getGroupNames()) writeString(out, name);
+            out.writeInt(lib.getNameToDfaId().size());
+            for (var e : lib.getNameToDfaId().entrySet()) {
+                writeString(out, e.getKey());
+                out.writeInt(e.getValue());
+            }
+            out.writeInt(lib.getGroupDefs().size());
+            for (var e : lib.getGroupDefs().entrySet()) {
+                writeString(out, e.getKey());
+                writeNode(out, e.getValue());
+            }
+            writeNode(out, lib.getMainRoot());
+
+            out.writeInt(lib.getAllDFA().size());
+            for (List<DFAState> dfa : lib.getAllDFA()) AutomatonFormat.writeStates(out, dfa);
+            List<DFATable> tables = lib.getRunner().getTables();
+            out.writeInt(tables.size());
+            for (DFATable t : tables) AutomatonFormat.writeTable(out, t);
+
+            AutomatonFormat.writeStates(out, lib.getFlatDFA());
+            AutomatonFormat.writeTable(out, lib.getFlatTable());
+            writeString(out, lib.getLiteralPrefix());
+            out.writeBoolean(lib.getAhoCorasick() != null);
+            if (lib.getAhoCorasick() != null) {
+                AutomatonFormat.writeAhoCorasick(out, lib.getAhoCorasick());
+            } else {
+                AutomatonFormat.writeTable(out, lib.getSearchTable());
+                AutomatonFormat.writeTable(out, lib.getReverseTable());
+            }
+        }
+    }
+
+    static RegexLib load(Path path) throws IOException {
+        ByteBuffer in;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        try {
+            if (in.getInt() != MAGIC)
+                throw new IOException("Not a compiled pattern file: " + path);
+            int version = in.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported compiled pattern version " + version + ", expected " + VERSION);
+
+            String pattern = readString(in);
+            int mainId = in.getInt();
+            List<String> groupNames = new ArrayList<>();
+            for (int n = in.getInt(); n > 0; n--) groupNames.add(readString(in));
+            Map<String, Integer> nameToDfaId = new HashMap<>();
+            for (int n = in.getInt(); n > 0; n--) nameToDfaId.put(readString(in), in.getInt());
+            Map<String, Node> groupDefs = new HashMap<>();
+            for (int n = in.getInt(); n > 0; n--) groupDefs.put(readString(in), readNode(in));
+            Node mainRoot = readNode(in);
+
+            List<List<DFAState>> allDFA = new ArrayList<>();
+            for (int n = in.getInt(); n > 0; n--) allDFA.add(AutomatonFormat.readStates(in));
+            List<DFATable> tables = new ArrayList<>();
+            for (int n = in.getInt(); n > 0; n--) tables.add(AutomatonFormat.readTable(in));
+
+            List<DFAState> flatDFA = AutomatonFormat.readStates(in);
+            DFATable flatTable = AutomatonFormat.readTable(in);
+            String literalPrefix = readString(in);
+            if (in.get() != 0) {
+                return new RegexLib(new DFARunner(tables), mainId, groupNames, nameToDfaId, allDFA, groupDefs,
+                        mainRoot, pattern, flatDFA, flatTable, null, null, literalPrefix,
+                        AutomatonFormat.readAhoCorasick(in));
+            }
+            DFATable searchTable = AutomatonFormat.readTable(in);
+            DFATable reverseTable = AutomatonFormat.readTable(in);
+            return new RegexLib(new DFARunner(tables), mainId, groupNames, nameToDfaId, allDFA, groupDefs,
+                    mainRoot, pattern, flatDFA, flatTable, searchTable, reverseTable, literalPrefix, null);
+        } catch (RuntimeException e) { // BufferUnderflowException, мусор вместо длины и т.п.
+            throw new IOException("Corrupted compiled pattern file: " + path, e);
+        }
+    }
+
+    // дерево в обратном порядке (Node.postOrder): число узлов, затем у каждого тип, текст и есть ли
+    // левый и правый ребенок; 0 узлов — null. Без рекурсии: цепочка из 10^5 узлов не переполнит стек
+    private static void writeNode(DataOutputStream out, Node root) throws IOException {
+        if (root == null) {
+            out.writeInt(0);
+            return;
+        }
+        List<Node> order = Node.postOrder(root);
+        out.writeInt(order.size());
+        for (Node n : order) {
+            writeString(out, n.type.name());
+            writeString(out, n.text);
+            out.writeByte((n.left != null ? 1 : 0) | (n.right != null ? 2 : 0));
+        }
+    }
+
+    // как Arena.of: дети готовы раньше родителя и лежат на стеке
+    private static Node readNode(ByteBuffer in) {
+        int size = in.getInt();
+        if (size == 0) return null;
+        Deque<Node> done = new ArrayDeque<>();
+        for (int i = 0; i < size; i++) {
+            NodeType type = NodeType.valueOf(readString(in));
+            String text = readString(in);
+            int children = in.get();
+            Node right = (children & 2) != 0 ? done.pop() : null;
+            Node left = (children & 1) != 0 ? done.pop() : null;
+            done.push(new Node(type, text, left, right));
+        }
+        if (done.size() != 1)
+            throw new IllegalStateException("Malformed tree: " + done.size() + " roots");
+        return done.pop();
+    }
+
+    // длина, затем символы UTF-16; -1 — null
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0) return null;
+        char[] chars = new char[len];
+        in.asCharBuffer().get(chars);
+        in.position(in.position() + 2 * len);
+        return new String(chars);
+    }
+}
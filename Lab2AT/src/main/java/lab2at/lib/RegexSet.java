@@ -0,0 +1,60 @@
+package lab2at.lib;
+
+import lab2at.ast.Node;
+import lab2at.dfa.DFACompiler;
+import lab2at.dfa.DFAOperations;
+import lab2at.dfa.SetDFA;
+import lab2at.lexer.Lexer;
+import lab2at.parser.RegexParser;
+import lombok.Getter;
+
+import java.util.*;
+
+// Набор шаблонов, который проверяется за один проход по тексту независимо от числа шаблонов.
+// Номер шаблона — его индекс в списке. Группы подставляются как обычные подвыражения
+public final class RegexSet {
+    @Getter
+    private final List<String> patterns;
+    private final SetDFA dfa;
+
+    private RegexSet(List<String> patterns, SetDFA dfa) {
+        this.patterns = patterns;
+        this.dfa = dfa;
+    }
+
+    public static RegexSet compile(String... patterns) {
+        return compile(List.of(patterns));
+    }
+
+    public static RegexSet compile(List<String> patterns) {
+        List<Node> roots = new ArrayList<>();
+        for (String pattern : patterns) {
+            RegexParser parser = new RegexParser(new Lexer(pattern).scan());
+            Node ast = parser.parse();
+            roots.add(DFAOperations.inlineGroups(ast, parser.getGroupDefs()));
+        }
+        return new RegexSet(List.copyOf(patterns), new DFACompiler(Map.of()).compileSet(roots));
+    }
+
+    // шаблоны, которым целиком соответствует input
+    public BitSet match(String input) {
+        BitSet res = new BitSet();
+        for (int id : dfa.matchAll(input)) res.set(id);
+        return res;
+    }
+
+    // шаблоны, у которых есть совпадение где-то в тексте
+    public BitSet search(String text) {
+        BitSet res = new BitSet();
+        int[] ends = dfa.searchEnds(text);
+        for (int id = 0; id < ends.length; id++) {
+            if (ends[id] >= 0) res.set(id);
+        }
+        return res;
+    }
+
+    // для каждого шаблона конец самого раннего совпадения, -1 — совпадений нет
+    public int[] searchEnds(String text) {
+        return dfa.searchEnds(text);
+    }
+}
@@ -0,0 +1,57 @@
+package lab2at.lib;
+
+import lab2at.dfa.StreamRunner;
+
+// Разбор потока (сокет, канал) на идущие подряд совпадения шаблона: вход подается кусками,
+// совпадение может пересекать границу кусков. Память не зависит от длины потока.
+// Первый символ вне совпадения — ошибка разбора; искать совпадения среди другого текста — StreamSearcher
+public final class StreamMatcher {
+    private final RegexLib lib;
+    private final StreamRunner runner;
+
+    StreamMatcher(RegexLib lib, MatchListener listener) {
+        this.lib = lib;
+        this.runner = new StreamRunner(lib.getRunner().getTables(), lib.getMainDFAId(), listener::onMatch);
+    }
+
+    public void feed(char[] buf, int off, int len) {
+        runner.feed(buf, off, len);
+    }
+
+    public void feed(char[] buf) {
+        runner.feed(buf, 0, buf.length);
+    }
+
+    // false — поток не разбирается на совпадения, разбор остановился на position()
+    public boolean finish() {
+        return runner.finish();
+    }
+
+    public boolean failed() {
+        return runner.failed();
+    }
+
+    public long position() {
+        return runner.position();
+    }
+
+    public void reset() {
+        runner.reset();
+    }
+
+    // смещения группы в текущем совпадении (внутри MatchListener.onMatch), -1 — группа не совпала
+    public long start(String name) {
+        return runner.groupStart(dfaId(name));
+    }
+
+    public long end(String name) {
+        return runner.groupEnd(dfaId(name));
+    }
+
+    private int dfaId(String name) {
+        Integer id = lib.getNameToDfaId().get(name);
+        if (id == null)
+            throw new IllegalArgumentException("No such group: " + name);
+        return id;
+    }
+}
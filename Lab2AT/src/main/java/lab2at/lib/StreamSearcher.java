@@ -0,0 +1,35 @@
+package lab2at.lib;
+
+import lab2at.dfa.DFAOperations;
+import lab2at.dfa.StreamSearchRunner;
+
+// Поиск в потоке (сокет, канал): вход подается кусками, между совпадениями может быть что угодно.
+// Совпадения — leftmost-longest без пересечений, как у Matcher: в памяти только символы после конца
+// последнего совпадения, пока оно не окончательно. Групп нет — для них нужен сам текст совпадения
+public final class StreamSearcher {
+    private final StreamSearchRunner runner;
+
+    StreamSearcher(RegexLib lib, MatchListener listener) {
+        this.runner = new StreamSearchRunner(DFAOperations.unanchoredStarts(lib.getFlatTable()), listener::onMatch);
+    }
+
+    public void feed(char[] buf, int off, int len) {
+        runner.feed(buf, off, len);
+    }
+
+    public void feed(char[] buf) {
+        runner.feed(buf, 0, buf.length);
+    }
+
+    public void finish() {
+        runner.finish();
+    }
+
+    public long position() {
+        return runner.position();
+    }
+
+    public void reset() {
+        runner.reset();
+    }
+}
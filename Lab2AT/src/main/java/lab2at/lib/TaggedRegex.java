@@ -0,0 +1,72 @@
+package lab2at.lib;
+
+import lab2at.dfa.TaggedCompiler;
+import lab2at.dfa.TaggedDFA;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Режим RegexLib с ДКА с тегами: группы захватываются за один проход по одному плоскому автомату,
+// без стека вызовов групп. Из совпадений одной длины берется самое приоритетное
+// (левая альтернатива, жадные повторы). Не потокобезопасен: регистры общие
+public final class TaggedRegex {
+    private final RegexLib lib; // поиск границ совпадения
+    private final TaggedDFA dfa;
+    private final int[] regs;
+    @Getter
+    private final String pattern;
+
+    private TaggedRegex(RegexLib lib, TaggedDFA dfa) {
+        this.lib = lib;
+        this.dfa = dfa;
+        this.regs = new int[dfa.registerCount()];
+        this.pattern = lib.getPattern();
+    }
+
+    public static TaggedRegex compile(String pattern) {
+        return from(RegexLib.compile(pattern));
+    }
+
+    public static TaggedRegex from(RegexLib lib) {
+        return new TaggedRegex(lib, TaggedCompiler.compile(lib.getMainRoot(), lib.getGroupDefs(), lib.getGroupNames()));
+    }
+
+    public boolean match(String input) {
+        return dfa.matchPrefix(input, 0, regs, new int[dfa.captureCount()]) == input.length();
+    }
+
+    // Без выделения памяти: длина совпадения с from или -1, группы — в captures
+    // (captures[2g], captures[2g + 1] для группы g из getGroupNames(), -1 — не совпала)
+    public int matchPrefix(CharSequence text, int from, int[] captures) {
+        return dfa.matchPrefix(text, from, regs, captures);
+    }
+
+    // самое левое, затем самое длинное совпадение; группы — прогоном ДКА с тегами ровно по нему,
+    // символы после конца не читаются
+    public MatchResult searchWithGroups(String text) {
+        int[] span = new int[2];
+        if (text.isEmpty() || !lib.locate(text, 0, span)) return null;
+        // offsets MatchResult: совпадение, затем группы в порядке getGroupNames — как captures
+        int[] offsets = new int[2 + dfa.captureCount()];
+        int[] captures = new int[dfa.captureCount()];
+        offsets[0] = span[0];
+        offsets[1] = span[1];
+        if (dfa.matchPrefix(text, span[0], span[1], regs, captures) != span[1] - span[0])
+            Arrays.fill(captures, -1);
+        for (int t = 0; t < captures.length; t += 2) {
+            boolean matched = captures[t] >= 0 && captures[t + 1] >= 0;
+            offsets[2 + t] = matched ? captures[t] : -1;
+            offsets[3 + t] = matched ? captures[t + 1] : -1;
+        }
+        return new MatchResult(text, dfa.groupNames(), offsets);
+    }
+
+    public List<String> getGroupNames() {
+        return dfa.groupNames();
+    }
+
+    public int getStateCount() {
+        return dfa.stateCount();
+    }
+}
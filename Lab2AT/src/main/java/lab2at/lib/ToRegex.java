@@ -1,9 +1,13 @@
 package lab2at.lib;
 
+import lab2at.ast.CharClass;
 import lab2at.dfa.DFAState;
+import lab2at.dfa.IntervalMap;
 import java.util.*;
 
 public final class ToRegex {
+    private static final String SPECIAL = ".|?(){}%[<"; // значимы для Lexer вне класса, литералом — %x%
+
     private ToRegex() {}
 
     public static String toRegex(List<DFAState> states, Map<Integer, String> groupNames) {
@@ -20,9 +24,15 @@ public final class ToRegex {
         // 1) оригинальные переходы
         for (int from = 0; from < n; from++) {
             DFAState st = states.get(from);
-            // по символу
-            for (var e : st.charTrans().entrySet()) {
-                addEdge(R, from, e.getValue(), Character.toString(e.getKey()));
+            // по символу: все символы в одну цель — одним классом [...]
+            IntervalMap trans = IntervalMap.of(st.charTrans());
+            Map<Integer, StringBuilder> rangesTo = new LinkedHashMap<>();
+            for (int r = 0; r < trans.count(); r++)
+                rangesTo.computeIfAbsent(trans.target(r), k -> new StringBuilder()).append(trans.lo(r)).append(trans.hi(r));
+            for (var e : rangesTo.entrySet()) {
+                String ranges = e.getValue().toString();
+                boolean single = ranges.length() == 2 && ranges.charAt(0) == ranges.charAt(1);
+                addEdge(R, from, e.getKey(), single ? literal(ranges.charAt(0)) : CharClass.format(ranges));
             }
             // по группе
             for (var e : st.groupTrans().entrySet()) {
@@ -78,6 +88,10 @@ public final class ToRegex {
         return out.isEmpty() ? "empty" : out;
     }
 
+    private static String literal(char c) {
+        return SPECIAL.indexOf(c) >= 0 ? "%" + c + "%" : String.valueOf(c);
+    }
+
     private static void addEdge(Map<Integer, Map<Integer, StringBuilder>> R, int from, int to, String expr) {
         Map<Integer, StringBuilder> row = R.get(from);
         StringBuilder sb = row.computeIfAbsent(to, k -> new StringBuilder());
@@ -3,6 +3,8 @@ package lab2at.parser;
 import lab2at.ast.*;
 import lab2at.lexer.*;
 import lombok.Getter;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -73,24 +75,23 @@ public final class RegexParser {
         return left;
     }
 
-    // Обработка повтора (a{n})
+    // Обработка повтора (a{n}, a{n,m}): тело не копируется, его разворачивает компилятор
     private Node parseRepeat(Node base) {
         expect(TokenType.LBRACE);
-        if (look.type() != TokenType.LITERAL || !look.text().chars().allMatch(Character::isDigit))
+        if (look.type() != TokenType.LITERAL || !look.text().matches("\\d+(,\\d+)?"))
             throw new IllegalArgumentException("Expected number after '{'");
-        int k = Integer.parseInt(look.text());
+        String[] bounds = look.text().split(",");
+        int min = Integer.parseInt(bounds[0]);
+        int max = bounds.length > 1 ? Integer.parseInt(bounds[1]) : min;
         look = it.next();
         expect(TokenType.RBRACE);
-        if (k < 0)
-            throw new IllegalArgumentException("Negative repeat not allowed");
-        if (k == 0)
+        if (min > max)
+            throw new IllegalArgumentException("Invalid repeat range {" + min + "," + max + "}");
+        if (max == 0)
             return new Node(NodeType.NULL_REPEAT, null, null, null);
-        if (k == 1)
+        if (min == 1 && max == 1)
             return base;
-        Node res = copy(base);
-        for (int i = 1; i < k; i++)
-            res = new Node(NodeType.CONCAT, res, copy(base));
-        return res;
+        return new Node(NodeType.REPEAT, min + "," + max, base, null);
     }
 
     // 4) Атомарные символы
@@ -123,6 +124,11 @@ public final class RegexParser {
                 look = it.next();
                 return new Node(NodeType.LITERAL, lit, null, null);
             }
+            case CLASS -> {
+                String ranges = look.text();
+                look = it.next();
+                return new Node(NodeType.CLASS, ranges, null, null);
+            }
             default -> throw new IllegalStateException("Unexpected token: " + look.type());
         }
     }
@@ -137,34 +143,43 @@ public final class RegexParser {
 
     // Проверяем, можно ли продолжать строить CONCAT
     private boolean canStartConc(TokenType t) {
-        return t == TokenType.LITERAL || t == TokenType.GROUP_REF || t == TokenType.LPAREN;
-    }
-
-    private Node copy(Node n) {
-        if (n == null) return null;
-        Node left = copy(n.left);
-        Node right = copy(n.right);
-        Node ret = new Node(n.type, n.text, left, right);
-        return ret;
+        return t == TokenType.LITERAL || t == TokenType.CLASS || t == TokenType.GROUP_REF || t == TokenType.LPAREN;
     }
 
     // собираем определение групп в мапу
-    private void collectDefs(Node n) {
-        if (n == null) return;
-        if (n.type == NodeType.GROUP_DEF)
-            groupDefs.put(n.text, n.left);   // имя → тело
-        collectDefs(n.left);
-        collectDefs(n.right);
+    private void collectDefs(Node root) {
+        Deque<Node> stack = new ArrayDeque<>(); // прямой порядок: при повторе имени побеждает внутреннее/правое
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node n = stack.pop();
+            if (n.type == NodeType.GROUP_DEF)
+                groupDefs.put(n.text, n.left);   // имя → тело
+            if (n.right != null) stack.push(n.right);
+            if (n.left != null) stack.push(n.left);
+        }
     }
 
-    private Node expandRefs(Node n) {
-        if (n == null) return null;
-        if (n.type == NodeType.GROUP_DEF) {
-            return new Node(NodeType.GROUP_CALL, n.text, null, null);
-        } else {
-            n.left  = expandRefs(n.left);
-            n.right = expandRefs(n.right);
-            return n;
+    // определения групп заменяем вызовами; внутрь определения не спускаемся
+    private Node expandRefs(Node root) {
+        if (root.type == NodeType.GROUP_DEF)
+            return call(root);
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node n = stack.pop();
+            if (n.left != null) {
+                if (n.left.type == NodeType.GROUP_DEF) n.left = call(n.left);
+                else stack.push(n.left);
+            }
+            if (n.right != null) {
+                if (n.right.type == NodeType.GROUP_DEF) n.right = call(n.right);
+                else stack.push(n.right);
+            }
         }
+        return root;
+    }
+
+    private static Node call(Node def) {
+        return new Node(NodeType.GROUP_CALL, def.text, null, null);
     }
 }
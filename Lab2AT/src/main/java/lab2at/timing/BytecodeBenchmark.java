@@ -0,0 +1,54 @@
+package lab2at.timing;
+
+import lab2at.lib.BytecodeRegex;
+import lab2at.lib.RegexLib;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+
+// Поиск табличным ДКА (RegexLib) против байткода (BytecodeRegex): совпадений нет, текст читается целиком
+public class BytecodeBenchmark {
+    private static final int TEXT_LENGTH = 4_000_000;
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) {
+        List<String> results = new ArrayList<>();
+        results.add("Pattern,Table(ms),Bytecode(ms)");
+
+        Random rnd = new Random(1);
+        StringBuilder sb = new StringBuilder(TEXT_LENGTH);
+        for (int i = 0; i < TEXT_LENGTH; i++) sb.append("abcdefgh ".charAt(rnd.nextInt(9)));
+        String text = sb.toString();
+
+        for (String pattern : new String[]{"(a|b)...z", "ab...z|ca...y", "(a|b|c)...h(a|b)...z", "zz"}) {
+            RegexLib lib = RegexLib.compile(pattern);
+            BytecodeRegex jit = BytecodeRegex.from(lib);
+            long table = time(() -> lib.search(text));
+            long bytecode = time(() -> jit.search(text));
+
+            System.out.println("Шаблон: " + pattern + ", таблица: " + table + " мс, байткод: " + bytecode + " мс");
+            results.add(pattern + "," + table + "," + bytecode);
+        }
+
+        String outputFile = "timing_results_bytecode.csv";
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
+            for (String line : results) {
+                writer.write(line);
+                writer.newLine();
+            }
+            System.out.println("Результаты таймирования сохранены в " + outputFile);
+        } catch (IOException e) {
+            System.out.println("Ошибка записи результатов таймирования: " + e.getMessage());
+        }
+    }
+
+    // среднее время после прогрева
+    private static long time(Runnable search) {
+        for (int i = 0; i < 3; i++) search.run();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) search.run();
+        return (System.nanoTime() - startTime) / RUNS / 1_000_000;
+    }
+}
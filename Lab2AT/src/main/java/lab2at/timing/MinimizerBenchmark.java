@@ -0,0 +1,55 @@
+package lab2at.timing;
+
+import lab2at.dfa.DFAMinimizer;
+import lab2at.dfa.DFAState;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+
+// Время минимизации и число состояний для ДКА на 10^4–10^6 состояний
+public class MinimizerBenchmark {
+    private static final int REDUNDANCY = 10; // каждое состояние минимального ДКА повторено 10 раз
+
+    public static void main(String[] args) {
+        List<String> results = new ArrayList<>();
+        results.add("States,MinStates,Time(ms)");
+
+        for (int n : new int[]{10_000, 30_000, 100_000, 300_000, 1_000_000}) {
+            List<DFAState> raw = counterDfa(n, n / REDUNDANCY);
+            DFAMinimizer.minimize(counterDfa(1000, 100)); // прогрев
+
+            long startTime = System.nanoTime();
+            List<DFAState> min = DFAMinimizer.minimize(raw);
+            long duration = (System.nanoTime() - startTime) / 1_000_000;
+
+            System.out.println("Состояний: " + n + ", после минимизации: " + min.size() + ", время: " + duration + " мс");
+            results.add(n + "," + min.size() + "," + duration);
+        }
+
+        String outputFile = "timing_results_minimizer.csv";
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
+            for (String line : results) {
+                writer.write(line);
+                writer.newLine();
+            }
+            System.out.println("Результаты таймирования сохранены в " + outputFile);
+        } catch (IOException e) {
+            System.out.println("Ошибка записи результатов таймирования: " + e.getMessage());
+        }
+    }
+
+    // Счетчик по модулю n над {a, b}: a: i -> i+1, b: i -> 2i; принимаем i ≡ 0 (mod m).
+    // При m | n минимальный ДКА — счетчик по модулю m
+    static List<DFAState> counterDfa(int n, int m) {
+        List<DFAState> states = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Map<Character, Integer> ch = new HashMap<>();
+            ch.put('a', (i + 1) % n);
+            ch.put('b', (int) (2L * i % n));
+            states.add(new DFAState(new int[0], i % m == 0, ch, Map.of()));
+        }
+        return states;
+    }
+}
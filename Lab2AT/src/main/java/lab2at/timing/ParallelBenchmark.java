@@ -0,0 +1,70 @@
+package lab2at.timing;
+
+import lab2at.lib.Matcher;
+import lab2at.lib.RegexLib;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+
+// Подсчет совпадений: Matcher подряд против countParallel на редких совпадениях,
+// где кусок без совпадений раньше дочитывал вход до конца
+public class ParallelBenchmark {
+    private static final String[] PATTERNS = {"[ab]c", "(ab)...c", "abac|bac"};
+
+    public static void main(String[] args) {
+        List<String> results = new ArrayList<>();
+        results.add("Pattern,Length,Sequential(ms),Parallel(ms)");
+
+        for (int len : new int[]{1_000_000, 10_000_000, 40_000_000}) {
+            String text = sparseText(len);
+            for (String pattern : PATTERNS) {
+                RegexLib lib = RegexLib.compile(pattern);
+                lib.countParallel(text.substring(0, 1_000_000)); // прогрев
+
+                long startTime = System.nanoTime();
+                long sequential = sequentialCount(lib, text);
+                long seqTime = (System.nanoTime() - startTime) / 1_000_000;
+
+                startTime = System.nanoTime();
+                long parallel = lib.countParallel(text);
+                long parTime = (System.nanoTime() - startTime) / 1_000_000;
+
+                if (sequential != parallel)
+                    throw new IllegalStateException(pattern + ": " + sequential + " != " + parallel);
+                System.out.println("Шаблон: " + pattern + ", длина: " + len + ", подряд: " + seqTime
+                        + " мс, параллельно: " + parTime + " мс");
+                results.add(pattern + "," + len + "," + seqTime + "," + parTime);
+            }
+        }
+
+        String outputFile = "timing_results_parallel.csv";
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
+            for (String line : results) {
+                writer.write(line);
+                writer.newLine();
+            }
+            System.out.println("Результаты таймирования сохранены в " + outputFile);
+        } catch (IOException e) {
+            System.out.println("Ошибка записи результатов таймирования: " + e.getMessage());
+        }
+    }
+
+    private static long sequentialCount(RegexLib lib, String text) {
+        Matcher m = lib.matcher(text);
+        long count = 0;
+        while (m.find()) count++;
+        return count;
+    }
+
+    // случайный текст над {a, b, x}, совпадения только в начале и в конце: в кусках между ними их нет
+    private static String sparseText(int len) {
+        Random rnd = new Random(42);
+        char[] text = new char[len];
+        for (int i = 0; i < len; i++) text[i] = "abx".charAt(rnd.nextInt(3));
+        "ababac".getChars(0, 6, text, 1000);
+        "ababac".getChars(0, 6, text, len - 10);
+        return new String(text);
+    }
+}
@@ -1,7 +1,13 @@
 package lab2at.util;
 
+import lab2at.ast.Arena;
+import lab2at.ast.CharClass;
 import lab2at.ast.Node;
+import lab2at.ast.NodeType;
 import lab2at.dfa.DFAState;
+import lab2at.dfa.IntervalMap;
+import lab2at.dfa.PosSet;
+import lab2at.dfa.TreeAnalyzer;
 
 import java.io.IOException;
 import java.nio.file.*;
@@ -26,32 +32,59 @@ public final class GraphVizRenderer {
                 .append("  node [shape=circle,fontname=\"Courier\"];\n");
         Map<Node,String> ids = new IdentityHashMap<>();
         AtomicInteger ctr = new AtomicInteger();
-        buildDotAst(root, sb, ids, ctr);
+        buildDotAst(root, sb, ids, ctr, analyze(root));
         sb.append("}\n");
         return sb.toString();
     }
 
+    // pos, nullable, first и last каждого узла — как их считает компилятор; null, если в дереве есть
+    // определения групп (компилятор разбирает их отдельно)
+    private static Map<Node, String> analyze(Node root) {
+        List<Node> order = Node.postOrder(root);
+        if (order.stream().anyMatch(n -> n.type == NodeType.GROUP_DEF)) return null;
+
+        Arena tree = Arena.of(root); // тот же обратный порядок, что у postOrder
+        List<List<PosSet>> followPos = new ArrayList<>();
+        followPos.add(new ArrayList<>());
+        for (int i = 0; i < tree.size(); i++) {
+            NodeType type = tree.type(i);
+            if (type == NodeType.LITERAL || type == NodeType.CLASS || type == NodeType.GROUP_CALL || type == NodeType.END) {
+                tree.pos[i] = followPos.size();
+                followPos.add(new ArrayList<>());
+            }
+        }
+        TreeAnalyzer analysis = new TreeAnalyzer(tree, followPos, new HashMap<>());
+        analysis.analyzeKeepingSets();
+
+        Map<Node, String> labels = new IdentityHashMap<>();
+        for (int i = 0; i < tree.size(); i++) {
+            labels.put(order.get(i), "\\npos=" + tree.pos[i]
+                    + "\\nnull=" + analysis.nullable(i)
+                    + "\\nf=" + analysis.first(i)
+                    + "\\nl=" + analysis.last(i));
+        }
+        return labels;
+    }
+
     private static void buildDotAst(Node n, StringBuilder sb,
                                     Map<Node,String> ids,
-                                    AtomicInteger ctr) {
+                                    AtomicInteger ctr,
+                                    Map<Node,String> analysis) {
         String id = "n" + ctr.getAndIncrement();
         ids.put(n, id);
 
         StringBuilder lbl = new StringBuilder(n.type.name());
-        if (n.text != null) lbl.append(":").append(n.text);
-        lbl.append("\\npos=").append(n.pos);
-        lbl.append("\\nnull=").append(n.nullable);
-        lbl.append("\\nf=").append(n.first);
-        lbl.append("\\nl=").append(n.last);
+        if (n.text != null) lbl.append(":").append(n.type == NodeType.CLASS ? CharClass.format(n.text) : n.text);
+        if (analysis != null) lbl.append(analysis.get(n));
 
         sb.append(String.format("  %s [label=\"%s\"];\n", id, lbl));
 
         if (n.left != null) {
-            buildDotAst(n.left, sb, ids, ctr);
+            buildDotAst(n.left, sb, ids, ctr, analysis);
             sb.append(String.format("  %s -> %s;\n", id, ids.get(n.left)));
         }
         if (n.right != null) {
-            buildDotAst(n.right, sb, ids, ctr);
+            buildDotAst(n.right, sb, ids, ctr, analysis);
             sb.append(String.format("  %s -> %s;\n", id, ids.get(n.right)));
         }
     }
@@ -90,10 +123,11 @@ public final class GraphVizRenderer {
         // рёбра по символам
         for (int i = 0; i < states.size(); i++) {
             DFAState s = states.get(i);
-            for (var e : s.charTrans().entrySet()) {
-                char c = e.getKey();
-                int to = e.getValue();
-                String lbl = escape(c);
+            IntervalMap trans = IntervalMap.of(s.charTrans());
+            for (int r = 0; r < trans.count(); r++) {
+                char lo = trans.lo(r), hi = trans.hi(r);
+                int to = trans.target(r);
+                String lbl = lo == hi ? escape(lo) : escape(lo) + "-" + escape(hi);
                 sb.append(String.format("  %s%d -> %s%d [label=\"%s\"];\n",
                         prefix, i, prefix, to, lbl));
             }
@@ -0,0 +1,394 @@
+package lab2at.util;
+
+import lab2at.dfa.DFAOperations;
+import lab2at.dfa.DFATable;
+import lab2at.dfa.TaggedCompiler;
+import lab2at.dfa.TaggedDFA;
+import lab2at.lib.RegexLib;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+// Генератор Java-класса под один шаблон (как JFlex в Lab1AT): минимальные ДКА зашиты в класс
+// упакованной строкой, в рантайме нужен только сам класс — без RegexLib и без компиляции.
+// Поведение как у RegexLib: match — групповым раннером, search — неякорным ДКА; группы разбираются
+// только на найденном search совпадении — раннером, а если он его не разбирает, ДКА с тегами
+public final class MatcherSourceGenerator {
+    private static final int CHUNK = 16_000; // строковая константа в class-файле — до 65535 байт UTF-8
+
+    private MatcherSourceGenerator() {}
+
+    // args: шаблон, полное имя класса, каталог для исходников
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || args[0].isEmpty() || args[1].isEmpty()) {
+            System.out.println("Использование: MatcherSourceGenerator <шаблон> <пакет.Класс> <каталог>");
+            return;
+        }
+        Path file = write(RegexLib.compile(args[0]), args[1], Paths.get(args[2]));
+        System.out.println("Класс сопоставителя записан в " + file);
+    }
+
+    public static Path write(RegexLib lib, String qualifiedName, Path outDir) throws IOException {
+        int dot = qualifiedName.lastIndexOf('.');
+        String pkg = dot < 0 ? "" : qualifiedName.substring(0, dot);
+        String name = qualifiedName.substring(dot + 1);
+        Path dir = pkg.isEmpty() ? outDir : outDir.resolve(pkg.replace('.', '/'));
+        Files.createDirectories(dir);
+        Path file = dir.resolve(name + ".java");
+        Files.writeString(file, generate(lib, pkg, name));
+        return file;
+    }
+
+    public static String generate(RegexLib lib, String pkg, String name) {
+        List<DFATable> tables = new ArrayList<>(lib.getRunner().getTables());
+        DFATable flat = lib.getFlatTable();
+        // для альтернатив литералов RegexLib ищет Ахо–Корасиком: здесь хватит неякорного ДКА
+        tables.add(lib.getSearchTable() != null ? lib.getSearchTable() : DFAOperations.unanchored(flat));
+        tables.add(lib.getReverseTable() != null ? lib.getReverseTable() : DFAOperations.reverse(flat));
+
+        List<Integer> data = new ArrayList<>();
+        data.add(tables.size());
+        for (DFATable t : tables) pack(t, data);
+        TaggedDFA tagged = tagged(lib);
+        data.add(tagged == null ? 0 : 1);
+        if (tagged != null) pack(tagged, data);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("// Сгенерировано MatcherSourceGenerator (Lab2AT), не редактировать\n");
+        sb.append("// Шаблон: ").append(literal(lib.getPattern())).append("\n");
+        if (!pkg.isEmpty()) sb.append("package ").append(pkg).append(";\n\n");
+        sb.append("import java.util.*;\n\n");
+        sb.append("public final class ").append(name).append(" {\n");
+        sb.append("    public static final String PATTERN = ").append(literal(lib.getPattern())).append(";\n");
+        sb.append("    private static final int MAIN = ").append(lib.getMainDFAId()).append(";\n");
+        sb.append("    private static final int SEARCH = ").append(tables.size() - 2).append(";\n");
+        sb.append("    private static final int REVERSE = ").append(tables.size() - 1).append(";\n");
+        sb.append("    private static final String PREFIX = ").append(literal(lib.getLiteralPrefix())).append(";\n");
+        sb.append("    private static final String[] GROUP_NAMES = {");
+        List<String> names = lib.getGroupNames();
+        for (int i = 0; i < names.size(); i++) sb.append(i == 0 ? "" : ", ").append(literal(names.get(i)));
+        sb.append("};\n");
+        sb.append("    private static final int[] GROUP_DFA = {");
+        for (int i = 0; i < names.size(); i++)
+            sb.append(i == 0 ? "" : ", ").append(lib.getNameToDfaId().get(names.get(i)));
+        sb.append("};\n");
+        // куски массивом: сумму строковых констант javac склеил бы в одну и уперся в тот же предел
+        sb.append("    private static final String[] DATA = {");
+        String packed = packString(data);
+        for (int i = 0; i < packed.length(); i += CHUNK) {
+            sb.append(i == 0 ? "\n            " : ",\n            ")
+                    .append(literal(packed.substring(i, Math.min(packed.length(), i + CHUNK))));
+        }
+        sb.append("};\n");
+        sb.append(SKELETON.replace("$NAME$", name));
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    // таблица: число классов и состояний, диапазоны классов (lo, hi, класс), next, accept, группы
+    private static void pack(DFATable t, List<Integer> out) {
+        int k = t.classCount();
+        int n = t.stateCount();
+        out.add(k);
+        out.add(n);
+        List<int[]> ranges = new ArrayList<>();
+        for (int cls = 1; cls < k; cls++) {
+            char[] r = t.alphabet().ranges(cls);
+            for (int i = 0; i < r.length; i += 2) ranges.add(new int[]{r[i], r[i + 1], cls});
+        }
+        out.add(ranges.size());
+        for (int[] r : ranges) for (int v : r) out.add(v);
+        for (int st = 0; st < n; st++)
+            for (int cls = 0; cls < k; cls++) out.add(t.next(st, cls));
+        for (int st = 0; st < n; st++) out.add(t.accept(st) ? 1 : 0);
+        for (int st = 0; st < n; st++) out.add(t.groupDfa(st));
+        for (int st = 0; st < n; st++) out.add(t.groupRet(st));
+    }
+
+    // как RegexLib.taggedDFA: null — дерева нет (intersect) или автомат с тегами слишком велик
+    private static TaggedDFA tagged(RegexLib lib) {
+        if (lib.getMainRoot() == null) return null;
+        try {
+            return TaggedCompiler.compile(lib.getMainRoot(), lib.getGroupDefs(), lib.getGroupNames());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // ДКА с тегами: число классов, состояний, регистров и тегов, диапазоны классов, next,
+    // операции каждого перехода (число, пары dst, src), финальные теги (флаг, регистры)
+    private static void pack(TaggedDFA t, List<Integer> out) {
+        int k = t.alphabet().size();
+        int n = t.stateCount();
+        out.add(k);
+        out.add(n);
+        out.add(t.registerCount());
+        out.add(t.captureCount());
+        List<int[]> ranges = new ArrayList<>();
+        for (int cls = 1; cls < k; cls++) {
+            char[] r = t.alphabet().ranges(cls);
+            for (int i = 0; i < r.length; i += 2) ranges.add(new int[]{r[i], r[i + 1], cls});
+        }
+        out.add(ranges.size());
+        for (int[] r : ranges) for (int v : r) out.add(v);
+        for (int st = 0; st < n; st++)
+            for (int cls = 0; cls < k; cls++) out.add(t.next(st, cls));
+        for (int st = 0; st < n; st++) {
+            for (int cls = 0; cls < k; cls++) {
+                int[] ops = t.ops(st, cls);
+                out.add(ops.length / 2);
+                for (int v : ops) out.add(v);
+            }
+        }
+        for (int st = 0; st < n; st++) {
+            int[] tags = t.finalTags(st);
+            out.add(tags == null ? 0 : 1);
+            if (tags != null) for (int v : tags) out.add(v);
+        }
+    }
+
+    // int -> два символа: старшие и младшие 16 бит
+    private static String packString(List<Integer> data) {
+        StringBuilder sb = new StringBuilder(data.size() * 2);
+        for (int v : data) sb.append((char) (v >>> 16)).append((char) v);
+        return sb.toString();
+    }
+
+    // \\uXXXX javac раскрывает до разбора строк: \\u000a или \\u0022 сломали бы литерал, поэтому младшие — восьмеричными
+    private static String literal(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c >= 0x20 && c < 0x7F) sb.append(c);
+            else if (c < 0x100) sb.append(String.format("\\%03o", (int) c));
+            else sb.append(String.format("\\u%04x", (int) c));
+        }
+        return sb.append('"').toString();
+    }
+
+    // Рантайм сгенерированного класса: те же проходы, что у DFARunner и RegexLib
+    private static final String SKELETON = """
+
+                private static final int DEAD = -1, NO_GROUP = -1;
+                private static final int[] CLASS_COUNT;
+                private static final char[][][] CLASSES; // старший байт -> блок из 256 классов
+                private static final int[][] NEXT, GROUP_TO, GROUP_RET;
+                private static final boolean[][] ACCEPT;
+                // ДКА с тегами (как TaggedDFA), TAGGED_NEXT == null — его нет
+                private static final char[][] TAGGED_CLASSES;
+                private static final int TAGGED_K, REGISTERS, CAPTURES;
+                private static final int[] TAGGED_NEXT, OP_START, OPS;
+                private static final int[][] FINAL_TAGS;
+
+                static {
+                    String data = String.join("", DATA);
+                    int[] d = new int[data.length() / 2];
+                    for (int i = 0; i < d.length; i++) d[i] = data.charAt(2 * i) << 16 | data.charAt(2 * i + 1);
+                    int p = 0;
+                    int count = d[p++];
+                    CLASS_COUNT = new int[count];
+                    CLASSES = new char[count][][];
+                    NEXT = new int[count][];
+                    GROUP_TO = new int[count][];
+                    GROUP_RET = new int[count][];
+                    ACCEPT = new boolean[count][];
+                    for (int t = 0; t < count; t++) {
+                        int k = CLASS_COUNT[t] = d[p++];
+                        int n = d[p++];
+                        char[][] blocks = CLASSES[t] = new char[256][];
+                        for (int r = d[p++]; r > 0; r--, p += 3) {
+                            for (int c = d[p]; c <= d[p + 1]; c++) {
+                                if (blocks[c >>> 8] == null) blocks[c >>> 8] = new char[256];
+                                blocks[c >>> 8][c & 0xFF] = (char) d[p + 2];
+                            }
+                        }
+                        NEXT[t] = Arrays.copyOfRange(d, p, p += n * k);
+                        ACCEPT[t] = new boolean[n];
+                        for (int s = 0; s < n; s++) ACCEPT[t][s] = d[p++] != 0;
+                        GROUP_TO[t] = Arrays.copyOfRange(d, p, p += n);
+                        GROUP_RET[t] = Arrays.copyOfRange(d, p, p += n);
+                    }
+                    if (d[p++] == 0) {
+                        TAGGED_CLASSES = null;
+                        TAGGED_K = REGISTERS = CAPTURES = 0;
+                        TAGGED_NEXT = OP_START = OPS = null;
+                        FINAL_TAGS = null;
+                    } else {
+                        int k = TAGGED_K = d[p++];
+                        int n = d[p++];
+                        REGISTERS = d[p++];
+                        CAPTURES = d[p++];
+                        char[][] blocks = TAGGED_CLASSES = new char[256][];
+                        for (int r = d[p++]; r > 0; r--, p += 3) {
+                            for (int c = d[p]; c <= d[p + 1]; c++) {
+                                if (blocks[c >>> 8] == null) blocks[c >>> 8] = new char[256];
+                                blocks[c >>> 8][c & 0xFF] = (char) d[p + 2];
+                            }
+                        }
+                        TAGGED_NEXT = Arrays.copyOfRange(d, p, p += n * k);
+                        OP_START = new int[n * k + 1];
+                        int[] ops = new int[d.length - p]; // пар не больше, чем осталось данных
+                        int size = 0;
+                        for (int idx = 0; idx < n * k; idx++) {
+                            int opCount = d[p++];
+                            System.arraycopy(d, p, ops, 2 * size, 2 * opCount);
+                            p += 2 * opCount;
+                            OP_START[idx + 1] = size += opCount;
+                        }
+                        OPS = Arrays.copyOf(ops, 2 * size);
+                        FINAL_TAGS = new int[n][];
+                        for (int s = 0; s < n; s++)
+                            if (d[p++] != 0) FINAL_TAGS[s] = Arrays.copyOfRange(d, p, p += CAPTURES);
+                    }
+                }
+
+                private $NAME$() {}
+
+                public static boolean match(CharSequence input) {
+                    return matchPrefix(input, 0, input.length(), null) == input.length();
+                }
+
+                // самое левое, затем самое длинное совпадение
+                public static String search(String text) {
+                    int[] span = locate(text);
+                    return span == null ? null : text.substring(span[0], span[1]);
+                }
+
+                // имя группы -> подстрока (null — группа не совпала), null — совпадений нет.
+                // Группы — один разбор ровно найденного совпадения [начало, конец), как RegexLib.groups:
+                // жадным раннером, а если он его не разбирает, ДКА с тегами
+                public static Map<String, String> searchWithGroups(String text) {
+                    int[] span = locate(text);
+                    if (span == null) return null;
+                    Map<String, String> map = new LinkedHashMap<>();
+                    int[][] subs = new int[NEXT.length][];
+                    if (matchPrefix(text, span[0], span[1], subs) == span[1] - span[0]) {
+                        for (int g = 0; g < GROUP_NAMES.length; g++) {
+                            int[] sub = subs[GROUP_DFA[g]];
+                            boolean matched = sub != null && sub[1] >= 0;
+                            map.put(GROUP_NAMES[g], matched ? text.substring(span[0] + sub[0], span[0] + sub[1]) : null);
+                        }
+                        return map;
+                    }
+                    int[] captures = new int[CAPTURES];
+                    boolean parsed = TAGGED_NEXT != null
+                            && taggedMatch(text, span[0], span[1], captures) == span[1] - span[0];
+                    for (int g = 0; g < GROUP_NAMES.length; g++) {
+                        boolean matched = parsed && captures[2 * g] >= 0 && captures[2 * g + 1] >= 0;
+                        map.put(GROUP_NAMES[g], matched ? text.substring(captures[2 * g], captures[2 * g + 1]) : null);
+                    }
+                    return map;
+                }
+
+                private static int[] locate(String text) {
+                    if (text.isEmpty()) return null;
+                    int end = searchEnd(text);
+                    return end < 0 ? null : new int[]{matchBackward(text, end), end};
+                }
+
+                private static int classOf(int t, char c) {
+                    char[] block = CLASSES[t][c >>> 8];
+                    return block == null ? 0 : block[c & 0xFF];
+                }
+
+                // пока живых потоков нет, перепрыгиваем к следующему вхождению обязательного префикса
+                private static int searchEnd(String str) {
+                    int[] next = NEXT[SEARCH];
+                    boolean[] accept = ACCEPT[SEARCH];
+                    int k = CLASS_COUNT[SEARCH];
+                    int st = 0;
+                    int end = accept[0] ? 0 : -1;
+                    for (int i = 0, len = str.length(); i < len; i++) {
+                        if (st == 0 && !PREFIX.isEmpty()) {
+                            i = str.indexOf(PREFIX, i);
+                            if (i < 0) break;
+                        }
+                        st = next[st * k + classOf(SEARCH, str.charAt(i))];
+                        if (st == DEAD) break;
+                        if (accept[st]) end = i + 1;
+                    }
+                    return end;
+                }
+
+                private static int matchBackward(String str, int end) {
+                    int[] next = NEXT[REVERSE];
+                    int k = CLASS_COUNT[REVERSE];
+                    int st = 0;
+                    int start = ACCEPT[REVERSE][0] ? end : -1;
+                    for (int i = end - 1; i >= 0; i--) {
+                        st = next[st * k + classOf(REVERSE, str.charAt(i))];
+                        if (st == DEAD) break;
+                        if (ACCEPT[REVERSE][st]) start = i;
+                    }
+                    return start;
+                }
+
+                // как DFARunner.matchPrefix: длина совпадения в [from, to) или -1, subs[id ДКА группы] = {начало, конец}
+                private static int matchPrefix(CharSequence str, int from, int to, int[][] subs) {
+                    Deque<int[]> stack = new ArrayDeque<>(); // {ДКА, состояние возврата, группа}
+                    int dfa = MAIN;
+                    int st = 0;
+                    int i = from;
+                    while (true) {
+                        int[] next = NEXT[dfa];
+                        int k = CLASS_COUNT[dfa];
+                        while (i < to) {
+                            int target = next[st * k + classOf(dfa, str.charAt(i))];
+                            if (target == DEAD) break;
+                            st = target;
+                            i++;
+                        }
+                        int sub = GROUP_TO[dfa][st];
+                        if (sub != NO_GROUP) {
+                            stack.push(new int[]{dfa, GROUP_RET[dfa][st], sub});
+                            if (subs != null) subs[sub] = new int[]{i - from, -1};
+                            dfa = sub;
+                            st = 0;
+                            continue;
+                        }
+                        if (!ACCEPT[dfa][st]) return -1;
+                        if (stack.isEmpty()) return i - from;
+                        int[] frame = stack.pop();
+                        if (subs != null) subs[frame[2]][1] = i - from;
+                        dfa = frame[0];
+                        st = frame[1];
+                    }
+                }
+
+                // как TaggedDFA.matchPrefix: длина самого длинного совпадения в [from, to) или -1,
+                // captures[2g], captures[2g + 1] — границы группы g в str
+                private static int taggedMatch(CharSequence str, int from, int to, int[] captures) {
+                    int[] regs = new int[REGISTERS];
+                    Arrays.fill(regs, -1);
+                    int length = -1;
+                    if (FINAL_TAGS[0] != null) {
+                        length = 0;
+                        capture(FINAL_TAGS[0], regs, from, captures);
+                    }
+                    int st = 0;
+                    for (int i = from; i < to; i++) {
+                        char c = str.charAt(i);
+                        char[] block = TAGGED_CLASSES[c >>> 8];
+                        int idx = st * TAGGED_K + (block == null ? 0 : block[c & 0xFF]);
+                        st = TAGGED_NEXT[idx];
+                        if (st == DEAD) break;
+                        for (int j = OP_START[idx]; j < OP_START[idx + 1]; j++) {
+                            int src = OPS[2 * j + 1];
+                            regs[OPS[2 * j]] = src == -1 ? i : regs[src];
+                        }
+                        if (FINAL_TAGS[st] != null) {
+                            length = i + 1 - from;
+                            capture(FINAL_TAGS[st], regs, i + 1, captures);
+                        }
+                    }
+                    return length;
+                }
+
+                private static void capture(int[] tags, int[] regs, int pos, int[] captures) {
+                    for (int t = 0; t < tags.length; t++) captures[t] = tags[t] == -1 ? pos : regs[tags[t]];
+                }
+            """;
+}
@@ -3,10 +3,17 @@ package astTests;
 import lab2at.ast.*;
 import lab2at.lexer.Lexer;
 import lab2at.parser.RegexParser;
+import lab2at.util.GraphVizRenderer;
 import org.junit.jupiter.api.Test;
 import util.TestUtil;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class RegexParserTest {
 
@@ -68,6 +75,54 @@ class RegexParserTest {
         AstAssert.assertAstEquals(expected, actual);
     }
 
+    @Test
+    void repeatKeepsBodyOnce() {
+        Node body = new Node(NodeType.OR,
+                new Node(NodeType.LITERAL, "a"),
+                new Node(NodeType.LITERAL, "b"));
+        AstAssert.assertAstEquals(new Node(NodeType.REPEAT, "500,500", body, null), init("(a|b){500}"));
+        AstAssert.assertAstEquals(new Node(NodeType.REPEAT, "2,4", body, null), init("(a|b){2,4}"));
+        AstAssert.assertAstEquals(new Node(NodeType.LITERAL, "a"), init("a{1,1}"));
+        AstAssert.assertAstEquals(new Node(NodeType.NULL_REPEAT, null), init("a{0,0}"));
+    }
+
+    @Test
+    void arenaIsPostOrder() {
+        Arena a = Arena.of(init("(ab)...c")); // a b CONCAT KLEENE c CONCAT
+        assertEquals(6, a.size());
+        assertEquals(5, a.root());
+        assertEquals(NodeType.KLEENE, a.type(3));
+        assertEquals(2, a.left[3]);
+        assertEquals(-1, a.right[3]);
+        assertEquals(0, a.left[2]);
+        assertEquals(1, a.right[2]);
+        assertEquals(3, a.left[5]);
+        assertEquals(4, a.right[5]);
+        assertEquals("c", a.text(4));
+        assertEquals(-1, a.pos[4]); // позиции дает компилятор
+    }
+
+    @Test
+    void characterClassIsOneNode() {
+        AstAssert.assertAstEquals(new Node(NodeType.CLASS, "09__az"), init("[a-z_0-9]"));
+        AstAssert.assertAstEquals(new Node(NodeType.CLASS, "--ac"), init("[a-c-]"));
+        AstAssert.assertAstEquals(new Node(NodeType.CLASS, "\0`c\uffff"), init("[^ab]"));
+        AstAssert.assertAstEquals(new Node(NodeType.CLASS, "]]"), init("[%]%]"));
+        assertThrows(IllegalArgumentException.class, () -> init("[z-a]"));
+        assertThrows(IllegalArgumentException.class, () -> init("[]"));
+        assertThrows(IllegalArgumentException.class, () -> init("[ab"));
+    }
+
+    @Test
+    void wildcardIsClassWithoutNewline() {
+        Node expected = new Node(NodeType.CONCAT,
+                new Node(NodeType.CLASS, CharClass.ANY),
+                new Node(NodeType.KLEENE, new Node(NodeType.LITERAL, "a"), null));
+        AstAssert.assertAstEquals(expected, init(".a..."));
+        assertEquals(".", CharClass.format(init(".").text));
+        assertEquals("[^a-c]", CharClass.format(init("[^abc]").text));
+    }
+
     @Test
     void repeatWithNoNumber() {
         assertThrows(IllegalArgumentException.class, () -> init("a{b}"));
@@ -78,6 +133,24 @@ class RegexParserTest {
         assertThrows(IllegalArgumentException.class, () -> init("a{3"));
     }
 
+    @Test
+    void renderedTreeShowsPositionSets() throws Exception {
+        Path dir = Files.createTempDirectory("ast");
+        Path png = dir.resolve("tree.png");
+        try {
+            GraphVizRenderer.renderAst(init("(a|b)...c"), png.toString());
+        } catch (IOException e) {
+            // без graphviz картинки нет, но .dot уже записан
+        }
+        String dot = Files.readString(dir.resolve("tree.png.dot"));
+        Files.delete(dir.resolve("tree.png.dot"));
+        Files.deleteIfExists(png);
+        Files.delete(dir);
+        assertTrue(dot.contains("LITERAL:a\\npos=1\\nnull=false\\nf=[1]\\nl=[1]"), dot);
+        assertTrue(dot.contains("KLEENE\\npos=-1\\nnull=true\\nf=[1, 2]\\nl=[1, 2]"), dot);
+        assertTrue(dot.contains("CONCAT\\npos=-1\\nnull=false\\nf=[1, 2, 3]\\nl=[3]"), dot);
+    }
+
     @Test
     void emptyNamedGroupShouldFail() {
         assertThrows(IllegalStateException.class, () -> init("(<digit>)"));
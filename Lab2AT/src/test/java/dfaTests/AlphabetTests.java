@@ -0,0 +1,50 @@
+package dfaTests;
+
+import lab2at.dfa.Alphabet;
+import lab2at.dfa.DFATable;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlphabetTests {
+
+    @Test
+    void testPartitionOverlappingRanges() {
+        // [a-f] и [d-z] -> {a-c}, {d-f}, {g-z} и остальные
+        Alphabet a = Alphabet.partition(List.of(new char[]{'a', 'f'}, new char[]{'d', 'z'}));
+        assertEquals(4, a.size());
+        assertEquals(a.classOf('a'), a.classOf('c'));
+        assertNotEquals(a.classOf('c'), a.classOf('d'));
+        assertEquals(a.classOf('d'), a.classOf('f'));
+        assertEquals(a.classOf('g'), a.classOf('z'));
+        assertEquals(0, a.classOf('A'));
+        assertEquals(0, a.classOf('中'));
+        assertArrayEquals(new char[]{'d', 'f'}, a.ranges(a.classOf('e')));
+    }
+
+    @Test
+    void testIndistinguishableLettersShareClass() {
+        RegexLib lib = RegexLib.compile("(a|b|c|d|e|f|g|h)...x");
+        DFATable t = lib.getRunner().getTables().get(lib.getMainDFAId());
+        assertEquals(3, t.classCount()); // мертвый, {a-h}, {x}
+        assertEquals(t.classOf('a'), t.classOf('h'));
+        assertNotEquals(t.classOf('a'), t.classOf('x'));
+
+        assertTrue(lib.match("abhgx"));
+        assertTrue(lib.match("x"));
+        assertFalse(lib.match("abix"));
+    }
+
+    @Test
+    void testDistinguishableLettersKeepOwnClass() {
+        RegexLib lib = RegexLib.compile("ab|ba");
+        DFATable t = lib.getRunner().getTables().get(lib.getMainDFAId());
+        assertNotEquals(t.classOf('a'), t.classOf('b'));
+        assertTrue(lib.match("ab"));
+        assertTrue(lib.match("ba"));
+        assertFalse(lib.match("aa"));
+    }
+}
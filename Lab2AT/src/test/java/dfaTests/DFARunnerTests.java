@@ -0,0 +1,62 @@
+package dfaTests;
+
+import lab2at.dfa.DFARunner;
+import lab2at.dfa.DFARunner.PrefixMatch;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DFARunnerTests {
+
+    private static int slot(RegexLib lib, String name) {
+        return lib.getRunner().slotOf(lib.getNameToDfaId().get(name));
+    }
+
+    @Test
+    void testCapturesAreAbsoluteOffsetsInSlots() {
+        RegexLib lib = RegexLib.compile("(<k>a...)=(<v>b...)");
+        DFARunner runner = lib.getRunner();
+        assertEquals(2, runner.groupCount());
+        PrefixMatch m = runner.newMatch();
+        assertEquals(4, m.captures.length);
+
+        assertEquals(5, runner.matchPrefix("--aa=bbz", 2, lib.getMainDFAId(), m));
+        assertEquals(2, m.start(slot(lib, "k")));
+        assertEquals(4, m.end(slot(lib, "k")));
+        assertEquals(5, m.start(slot(lib, "v")));
+        assertEquals(7, m.end(slot(lib, "v")));
+    }
+
+    @Test
+    void testReusedMatchIsResetOnFailure() {
+        RegexLib lib = RegexLib.compile("x(<v>b)|xc");
+        DFARunner runner = lib.getRunner();
+        PrefixMatch m = runner.newMatch();
+        assertEquals(2, runner.matchPrefix("xb", 0, lib.getMainDFAId(), m));
+        assertEquals(1, m.start(slot(lib, "v")));
+        assertEquals(-1, runner.matchPrefix("xa", 0, lib.getMainDFAId(), m));
+        assertEquals(-1, m.length);
+        assertEquals(2, runner.matchPrefix("xc", 0, lib.getMainDFAId(), m));
+        assertEquals(-1, m.start(slot(lib, "v"))); // от прошлого разбора ничего не осталось
+        assertEquals(-1, m.end(slot(lib, "v")));
+    }
+
+    @Test
+    void testFailedAttemptsDoNotAllocate() {
+        RegexLib lib = RegexLib.compile("(<k>a...)=(<v>b...);");
+        DFARunner runner = lib.getRunner();
+        PrefixMatch m = runner.newMatch();
+        String text = "aab=bb?".repeat(200);
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = -1;
+        for (int round = 0; round < 3; round++) { // первые круги — прогрев
+            long before = bean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < text.length(); i++) runner.matchPrefix(text, i, lib.getMainDFAId(), m);
+            allocated = bean.getCurrentThreadAllocatedBytes() - before;
+        }
+        assertEquals(0, allocated);
+    }
+}
@@ -0,0 +1,44 @@
+package dfaTests;
+
+import lab2at.dfa.DFATable;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DFATableTests {
+
+    private static DFATable mainTable(RegexLib lib) {
+        return lib.getRunner().getTables().get(lib.getMainDFAId());
+    }
+
+    @Test
+    void testTableMirrorsStates() {
+        RegexLib lib = RegexLib.compile("ab...c");
+        DFATable t = mainTable(lib);
+        assertEquals(lib.getAllDFA().get(lib.getMainDFAId()).size(), t.stateCount());
+
+        int s1 = t.next(0, t.classOf('a'));
+        assertNotEquals(DFATable.DEAD, s1);
+        assertEquals(s1, t.next(s1, t.classOf('b'))); // петля по b
+        assertTrue(t.accept(t.next(s1, t.classOf('c'))));
+    }
+
+    @Test
+    void testForeignCharIsDead() {
+        DFATable t = mainTable(RegexLib.compile("abc"));
+        assertEquals(0, t.classOf('z'));
+        assertEquals(0, t.classOf('\uffff'));
+        assertEquals(DFATable.DEAD, t.next(0, t.classOf('z')));
+        assertEquals(DFATable.DEAD, t.next(0, t.classOf('b')));
+    }
+
+    @Test
+    void testAcceptFlags() {
+        DFATable t = mainTable(RegexLib.compile("a?"));
+        assertTrue(t.accept(0));
+        int s1 = t.next(0, t.classOf('a'));
+        assertTrue(t.accept(s1));
+        assertEquals(DFATable.DEAD, t.next(s1, t.classOf('a')));
+    }
+}
@@ -1,8 +1,22 @@
 package dfaTests;
 
+import lab2at.ast.Arena;
+import lab2at.dfa.IntervalMap;
+import lab2at.dfa.PosSet;
+import lab2at.dfa.TreeAnalyzer;
+import lab2at.lexer.Lexer;
+import lab2at.lib.LazyRegex;
 import lab2at.lib.RegexLib;
+import lab2at.lib.TaggedRegex;
+import lab2at.parser.RegexParser;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class DFATests {
@@ -51,4 +65,189 @@ class DFATests {
         assertFalse(matches(pat, "acc"));
         assertFalse(matches(pat, "abclott?l"));
     }
+
+    @Test
+    void testBoundedRepeatLikeJavaRegex() {
+        // шаблон и тот же шаблон для java.util.regex
+        String[][] pairs = {
+                {"(a|bc){2,4}d", "(a|bc){2,4}d"},
+                {"(ab...){1,3}", "(ab*){1,3}"},
+                {"(a?b){0,3}c", "(a?b){0,3}c"},
+                {"((ab){2}c){1,2}", "((ab){2}c){1,2}"},
+                {"(a{2,3})...b", "(a{2,3})*b"},
+                {"(b?){2,3}a", "(b?){2,3}a"},
+                {"(a(<g>b|c){3}){2}", "(a(b|c){3}){2}"},
+                {"a{3}|a{5,6}", "a{3}|a{5,6}"}};
+        Random rnd = new Random(21);
+        for (String[] pair : pairs) {
+            RegexLib lib = RegexLib.compile(pair[0]);
+            LazyRegex lazy = LazyRegex.compile(pair[0], 64);
+            TaggedRegex tagged = TaggedRegex.from(lib);
+            Pattern java = Pattern.compile(pair[1]);
+            for (int n = 0; n < 400; n++) {
+                StringBuilder sb = new StringBuilder();
+                for (int j = rnd.nextInt(14); j > 0; j--) sb.append("abcd".charAt(rnd.nextInt(4)));
+                String text = sb.toString();
+                boolean expected = java.matcher(text).matches();
+                assertEquals(expected, lib.match(text), pair[0] + " on " + text);
+                assertEquals(expected, lazy.match(text), pair[0] + " on " + text);
+                assertEquals(expected, tagged.match(text), pair[0] + " on " + text);
+            }
+        }
+    }
+
+    @Test
+    void testLargeRepeatIsCompiledOnce() {
+        RegexLib lib = RegexLib.compile("(a|b|c){3000,3002}");
+        assertEquals(3003, lib.getFlatDFA().size()); // по состоянию на длину 0..3002
+        assertTrue(lib.match("abc".repeat(1000)));
+        assertTrue(lib.match("abc".repeat(1000) + "ab"));
+        assertFalse(lib.match("abc".repeat(1001)));
+        assertFalse(lib.match("ab".repeat(1000)));
+
+        RegexLib groups = RegexLib.compile("(<d>a|b|c){3000}");
+        assertEquals(3001, groups.getAllDFA().get(groups.getMainDFAId()).size());
+        assertTrue(groups.match("abc".repeat(1000)));
+        assertEquals("c", groups.searchWithGroups("abc".repeat(1000)).group("d"));
+    }
+
+    @Test
+    void testHugeGeneratedPatternsDoNotOverflowStack() {
+        Random rnd = new Random(7);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) text.append((char) ('a' + rnd.nextInt(26)));
+        RegexLib literal = RegexLib.compile(text.toString()); // цепочка CONCAT глубиной 20000
+        assertTrue(literal.match(text.toString()));
+        assertFalse(literal.match(text.substring(1)));
+
+        StringBuilder alt = new StringBuilder();
+        for (int i = 0; i < 4000; i++) alt.append(i > 0 ? "|" : "").append(text, 5 * i, 5 * i + 4).append("[0-9]");
+        RegexLib words = RegexLib.compile(alt.toString()); // цепочка OR из 4000 альтернатив
+        assertTrue(words.match(text.substring(4 * 5, 4 * 5 + 4) + "7"));
+        assertFalse(words.match(text.substring(4 * 5, 4 * 5 + 4) + "x"));
+    }
+
+    @Test
+    void testHugeLiteralCompilesInBoundedHeap() throws Exception {
+        // отдельная JVM с маленькой кучей: состояния с BitSet позиций занимали бы ~10^5 * 12 КБ
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process p = new ProcessBuilder(java, "-Xmx256m", "-cp", System.getProperty("java.class.path"),
+                HugeLiteral.class.getName()).redirectErrorStream(true).start();
+        String out = new String(p.getInputStream().readAllBytes());
+        assertEquals(0, p.waitFor(), out);
+        assertEquals("ok", out.strip());
+    }
+
+    static final class HugeLiteral {
+        public static void main(String[] args) {
+            Random rnd = new Random(25);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 100_000; i++) sb.append((char) ('a' + rnd.nextInt(26)));
+            String word = sb.toString();
+            RegexLib lib = RegexLib.compile(word);
+            boolean ok = lib.match(word) && !lib.match(word.substring(1))
+                    && word.equals(lib.search("xy" + word + "z"));
+            System.out.println(ok ? "ok" : "wrong result");
+            System.exit(ok ? 0 : 1);
+        }
+    }
+
+    @Test
+    void testFollowPosSharesFirstSets() {
+        Arena tree = Arena.of(new RegexParser(new Lexer("(a|b|c)...d").scan()).parse());
+        List<List<PosSet>> follow = new ArrayList<>();
+        for (int n = 0, p = 1; n < tree.size(); n++) // позиции листьев слева направо, как у компилятора
+            if (tree.left[n] < 0) tree.pos[n] = p++;
+        for (int p = 0; p <= 4; p++) follow.add(new ArrayList<>());
+        TreeAnalyzer analyzer = new TreeAnalyzer(tree, follow);
+        analyzer.analyze();
+
+        assertEquals("[1, 2, 3, 4]", analyzer.first(tree.root()).toString());
+        PosSet loop = follow.get(1).get(0); // first(KLEENE) хранится один раз на все last
+        for (int p = 1; p <= 3; p++) {
+            assertEquals(2, follow.get(p).size());
+            assertSame(loop, follow.get(p).get(0));
+            assertSame(follow.get(1).get(1), follow.get(p).get(1)); // first(d)
+        }
+        assertEquals("[1, 2, 3]", loop.toString());
+        assertTrue(follow.get(4).isEmpty());
+    }
+
+    @Test
+    void testPatternWithoutGroupsCompilesMainDFAOnce() {
+        RegexLib lib = RegexLib.compile("ab...c|x");
+        assertSame(lib.getRunner().getTables().get(lib.getMainDFAId()), lib.getFlatTable());
+        assertSame(lib.getAllDFA().get(lib.getMainDFAId()), lib.getFlatDFA());
+
+        RegexLib groups = RegexLib.compile("(<g>ab)...c");
+        assertNotSame(groups.getRunner().getTables().get(groups.getMainDFAId()), groups.getFlatTable());
+    }
+
+    @Test
+    void testInvalidRepeatRange() {
+        assertThrows(IllegalArgumentException.class, () -> RegexLib.compile("a{3,2}"));
+        assertThrows(IllegalArgumentException.class, () -> RegexLib.compile("a{2,}"));
+    }
+
+    @Test
+    void testCharacterClassesLikeJavaRegex() {
+        String[][] pairs = {
+                {"[a-zA-Z_][a-zA-Z0-9_]...", "[a-zA-Z_][a-zA-Z0-9_]*"},
+                {"0x[0-9a-fA-F]{1,4}", "0x[0-9a-fA-F]{1,4}"},
+                {"[^ab]...c", "[^ab]*c"},
+                {"[%-%a]b|[b-d]", "[-a]b|[b-d]"},
+                {"(<h>[0-9a-f])x<h>", "[0-9a-f]x[0-9a-f]"}};
+        Random rnd = new Random(22);
+        for (String[] pair : pairs) {
+            RegexLib lib = RegexLib.compile(pair[0]);
+            LazyRegex lazy = LazyRegex.compile(pair[0], 64);
+            TaggedRegex tagged = TaggedRegex.from(lib);
+            Pattern java = Pattern.compile(pair[1]);
+            for (int n = 0; n < 400; n++) {
+                StringBuilder sb = new StringBuilder();
+                for (int j = rnd.nextInt(8); j > 0; j--) sb.append("0x9aAfz_-bcdя".charAt(rnd.nextInt(13)));
+                String text = sb.toString();
+                boolean expected = java.matcher(text).matches();
+                assertEquals(expected, lib.match(text), pair[0] + " on " + text);
+                assertEquals(expected, lazy.match(text), pair[0] + " on " + text);
+                assertEquals(expected, tagged.match(text), pair[0] + " on " + text);
+            }
+        }
+    }
+
+    @Test
+    void testClassIsOnePositionWithIntervalTransitions() {
+        RegexLib lib = RegexLib.compile("[a-zA-Z_][a-zA-Z0-9_]...");
+        assertEquals(2, lib.getFlatDFA().size());
+        // A-Z, _, a-z — три интервала, а не 53 символа
+        assertEquals(3, ((IntervalMap) lib.getFlatDFA().get(0).charTrans()).count());
+        assertEquals(53, lib.getFlatDFA().get(0).charTrans().size());
+        assertTrue(lib.match("_x9"));
+        assertTrue(RegexLib.compile("[^a]").match("\uffff"));
+    }
+
+    @Test
+    void testWildcardLikeJavaRegex() {
+        String[][] pairs = {{"a.c", "a.c"}, {"(.b)...", "(.b)*"}, {".{2,3}x", ".{2,3}x"}, {"[^x]....", "[^x]*."}};
+        Random rnd = new Random(23);
+        for (String[] pair : pairs) {
+            RegexLib lib = RegexLib.compile(pair[0]);
+            Pattern java = Pattern.compile(pair[1], Pattern.UNIX_LINES); // '.' — все, кроме '\n'
+            for (int n = 0; n < 400; n++) {
+                StringBuilder sb = new StringBuilder();
+                for (int j = rnd.nextInt(8); j > 0; j--) sb.append("abcx\n\r\uffff".charAt(rnd.nextInt(7)));
+                String text = sb.toString();
+                assertEquals(java.matcher(text).matches(), lib.match(text), pair[0] + " on " + text);
+            }
+        }
+    }
+
+    @Test
+    void testWildcardTransitionsStayCompact() {
+        RegexLib lib = RegexLib.compile("a.b");
+        IntervalMap any = (IntervalMap) lib.getFlatDFA().get(1).charTrans();
+        assertEquals(2, any.count()); // до '\n' и после
+        assertEquals(65535, any.size());
+        assertTrue(lib.getFlatTable().classCount() <= 4);
+    }
 }
@@ -0,0 +1,65 @@
+package dfaTests;
+
+import lab2at.dfa.DFAMinimizer;
+import lab2at.dfa.DFAState;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinimizerTests {
+
+    private static DFAState state(boolean accept, Map<Character, Integer> ch) {
+        return new DFAState(new int[0], accept, ch, Map.of());
+    }
+
+    private static boolean run(List<DFAState> dfa, String s) {
+        int st = 0;
+        for (char c : s.toCharArray()) {
+            Integer next = dfa.get(st).charTrans().get(c);
+            if (next == null) return false;
+            st = next;
+        }
+        return dfa.get(st).accept();
+    }
+
+    @Test
+    void testCycleCollapsesToFixpoint() {
+        // цикл длины 6 по a, принимаем каждое второе — минимальный ДКА из 2 состояний
+        List<DFAState> raw = new ArrayList<>();
+        for (int i = 0; i < 6; i++) raw.add(state(i % 2 == 0, Map.of('a', (i + 1) % 6)));
+        List<DFAState> min = DFAMinimizer.minimize(raw);
+        assertEquals(2, min.size());
+        assertTrue(run(min, "aaaa"));
+        assertFalse(run(min, "aaa"));
+    }
+
+    @Test
+    void testLanguagePreserved() {
+        Random rnd = new Random(7);
+        List<DFAState> raw = new ArrayList<>();
+        int n = 40;
+        for (int i = 0; i < n; i++)
+            raw.add(state(rnd.nextInt(3) == 0, Map.of('a', rnd.nextInt(n), 'b', rnd.nextInt(n))));
+        List<DFAState> min = DFAMinimizer.minimize(raw);
+        assertTrue(min.size() <= n);
+
+        for (int len = 0; len <= 8; len++) {
+            for (int mask = 0; mask < (1 << len); mask++) {
+                StringBuilder sb = new StringBuilder();
+                for (int j = 0; j < len; j++) sb.append((mask >> j & 1) == 0 ? 'a' : 'b');
+                assertEquals(run(raw, sb.toString()), run(min, sb.toString()), sb.toString());
+            }
+        }
+    }
+
+    @Test
+    void testGroupTransitionsSplitStates() {
+        RegexLib lib = RegexLib.compile("(<g>x)(a<g>|b)");
+        assertTrue(lib.match("xax"));
+        assertTrue(lib.match("xb"));
+        assertFalse(lib.match("xa"));
+    }
+}
@@ -0,0 +1,115 @@
+package libTests;
+
+import lab2at.lib.MatchResult;
+import lab2at.lib.RegexLib;
+import lab2at.util.MatcherSourceGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatcherSourceGeneratorTests {
+    private Path dir;
+
+    @BeforeEach
+    void createDir() throws IOException {
+        dir = Files.createTempDirectory("matcher");
+    }
+
+    @AfterEach
+    void deleteDir() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path f : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(f);
+        }
+    }
+
+    @Test
+    void testGeneratedClassBehavesLikeCompiled() throws Exception {
+        // шаблон и он же для java.util.regex: группы сверяются с ним на найденном search отрезке
+        String[][] patterns = {
+                {"(<num>1...)x", "(?<num>1*)x"},
+                {"abc?(<name1>lo|l)(t{3})%?%...<name1>", "abc?(?<name1>lo|l)(t{3})\\?*(?:lo|l)"},
+                {"cat|dog|bird", "cat|dog|bird"},
+                {"xa...b", "xa*b"},
+                {"(<g>ab)c|a(<h>b...)", "(?<g>ab)c|a(?<h>b*)"},
+                {"(<m>ab|abcd)", "(?<m>ab|abcd)"},
+                {"(<o>lot)?(<d>d...)g", "(?<o>lot)?(?<d>d*)g"}};
+        Random rnd = new Random(17);
+        for (int p = 0; p < patterns.length; p++) {
+            RegexLib lib = RegexLib.compile(patterns[p][0]);
+            Pattern java = Pattern.compile(patterns[p][1]);
+            Class<?> gen = compileGenerated(lib, "Matcher" + p);
+            Method match = gen.getMethod("match", CharSequence.class);
+            Method search = gen.getMethod("search", String.class);
+            Method groups = gen.getMethod("searchWithGroups", String.class);
+            assertEquals(patterns[p][0], gen.getField("PATTERN").get(null));
+
+            List<String> texts = new ArrayList<>(List.of("zabcx", "abcab", "11x1", "lotddx")); // раннер прошел бы дальше совпадения
+            for (int n = 0; n < 400; n++) {
+                StringBuilder sb = new StringBuilder();
+                int len = rnd.nextInt(14);
+                for (int j = 0; j < len; j++) sb.append("abclot?1xdg".charAt(rnd.nextInt(11)));
+                texts.add(sb.toString());
+            }
+            for (String text : texts) {
+                assertEquals(lib.match(text), match.invoke(null, text), text);
+                String found = lib.search(text);
+                assertEquals(found, search.invoke(null, text), text);
+                @SuppressWarnings("unchecked")
+                Map<String, String> actual = (Map<String, String>) groups.invoke(null, text);
+                assertEquals(found == null, actual == null, text);
+                if (found == null) continue;
+                java.util.regex.Matcher expected = java.matcher(found);
+                assertTrue(expected.matches(), text);
+                for (String name : lib.getGroupNames()) assertEquals(expected.group(name), actual.get(name), text);
+            }
+        }
+    }
+
+    @Test
+    void testNonAsciiPatternAndPackage() throws Exception {
+        RegexLib lib = RegexLib.compile("ж(<w>é\"...)");
+        Class<?> gen = compileGenerated(lib, "gen.pkg.Cyr");
+        Method search = gen.getMethod("search", String.class);
+        assertEquals("жé\"\"", search.invoke(null, "xжé\"\"y"));
+        assertNull(search.invoke(null, "жe"));
+    }
+
+    @Test
+    void testLargeAutomatonSplitIntoChunks() throws Exception {
+        RegexLib lib = RegexLib.compile("(a|b)...a" + "(a|b)".repeat(10));
+        assertTrue(MatcherSourceGenerator.generate(lib, "", "Large").contains("\",\n"));
+        Class<?> gen = compileGenerated(lib, "Large");
+        Method match = gen.getMethod("match", CharSequence.class);
+        Method search = gen.getMethod("search", String.class);
+        Random rnd = new Random(3);
+        for (int n = 0; n < 200; n++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = rnd.nextInt(30); j > 0; j--) sb.append(rnd.nextBoolean() ? 'a' : 'b');
+            String text = sb.toString();
+            assertEquals(lib.match(text), match.invoke(null, text), text);
+            assertEquals(lib.search(text), search.invoke(null, text), text);
+        }
+    }
+
+    private Class<?> compileGenerated(RegexLib lib, String qualifiedName) throws Exception {
+        Path source = MatcherSourceGenerator.write(lib, qualifiedName, dir);
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, javac.run(null, null, null, "-encoding", "UTF-8", "-d", dir.toString(), source.toString()));
+        URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()});
+        return loader.loadClass(qualifiedName);
+    }
+}
@@ -0,0 +1,65 @@
+package libTests;
+
+import lab2at.lib.PatternCache;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternCacheTests {
+
+    @Test
+    void testHitsMissesAndLruEviction() {
+        PatternCache cache = new PatternCache(2);
+        RegexLib ab = cache.get("ab");
+        assertSame(ab, cache.get("ab"));
+        cache.get("cd");
+        cache.get("ab"); // теперь самый старый — cd
+        cache.get("ef");
+        assertSame(ab, cache.get("ab"));
+
+        PatternCache.Stats stats = cache.stats();
+        assertEquals(3, stats.hits());
+        assertEquals(3, stats.misses());
+        assertEquals(1, stats.evictions());
+        assertEquals(2, stats.size());
+        assertTrue(stats.loadNanos() > 0);
+
+        cache.get("cd"); // вытеснен — компилируется заново
+        assertEquals(4, cache.stats().misses());
+    }
+
+    @Test
+    void testConcurrentGetsShareOneInstance() throws Exception {
+        PatternCache cache = new PatternCache(16);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<RegexLib>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) futures.add(pool.submit(() -> cache.get("(<d>0|1)...x")));
+            RegexLib first = futures.get(0).get();
+            for (Future<RegexLib> f : futures) {
+                RegexLib lib = f.get();
+                assertSame(first, lib);
+                assertTrue(lib.match("0110x"));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, cache.stats().size());
+    }
+
+    @Test
+    void testSharedCacheAndReverseLeavesOriginalIntact() {
+        RegexLib lib = RegexLib.compileCached("(<g>ab)c");
+        assertSame(lib, RegexLib.compileCached("(<g>ab)c"));
+        RegexLib rev1 = lib.reverse();
+        RegexLib rev2 = lib.reverse();
+        assertTrue(rev1.match("cba"));
+        assertTrue(rev2.match("cba")); // второй reverse — снова от исходного дерева
+        assertTrue(lib.match("abc"));
+        assertTrue(lib.reverse().reverse().match("abc"));
+    }
+}
@@ -0,0 +1,90 @@
+package libTests;
+
+import lab2at.lib.MatchResult;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveLoadTests {
+
+    @Test
+    void testLoadedBehavesLikeCompiled() throws IOException {
+        List<RegexLib> libs = List.of(
+                RegexLib.compile("(<num>1...)x"),
+                RegexLib.compile("abc?(<name1>lo|l)(t{3})%?%...<name1>"),
+                RegexLib.compile("cat|dog|bird"),
+                RegexLib.compile("(<g>ab)c").reverse(),
+                RegexLib.compile("(a|b)...").intersect(RegexLib.compile("a...b...")),
+                RegexLib.compile("[a-c]x?[^ab]..."));
+        Random rnd = new Random(9);
+        for (RegexLib lib : libs) {
+            RegexLib loaded = roundTrip(lib);
+            assertEquals(lib.getPattern(), loaded.getPattern());
+            assertEquals(lib.getGroupNames(), loaded.getGroupNames());
+            for (int n = 0; n < 300; n++) {
+                StringBuilder sb = new StringBuilder();
+                int len = rnd.nextInt(12);
+                for (int j = 0; j < len; j++) sb.append("abclot?1xdg".charAt(rnd.nextInt(11)));
+                String text = sb.toString();
+                assertEquals(lib.match(text), loaded.match(text), text);
+                assertEquals(lib.search(text), loaded.search(text), text);
+            }
+        }
+    }
+
+    @Test
+    void testGroupsAndReverseAfterLoad() throws IOException {
+        RegexLib loaded = roundTrip(RegexLib.compile("(<g1>a...)(<g2>b)c"));
+        MatchResult mr = loaded.searchWithGroups("xaabcx");
+        assertEquals("aa", mr.group("g1"));
+        assertEquals("b", mr.group("g2"));
+        assertTrue(loaded.reverse().match("cbaa"));
+        assertTrue(roundTrip(loaded.reverse()).match("cba"));
+    }
+
+    @Test
+    void testLongLiteralRoundTrip() throws IOException {
+        String word = "ab".repeat(10_000); // цепочка CONCAT глубиной 2·10^4
+        RegexLib loaded = roundTrip(RegexLib.compile(word + "(<tail>c...)"));
+        assertTrue(loaded.match(word + "cc"));
+        assertFalse(loaded.match(word.substring(1) + "c"));
+        assertEquals("cc", loaded.searchWithGroups("x" + word + "cc").group("tail"));
+    }
+
+    @Test
+    void testRejectsForeignFiles() throws IOException {
+        Path file = Files.createTempFile("regex", ".bin");
+        try {
+            Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+            assertThrows(IOException.class, () -> RegexLib.load(file));
+
+            RegexLib.compile("ab").save(file);
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[7] = 99; // версия
+            Files.write(file, bytes);
+            assertThrows(IOException.class, () -> RegexLib.load(file));
+
+            bytes[7] = 1;
+            Files.write(file, Arrays.copyOf(bytes, 40)); // обрезан
+            assertThrows(IOException.class, () -> RegexLib.load(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static RegexLib roundTrip(RegexLib lib) throws IOException {
+        Path file = Files.createTempFile("regex", ".bin");
+        try {
+            lib.save(file);
+            return RegexLib.load(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -17,6 +17,16 @@ class IntersectionTests {
         assertFalse(r.match("b"));
     }
 
+    @Test
+    void testCharacterClasses() {
+        // буквы без x: пересечение считается по интервалам, а не по символам
+        RegexLib r = RegexLib.compile("[a-z]...").intersect(RegexLib.compile("[^x]..."));
+        assertTrue(r.match("abyz"));
+        assertTrue(r.match(""));
+        assertFalse(r.match("axb"));
+        assertFalse(r.match("a1"));
+    }
+
     @Test
     void testIdenticalLanguages() {
         // L1 = L2 = { "a", "b" }
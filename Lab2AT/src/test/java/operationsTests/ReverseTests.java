@@ -1,4 +1,6 @@
 package operationsTests;
+import lab2at.dfa.DFAOperations;
+import lab2at.dfa.DFATable;
 import lab2at.lib.RegexLib;
 import org.junit.jupiter.api.Test;
 
@@ -87,4 +89,27 @@ class ReverseTests {
         assertNotNull(mrA);
         assertEquals("a", mrA.group("g"));
     }
+
+    @Test
+    void testReversedTableFindsLeftmostStart() {
+        RegexLib lib = RegexLib.compile("ab...c|bc");
+        DFATable rev = DFAOperations.reverse(lib.getFlatTable());
+
+        assertTrue(accepts(rev, "cbbba"));
+        assertTrue(accepts(rev, "cb"));
+        assertTrue(accepts(rev, "ca"));
+        assertFalse(accepts(rev, "abbc"));
+
+        assertEquals("abbbc", lib.search("xxabbbcxx"));
+        assertEquals("bc", lib.search("xxbbbcxx"));
+    }
+
+    private static boolean accepts(DFATable dfa, String s) {
+        int st = 0;
+        for (char c : s.toCharArray()) {
+            st = dfa.next(st, dfa.classOf(c));
+            if (st == DFATable.DEAD) return false;
+        }
+        return dfa.accept(st);
+    }
 }
@@ -0,0 +1,79 @@
+package searchTests;
+
+import lab2at.dfa.AhoCorasick;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AhoCorasickTests {
+
+    @Test
+    void testLiteralAlternationUsesAhoCorasick() {
+        assertNotNull(RegexLib.compile("foo|bar|baz").getAhoCorasick());
+        assertNotNull(RegexLib.compile("(<w>foo|bar)").getAhoCorasick());
+        assertNull(RegexLib.compile("foo|ba...r").getAhoCorasick());
+        assertNull(RegexLib.compile("foo").getAhoCorasick());
+    }
+
+    @Test
+    void testLiteralAlternationBuildsDFAOnDemand() {
+        RegexLib lib = RegexLib.compile("cat|dog|cattle");
+        assertTrue(lib.match("cattle"));
+        assertTrue(lib.match("dog"));
+        assertFalse(lib.match("catt"));
+        assertFalse(lib.match("xdog"));
+        assertEquals("", lib.getLiteralPrefix());
+        assertEquals("ab", RegexLib.compile("abc|abd").getLiteralPrefix());
+        for (String s : List.of("cattle", "dog", "catt", "xdog", "")) // групповой раннер строится при обращении
+            assertEquals(lib.match(s), lib.getRunner().matchPrefix(s, 0, lib.getMainDFAId()).length == s.length(), s);
+
+        assertEquals("bar", RegexLib.compile("(<w>foo|bar)").searchWithGroups("xbarx").group("w"));
+        assertEquals("oof", RegexLib.compile("foo|bar").reverse().search("xoofx"));
+    }
+
+    @Test
+    void testLeftmostLongest() {
+        AhoCorasick ac = AhoCorasick.build(List.of("he", "she", "hers", "his"));
+        assertArrayEquals(new int[]{1, 4}, ac.leftmostLongest("ushers", 0));
+        assertArrayEquals(new int[]{0, 3}, ac.leftmostLongest("hisshe", 0));
+        assertNull(ac.leftmostLongest("xyz", 0));
+
+        RegexLib lib = RegexLib.compile("c|abcd");
+        assertEquals("abcd", lib.search("xabcdx"));
+        assertEquals("c", lib.search("xabcx"));
+    }
+
+    @Test
+    void testBlocklistAgainstBruteForce() {
+        Random rnd = new Random(11);
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < 2000) {
+            StringBuilder sb = new StringBuilder();
+            int len = 2 + rnd.nextInt(6);
+            for (int j = 0; j < len; j++) sb.append((char) ('a' + rnd.nextInt(6)));
+            words.add(sb.toString());
+        }
+        RegexLib lib = RegexLib.compile(String.join("|", words));
+        assertNotNull(lib.getAhoCorasick());
+
+        for (int n = 0; n < 200; n++) {
+            StringBuilder sb = new StringBuilder();
+            int len = 1 + rnd.nextInt(30);
+            for (int j = 0; j < len; j++) sb.append((char) ('a' + rnd.nextInt(8)));
+            String text = sb.toString();
+            assertEquals(bruteSearch(words, text), lib.search(text), text);
+        }
+    }
+
+    private static String bruteSearch(Set<String> words, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            for (int j = text.length(); j > i; j--) {
+                if (words.contains(text.substring(i, j))) return text.substring(i, j);
+            }
+        }
+        return null;
+    }
+}
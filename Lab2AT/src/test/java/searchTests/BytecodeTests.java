@@ -0,0 +1,45 @@
+package searchTests;
+
+import lab2at.lib.BytecodeRegex;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BytecodeTests {
+
+    @Test
+    void testAgainstInterpreter() {
+        String[] patterns = {"ab...c", "a?b|ba", "(a|b)...a(a|b)", "abc|b...", "a{3}|ba", "cat|dog|cow",
+                "(<g>ab)x<g>|c", "%?%...a"};
+        Random rnd = new Random(4);
+        for (String pattern : patterns) {
+            RegexLib lib = RegexLib.compile(pattern);
+            BytecodeRegex jit = BytecodeRegex.from(lib);
+            for (int n = 0; n < 300; n++) {
+                StringBuilder sb = new StringBuilder();
+                int len = rnd.nextInt(12);
+                for (int j = 0; j < len; j++) sb.append("abcxdgotw?".charAt(rnd.nextInt(10)));
+                String text = sb.toString();
+                assertEquals(lib.match(text), jit.match(text), pattern + " / " + text);
+                assertEquals(lib.search(text), jit.search(text), pattern + " / " + text);
+            }
+        }
+    }
+
+    @Test
+    void testWideAndHighCharacters() {
+        BytecodeRegex jit = BytecodeRegex.compile("мир(😀)...");
+        assertTrue(jit.match("мир😀😀"));
+        assertFalse(jit.match("мир😀x"));
+        assertEquals("мир😀", jit.search("это мир😀!"));
+    }
+
+    @Test
+    void testLargeDfaIsRejected() {
+        String big = "(a|b)...a" + "(a|b)".repeat(14); // минимальный ДКА — 2^15 состояний
+        assertThrows(IllegalArgumentException.class, () -> BytecodeRegex.compile(big));
+    }
+}
@@ -0,0 +1,54 @@
+package searchTests;
+
+import lab2at.dfa.LazyDFA;
+import lab2at.lib.LazyRegex;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazySearchTests {
+
+    @Test
+    void testLazyAgreesWithEager() {
+        String[] patterns = {"ab...c", "a?b|ba", "(a|b)...a(a|b)", "abc|b...", "(<g>ab)<g>?c"};
+        Random rnd = new Random(3);
+        for (String pattern : patterns) {
+            RegexLib eager = RegexLib.compile(pattern);
+            LazyRegex lazy = LazyRegex.compile(pattern, 4);
+            for (int n = 0; n < 300; n++) {
+                StringBuilder sb = new StringBuilder();
+                int len = 1 + rnd.nextInt(10);
+                for (int j = 0; j < len; j++) sb.append("abcx".charAt(rnd.nextInt(4)));
+                String text = sb.toString();
+                assertEquals(eager.search(text), lazy.search(text), pattern + " / " + text);
+                assertEquals(eager.match(text), lazy.match(text), pattern + " / " + text);
+            }
+        }
+    }
+
+    @Test
+    void testExponentialPatternStaysBounded() {
+        // полный ДКА здесь — 2^21 состояний
+        LazyRegex lazy = LazyRegex.compile("(a|b)...a(a|b){20}", 64);
+        Random rnd = new Random(5);
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 0; i < 5000; i++) prefix.append(rnd.nextBoolean() ? 'a' : 'b');
+        assertTrue(lazy.match(prefix + "a" + "b".repeat(20)));
+        assertFalse(lazy.match(prefix + "b" + "b".repeat(20)));
+        String tail = "b".repeat(20) + "a" + "b".repeat(20);
+        assertEquals(tail, lazy.search("x" + tail + "x"));
+
+        LazyDFA.CacheStats stats = lazy.getStats();
+        assertTrue(stats.flushes() > 0);
+        assertTrue(stats.states() <= 3 * 64);
+        assertTrue(stats.hits() + stats.misses() > 0);
+    }
+
+    @Test
+    void testCacheTooSmall() {
+        assertThrows(IllegalArgumentException.class, () -> LazyRegex.compile("a", 1));
+    }
+}
@@ -0,0 +1,94 @@
+package searchTests;
+
+import lab2at.dfa.MappedText.Encoding;
+import lab2at.lib.Matcher;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileTests {
+
+    @Test
+    void testLatin1OffsetsMatchStringSearch() throws IOException {
+        String log = "INFO:1\n".repeat(500) + "ERROR:11\n" + "INFO:2\n" + "ERROR:1\n";
+        Path file = write(log.getBytes(StandardCharsets.ISO_8859_1));
+        try {
+            RegexLib lib = RegexLib.compile("ERROR%:%(<code>1...)");
+            List<String> expected = new ArrayList<>();
+            Matcher m = lib.matcher(log);
+            while (m.find()) expected.add(m.start() + "-" + m.end());
+
+            List<String> actual = new ArrayList<>();
+            long count = lib.findAllInFile(file, Encoding.LATIN1, (s, e) -> actual.add(s + "-" + e));
+            assertEquals(expected, actual);
+            assertEquals(2, count);
+            assertArrayEquals(new long[]{3500, 3508}, lib.searchFile(file, Encoding.LATIN1));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testUtf8ByteOffsets() throws IOException {
+        String text = "мир: привет, мир😀!";
+        Path file = write(text.getBytes(StandardCharsets.UTF_8));
+        try {
+            RegexLib lib = RegexLib.compile("мир(😀)?");
+            List<long[]> spans = new ArrayList<>();
+            lib.findAllInFile(file, Encoding.UTF8, (s, e) -> spans.add(new long[]{s, e}));
+            assertEquals(2, spans.size());
+            assertArrayEquals(new long[]{0, 6}, spans.get(0));
+            long second = "мир: привет, ".getBytes(StandardCharsets.UTF_8).length;
+            assertArrayEquals(new long[]{second, second + 10}, spans.get(1));
+
+            RegexLib words = RegexLib.compile("привет|мир😀");
+            assertNotNull(words.getAhoCorasick());
+            assertArrayEquals(new long[]{"мир: ".getBytes(StandardCharsets.UTF_8).length,
+                    "мир: привет".getBytes(StandardCharsets.UTF_8).length}, words.searchFile(file, Encoding.UTF8));
+            assertEquals(2, words.findAllInFile(file, Encoding.UTF8, (s, e) -> {}));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testPrefixEndingInsideSurrogatePair() throws IOException {
+        Path file = write("a😁x b".getBytes(StandardCharsets.UTF_8));
+        try {
+            RegexLib lib = RegexLib.compile("(😀|😁)x");
+            assertEquals("\uD83D", lib.getLiteralPrefix());
+            assertArrayEquals(new long[]{1, 6}, lib.searchFile(file, Encoding.UTF8));
+            List<long[]> spans = new ArrayList<>();
+            lib.findAllInFile(file, Encoding.UTF8, (s, e) -> spans.add(new long[]{s, e}));
+            assertEquals(1, spans.size());
+            assertArrayEquals(new long[]{1, 6}, spans.get(0));
+            assertEquals(1, lib.countInFileParallel(file, Encoding.UTF8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testNoMatchAndEmptyFile() throws IOException {
+        Path file = write(new byte[0]);
+        try {
+            assertNull(RegexLib.compile("ab").searchFile(file, Encoding.LATIN1));
+            assertEquals(1, RegexLib.compile("a...").findAllInFile(file, Encoding.UTF8, (s, e) -> {}));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Path write(byte[] bytes) throws IOException {
+        Path file = Files.createTempFile("mapped", ".txt");
+        Files.write(file, bytes);
+        return file;
+    }
+}
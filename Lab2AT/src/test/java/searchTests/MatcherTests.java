@@ -0,0 +1,116 @@
+package searchTests;
+
+import lab2at.lib.MatchResult;
+import lab2at.lib.Matcher;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatcherTests {
+
+    @Test
+    void testFindAllOffsets() {
+        RegexLib lib = RegexLib.compile("ab...");
+        Matcher m = lib.matcher("xabbxaab");
+        assertTrue(m.find());
+        assertEquals(1, m.start());
+        assertEquals(4, m.end());
+        assertEquals("abb", m.group().toString());
+        assertTrue(m.find()); // "a" тоже совпадение
+        assertEquals(5, m.start());
+        assertEquals(6, m.end());
+        assertTrue(m.find());
+        assertEquals(6, m.start());
+        assertEquals(8, m.end());
+        assertFalse(m.find());
+        assertThrows(IllegalStateException.class, m::start);
+
+        m.reset();
+        assertTrue(m.find());
+        assertEquals(1, m.start());
+    }
+
+    @Test
+    void testGroupOffsets() {
+        RegexLib lib = RegexLib.compile("(<num>1...)x");
+        Matcher m = lib.matcher("11x-y-111x");
+        assertTrue(m.find());
+        assertEquals(0, m.start("num"));
+        assertEquals(2, m.end("num"));
+        assertTrue(m.find());
+        assertEquals(6, m.start("num"));
+        assertEquals("111", m.group("num").toString());
+        assertThrows(IllegalArgumentException.class, () -> m.start("nope"));
+        assertFalse(m.find());
+    }
+
+    @Test
+    void testGroupsDescribeFoundMatch() {
+        Matcher m = RegexLib.compile("(<m>ab|abcd)").matcher("zabcx abcd");
+        assertTrue(m.find());
+        assertEquals(1, m.start("m"));
+        assertEquals("ab", m.group("m").toString());
+        assertTrue(m.find());
+        assertEquals("abcd", m.group("m").toString());
+
+        m = RegexLib.compile("(<g>a...)(<h>ab)").matcher("xaab");
+        assertTrue(m.find());
+        assertEquals(1, m.start("g"));
+        assertEquals(2, m.end("g"));
+        MatchResult r = m.toMatchResult();
+        assertEquals("aab", r.group());
+        assertEquals("ab", r.group("h"));
+    }
+
+    @Test
+    void testEmptyMatchesAdvance() {
+        RegexLib lib = RegexLib.compile("a...");
+        List<String> found = lib.findAll("baab").map(r -> r.start() + "-" + r.end()).toList();
+        assertEquals(List.of("0-0", "1-3", "3-3", "4-4"), found);
+    }
+
+    @Test
+    void testStreamAdapterAndLiteralAlternation() {
+        RegexLib lib = RegexLib.compile("cat|dog");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) text.append(i % 2 == 0 ? "cat " : "dog ");
+        assertEquals(1000, lib.findAll(text).count());
+
+        MatchResult first = lib.findAll("a dog").findFirst().orElseThrow();
+        assertEquals(2, first.start());
+        assertEquals(5, first.end());
+    }
+
+    @Test
+    void testFindAllAgainstRepeatedSearch() {
+        String[] patterns = {"ab...c", "a?b|ba", "abc|b...", "ba(b|c)..."};
+        Random rnd = new Random(5);
+        for (String pattern : patterns) {
+            RegexLib lib = RegexLib.compile(pattern);
+            for (int n = 0; n < 200; n++) {
+                StringBuilder sb = new StringBuilder();
+                int len = 1 + rnd.nextInt(20);
+                for (int j = 0; j < len; j++) sb.append("abcx".charAt(rnd.nextInt(4)));
+                String text = sb.toString();
+
+                List<String> expected = new ArrayList<>();
+                int from = 0;
+                while (from < text.length()) { // search по оставшемуся хвосту
+                    String tail = text.substring(from);
+                    String hit = lib.search(tail);
+                    if (hit == null) break;
+                    int start = from + tail.indexOf(hit);
+                    expected.add(start + ":" + hit);
+                    from = start + Math.max(hit.length(), 1);
+                }
+                List<String> actual = new ArrayList<>();
+                Matcher m = lib.matcher(text);
+                while (m.find() && m.start() < text.length()) actual.add(m.start() + ":" + m.group());
+                assertEquals(expected, actual, pattern + " / " + text);
+            }
+        }
+    }
+}
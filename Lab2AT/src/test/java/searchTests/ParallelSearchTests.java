@@ -0,0 +1,120 @@
+package searchTests;
+
+import lab2at.dfa.DFAOperations;
+import lab2at.dfa.DFARunner;
+import lab2at.dfa.DFATable;
+import lab2at.dfa.MappedText.Encoding;
+import lab2at.lib.Matcher;
+import lab2at.lib.RegexLib;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSearchTests {
+
+    @Test
+    void testCountAgainstSequentialMatcher() {
+        String text = randomText(1_000_000, "abcx", 2);
+        // длинные совпадения пересекают границы кусков, пустые проверяют сдвиг
+        String[] patterns = {"ab...c", "a(b|c)...x", "(a|b|c)...", "x...", "abc|b", "ca|ab"};
+        for (String pattern : patterns) {
+            RegexLib lib = RegexLib.compile(pattern);
+            assertEquals(sequentialCount(lib, text), lib.countParallel(text), pattern);
+        }
+    }
+
+    @Test
+    void testCountSparseMatches() {
+        // совпадений мало: кусок без совпадений останавливается у своей границы. "(ab)...c" возвращает
+        // исходный ДКА в старт — такой поток не должен приниматься за новый, иначе совпадение через
+        // границу потеряется
+        StringBuilder sb = new StringBuilder(randomText(1_000_000, "abx", 6));
+        for (int i = 1; i < 20; i++) sb.replace(i * 50_000 - 3, i * 50_000 + 3, "ababac");
+        String text = sb.toString();
+        String[] patterns = {"[ab]c", "(ab)...c", "ab...c", "abac|bac", "x...c"};
+        for (String pattern : patterns) {
+            RegexLib lib = RegexLib.compile(pattern);
+            assertEquals(sequentialCount(lib, text), lib.countParallel(text), pattern);
+        }
+    }
+
+    @Test
+    void testChunkSearchStopsAtLimit() {
+        // без совпадений ограниченный поиск читает вход только до limit, а не до конца
+        int[] reads = new int[1];
+        String text = randomText(100_000, "abx", 7);
+        CharSequence counted = new CharSequence() {
+            public int length() {
+                return text.length();
+            }
+
+            public char charAt(int index) {
+                reads[0]++;
+                return text.charAt(index);
+            }
+
+            public CharSequence subSequence(int start, int end) {
+                return text.subSequence(start, end);
+            }
+        };
+        for (String pattern : new String[]{"[ab]c", "(ab)...c"}) {
+            DFATable search = DFAOperations.unanchored(RegexLib.compile(pattern).getFlatTable());
+            reads[0] = 0;
+            assertEquals(-1, DFARunner.searchEnd(search, counted, 0, "", 1000));
+            assertTrue(reads[0] < 1100, pattern + ": " + reads[0]);
+            reads[0] = 0;
+            assertEquals(-1, DFARunner.searchEnd(search, counted, 0, ""));
+            assertEquals(text.length(), reads[0]);
+        }
+    }
+
+    @Test
+    void testMatchAcrossChunks() {
+        RegexLib lib = RegexLib.compile("(a|b)...c(a|b)...");
+        String good = randomText(500_000, "ab", 3) + "c" + randomText(500_000, "ab", 4);
+        assertTrue(lib.matchParallel(good));
+        assertFalse(lib.matchParallel(good + "c"));
+        assertFalse(lib.matchParallel(good.replace('c', 'a')));
+
+        RegexLib even = RegexLib.compile("(aa|ab|ba|bb)...");
+        assertTrue(even.matchParallel(good.replace("c", "")));
+        assertFalse(even.matchParallel(good.replace("c", "") + "a"));
+        assertTrue(even.matchParallel(""));
+    }
+
+    @Test
+    void testFileCountUtf8() throws IOException {
+        String text = randomText(400_000, "дая ", 5);
+        Path file = Files.createTempFile("parallel", ".txt");
+        try {
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            RegexLib lib = RegexLib.compile("да...я");
+            assertEquals(sequentialCount(lib, text), lib.countInFileParallel(file, Encoding.UTF8));
+            assertEquals(lib.findAllInFile(file, Encoding.UTF8, (s, e) -> {}),
+                    lib.countInFileParallel(file, Encoding.UTF8));
+            assertFalse(lib.matchFileParallel(file, Encoding.UTF8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static long sequentialCount(RegexLib lib, String text) {
+        Matcher m = lib.matcher(text);
+        long count = 0;
+        while (m.find()) count++;
+        return count;
+    }
+
+    private static String randomText(int len, String alphabet, long seed) {
+        Random rnd = new Random(seed);
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package searchTests;
+
+import lab2at.lib.RegexLib;
+import lab2at.lib.RegexSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegexSetTests {
+
+    @Test
+    void testMatchReportsEveryPattern() {
+        RegexSet set = RegexSet.compile("ab...", "a...b", "abc", "x|y");
+        assertEquals(BitSet.valueOf(new long[]{0b0011}), set.match("ab"));
+        assertEquals(BitSet.valueOf(new long[]{0b0100}), set.match("abc"));
+        assertEquals(BitSet.valueOf(new long[]{0b1000}), set.match("y"));
+        assertTrue(set.match("ba").isEmpty());
+    }
+
+    @Test
+    void testSearchFindsEarliestEnds() {
+        RegexSet set = RegexSet.compile("err(<d>0|1)", "warn", "(<d>0|1)(<d>0|1)", "fatal");
+        assertArrayEquals(new int[]{11, 4, 7, -1}, set.searchEnds("warn 01err1"));
+        assertEquals(BitSet.valueOf(new long[]{0b0111}), set.search("warn 01err1"));
+        assertTrue(set.search("nothing here").isEmpty());
+    }
+
+    @Test
+    void testAgainstSinglePatterns() {
+        List<String> patterns = List.of("ab...c", "b(a|c)", "cc...", "a|bb", "ca...b");
+        RegexSet set = RegexSet.compile(patterns);
+        Random rnd = new Random(3);
+        for (int iter = 0; iter < 500; iter++) {
+            StringBuilder sb = new StringBuilder();
+            int len = rnd.nextInt(10);
+            for (int i = 0; i < len; i++) sb.append((char) ('a' + rnd.nextInt(3)));
+            String text = sb.toString();
+            BitSet matched = set.match(text);
+            BitSet found = set.search(text);
+            for (int id = 0; id < patterns.size(); id++) {
+                RegexLib lib = RegexLib.compile(patterns.get(id));
+                assertEquals(lib.match(text), matched.get(id), patterns.get(id) + " / " + text);
+                assertEquals(!text.isEmpty() && lib.search(text) != null, found.get(id), patterns.get(id) + " / " + text);
+            }
+        }
+    }
+
+    @Test
+    void testNullablePatterns() {
+        // стартовое состояние принимает: его набор шаблонов не должен склеиться с мертвым состоянием
+        assertEquals(BitSet.valueOf(new long[]{0b1}), RegexSet.compile("a?").match("a"));
+        assertEquals(BitSet.valueOf(new long[]{0b1}), RegexSet.compile("a?").match(""));
+        assertEquals(BitSet.valueOf(new long[]{0b1}), RegexSet.compile("b...", "ab").match("bb"));
+        assertEquals(BitSet.valueOf(new long[]{0b1}), RegexSet.compile("(.)?").match("x"));
+        assertTrue(RegexSet.compile("(.)?").match("xy").isEmpty());
+    }
+
+    @Test
+    void testNullableAgainstSinglePatterns() {
+        List<List<String>> sets = List.of(
+                List.of("a?"), List.of("b...", "ab"), List.of("(.)?"), List.of("c{0,2}", "a...c"),
+                List.of("a?", "b...", "ab", "(a|c)...b?", "(.)?", "c{0,2}"));
+        Random rnd = new Random(9);
+        for (List<String> patterns : sets) {
+            RegexSet set = RegexSet.compile(patterns);
+            List<RegexLib> libs = new ArrayList<>();
+            for (String p : patterns) libs.add(RegexLib.compile(p));
+            for (int iter = 0; iter < 300; iter++) {
+                StringBuilder sb = new StringBuilder();
+                int len = rnd.nextInt(6);
+                for (int i = 0; i < len; i++) sb.append((char) ('a' + rnd.nextInt(3)));
+                String text = sb.toString();
+                BitSet matched = set.match(text);
+                for (int id = 0; id < patterns.size(); id++)
+                    assertEquals(libs.get(id).match(text), matched.get(id), patterns + " " + id + " / " + text);
+            }
+        }
+    }
+}
@@ -3,6 +3,9 @@ package searchTests;
 import lab2at.lib.MatchResult;
 import lab2at.lib.RegexLib;
 import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class SearchTests {
@@ -65,10 +68,177 @@ public class SearchTests {
         assertEquals("?", lib.search("abc?def"));
     }
 
+    @Test
+    void testLiteralDotNeedsEscape() {
+        // '.' — любой символ, кроме перевода строки; точка как символ пишется %.%
+        RegexLib literal = RegexLib.compile("a%.%b");
+        assertTrue(literal.match("a.b"));
+        assertFalse(literal.match("axb"));
+        assertEquals("a.b", literal.search("axb a.b"));
+
+        RegexLib any = RegexLib.compile("a.b");
+        assertTrue(any.match("a.b"));
+        assertTrue(any.match("axb"));
+        assertFalse(any.match("a\nb"));
+        assertFalse(any.match("ab"));
+    }
+
     @Test
     void testRepeatZeroTimes() {
         RegexLib lib = RegexLib.compile("a{0}b");
         assertTrue(lib.match("b"));
         assertFalse(lib.match("ab"));
     }
+
+    @Test
+    void testSearchLeftmostBeatsEarliestEnd() {
+        RegexLib lib = RegexLib.compile("abcd|c");
+        assertEquals("abcd", lib.search("xxabcdxx"));
+        assertEquals("c", lib.search("xxabcxx"));
+    }
+
+    @Test
+    void testSearchLongestFromLeftmostStart() {
+        RegexLib lib = RegexLib.compile("ab|abcd");
+        assertEquals("ab", lib.search("zabcx"));
+        assertEquals("abcd", lib.search("zabcdx"));
+        assertNull(lib.search("zacbdx"));
+    }
+
+    @Test
+    void testSearchWithGroupsAfterLongPrefix() {
+        RegexLib lib = RegexLib.compile("(<num>1...)x");
+        MatchResult mr = lib.searchWithGroups("1".repeat(50) + "y" + "11x");
+        assertNotNull(mr);
+        assertEquals("11", mr.group("num"));
+    }
+
+    @Test
+    void testMatchResultOffsetsAndViews() {
+        RegexLib lib = RegexLib.compile("(<first>a...)(<second>b)?c");
+        MatchResult mr = lib.searchWithGroups("xxaaacyy");
+        assertEquals(2, mr.start());
+        assertEquals(6, mr.end());
+        assertEquals("aaac", mr.group());
+        assertEquals(2, mr.start("first"));
+        assertEquals(5, mr.end("first"));
+        assertEquals(-1, mr.start("second"));
+        assertEquals(-1, mr.end("second"));
+        assertNull(mr.view("second"));
+
+        CharSequence view = mr.view("first");
+        assertEquals(3, view.length());
+        assertEquals('a', view.charAt(2));
+        assertEquals("aa", view.subSequence(1, 3).toString());
+        assertEquals("aaac", mr.view().toString());
+        assertThrows(IllegalArgumentException.class, () -> mr.group("third"));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testMatchResultFromGroupMap() {
+        Map<String, String> groups = new LinkedHashMap<>();
+        groups.put("first", "aa");
+        groups.put("second", null);
+        groups.put("third", "c");
+        MatchResult mr = new MatchResult(3, 7, groups);
+        assertEquals(3, mr.start());
+        assertEquals(7, mr.end());
+        assertEquals("aa", mr.group("first"));
+        assertNull(mr.group("second"));
+        assertEquals("c", mr.view("third").toString());
+        assertEquals(Arrays.asList("aa", null, "c"), toList(mr));
+        assertThrows(IllegalArgumentException.class, () -> mr.group("fourth"));
+        assertThrows(UnsupportedOperationException.class, mr::group);
+
+        MatchResult bare = new MatchResult(Map.of("g", "x"));
+        assertEquals(-1, bare.start());
+        assertEquals("x", bare.group("g"));
+    }
+
+    private static List<String> toList(Iterable<String> values) {
+        List<String> list = new ArrayList<>();
+        for (String v : values) list.add(v);
+        return list;
+    }
+
+    @Test
+    void testSearchAgainstBruteForce() {
+        String[] patterns = {"ab...c", "a?b|ba", "(a|b)...a(a|b)", "abc|b...", "a{3}|ba", "abca...|abx", "ba(b|c)..."};
+        Random rnd = new Random(1);
+        for (String pattern : patterns) {
+            RegexLib lib = RegexLib.compile(pattern);
+            for (int n = 0; n < 300; n++) {
+                StringBuilder sb = new StringBuilder();
+                int len = 1 + rnd.nextInt(12);
+                for (int j = 0; j < len; j++) sb.append("abcx".charAt(rnd.nextInt(4)));
+                String text = sb.toString();
+                assertEquals(bruteSearch(lib, text), lib.search(text), pattern + " / " + text);
+            }
+        }
+    }
+
+    @Test
+    void testSearchWithGroupsResolvesFoundSpan() {
+        // групповой раннер сам по себе прошел бы дальше найденного совпадения или не нашел бы разбор
+        assertEquals("ab", RegexLib.compile("ab|abcd").searchWithGroups("zabcx").group());
+        MatchResult mr = RegexLib.compile("(<g>a...)(<h>ab)").searchWithGroups("aab");
+        assertEquals("aab", mr.group());
+        assertEquals("a", mr.group("g"));
+        assertEquals("ab", mr.group("h"));
+        assertEquals("a", RegexLib.compile(".((c){3})...").searchWithGroups("\nacxxcb").group());
+        assertEquals("", RegexLib.compile("a...").searchWithGroups("b").group());
+    }
+
+    @Test
+    void testSearchWithGroupsAgainstSearch() {
+        String[] patterns = {"ab|abcd", "(<g>a...)(<h>ab)", "(<m>ab|abcd)", "(<x>a?)b...",
+                "(<p>a|ab)(<q>c|bcd)", "a...", "(<d>a|b){2,3}c?", ".(<c>c)..."};
+        Random rnd = new Random(11);
+        for (String pattern : patterns) {
+            RegexLib lib = RegexLib.compile(pattern);
+            for (int n = 0; n < 300; n++) {
+                StringBuilder sb = new StringBuilder();
+                int len = 1 + rnd.nextInt(10);
+                for (int j = 0; j < len; j++) sb.append("abcdx\n".charAt(rnd.nextInt(6)));
+                String text = sb.toString();
+                String found = lib.search(text);
+                MatchResult mr = lib.searchWithGroups(text);
+                assertEquals(found, mr == null ? null : mr.group(), pattern + " / " + text);
+                if (mr == null) continue;
+                for (String name : lib.getGroupNames()) { // группа — внутри найденного совпадения
+                    if (mr.start(name) < 0) continue;
+                    assertTrue(mr.start() <= mr.start(name) && mr.end(name) <= mr.end(), pattern + " / " + text);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testLiteralPrefixExtraction() {
+        assertEquals("ERROR:", RegexLib.compile("ERROR%:%(<code>1...)").getLiteralPrefix());
+        assertEquals("userx", RegexLib.compile("(<id>user)x(a|b)").getLiteralPrefix());
+        assertEquals("ab", RegexLib.compile("abc|abd").getLiteralPrefix());
+        assertEquals("", RegexLib.compile("a?b").getLiteralPrefix());
+        assertEquals("", RegexLib.compile("(a|b)c").getLiteralPrefix());
+    }
+
+    @Test
+    void testSearchSkipsToPrefix() {
+        RegexLib lib = RegexLib.compile("ERROR%:%(<code>11...)");
+        String log = "INFO:1\n".repeat(1000) + "ERROR:x\n" + "ERR:11\n" + "ERROR:111\n";
+        assertEquals("ERROR:111", lib.search(log));
+        assertEquals("111", lib.searchWithGroups(log).group("code"));
+        assertNull(lib.search("INFO:1\n".repeat(1000)));
+    }
+
+    // самое левое начало, затем самый длинный конец
+    private static String bruteSearch(RegexLib lib, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            for (int j = text.length(); j >= i; j--) {
+                if (lib.match(text.substring(i, j))) return text.substring(i, j);
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,196 @@
+package searchTests;
+
+import lab2at.dfa.DFARunner.PrefixMatch;
+import lab2at.lib.RegexLib;
+import lab2at.lib.Matcher;
+import lab2at.lib.StreamMatcher;
+import lab2at.lib.StreamSearcher;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamMatcherTests {
+
+    @Test
+    void testRecordsAcrossEveryChunkBoundary() {
+        RegexLib lib = RegexLib.compile("(<key>a...)=(<val>1...);");
+        char[] text = "a=1;aa=11;=111;".toCharArray();
+        for (int cut = 0; cut <= text.length; cut++) {
+            List<String> got = new ArrayList<>();
+            StreamMatcher[] m = new StreamMatcher[1];
+            m[0] = lib.streamMatcher((s, e) -> got.add(s + "-" + e
+                    + " key=" + m[0].start("key") + "-" + m[0].end("key")
+                    + " val=" + m[0].start("val") + "-" + m[0].end("val")));
+            m[0].feed(text, 0, cut);
+            m[0].feed(text, cut, text.length - cut);
+            assertTrue(m[0].finish());
+            assertEquals(List.of(
+                    "0-4 key=0-1 val=2-3",
+                    "4-10 key=4-6 val=7-9",
+                    "10-15 key=10-10 val=11-14"), got, "cut " + cut);
+        }
+    }
+
+    @Test
+    void testFailureStopsAtOffendingChar() {
+        RegexLib lib = RegexLib.compile("ab");
+        List<Long> ends = new ArrayList<>();
+        StreamMatcher m = lib.streamMatcher((s, e) -> ends.add(e));
+        m.feed("abab".toCharArray());
+        m.feed("ax".toCharArray());
+        m.feed("ab".toCharArray()); // после неудачи вход игнорируется
+        assertFalse(m.finish());
+        assertTrue(m.failed());
+        assertEquals(List.of(2L, 4L), ends);
+        assertEquals(5, m.position());
+
+        m.reset();
+        ends.clear();
+        m.feed("a".toCharArray());
+        assertFalse(m.finish()); // оборвалось на середине совпадения
+        assertTrue(ends.isEmpty());
+    }
+
+    @Test
+    void testSingleCharChunksAgainstMatchPrefix() {
+        String[] patterns = {"a...b", "(<x>ab...)c", "ab|b", "a(<y>b|c)..."};
+        Random rnd = new Random(7);
+        for (String pattern : patterns) {
+            RegexLib lib = RegexLib.compile(pattern);
+            for (int n = 0; n < 200; n++) {
+                StringBuilder sb = new StringBuilder();
+                int len = rnd.nextInt(15);
+                for (int j = 0; j < len; j++) sb.append("abc".charAt(rnd.nextInt(3)));
+                String text = sb.toString();
+
+                // эталон: matchPrefix подряд с конца предыдущего совпадения
+                List<String> expected = new ArrayList<>();
+                int from = 0;
+                boolean ok = true;
+                do {
+                    PrefixMatch pm = lib.getRunner().matchPrefix(text, from, lib.getMainDFAId());
+                    if (pm.length < 0 || pm.length == 0 && from < text.length()) {
+                        ok = false;
+                        break;
+                    }
+                    expected.add(from + "-" + (from + pm.length));
+                    from += pm.length;
+                } while (from < text.length());
+
+                List<String> got = new ArrayList<>();
+                StreamMatcher m = lib.streamMatcher((s, e) -> got.add(s + "-" + e));
+                for (char c : text.toCharArray()) m.feed(new char[]{c});
+                assertEquals(ok, m.finish(), pattern + " / " + text);
+                if (ok) assertEquals(expected, got, pattern + " / " + text);
+            }
+        }
+    }
+
+    @Test
+    void testSearchAcrossEveryChunkBoundary() {
+        RegexLib lib = RegexLib.compile("ERROR%:%[0-9][0-9]...");
+        char[] text = "ok ERROR:12 fine ERROR:x ERROR:345".toCharArray();
+        for (int cut = 0; cut <= text.length; cut++) {
+            List<String> got = new ArrayList<>();
+            StreamSearcher s = lib.streamSearcher((st, e) -> got.add(st + "-" + e));
+            s.feed(text, 0, cut);
+            s.feed(text, cut, text.length - cut);
+            s.finish();
+            assertEquals(List.of("3-11", "25-34"), got, "cut " + cut);
+        }
+    }
+
+    @Test
+    void testSearchSingleCharChunksAgainstMatcher() {
+        // после совпадения ни один поток не живет дольше его конца — поиск в потоке совпадает с Matcher
+        String[] patterns = {"a...b", "(<x>ab...)c", "ab|b", "a(<y>b|c)...", "ba...", "c...", "[ab]c|ca", "abcx|bc"};
+        Random rnd = new Random(11);
+        for (String pattern : patterns) {
+            RegexLib lib = RegexLib.compile(pattern);
+            for (int n = 0; n < 300; n++) {
+                StringBuilder sb = new StringBuilder();
+                int len = rnd.nextInt(20);
+                for (int j = 0; j < len; j++) sb.append("abcx".charAt(rnd.nextInt(4)));
+                String text = sb.toString();
+
+                List<String> expected = new ArrayList<>();
+                Matcher m = lib.matcher(text);
+                while (m.find()) expected.add(m.start() + "-" + m.end());
+
+                List<String> got = new ArrayList<>();
+                StreamSearcher s = lib.streamSearcher((st, e) -> got.add(st + "-" + e));
+                for (char c : text.toCharArray()) s.feed(new char[]{c});
+                s.finish();
+                assertEquals(expected, got, pattern + " / " + text);
+                assertEquals(text.length(), s.position());
+            }
+        }
+    }
+
+    @Test
+    void testSearchResumesAtMatchEnd() {
+        // поток abcde держит автомат до X, символ c после совпадения ab перечитывается из буфера
+        RegexLib lib = RegexLib.compile("ab|abcde|c");
+        List<String> got = new ArrayList<>();
+        StreamSearcher s = lib.streamSearcher((st, e) -> got.add(st + "-" + e));
+        s.feed("abcX c".toCharArray());
+        s.finish();
+        assertEquals(List.of("0-2", "2-3", "5-6"), got);
+    }
+
+    @Test
+    void testSearchRandomChunksAgainstMatcher() {
+        // потоки живут дольше конца совпадения: поиск продолжается по буферу
+        String[] patterns = {"ab|abcd|c", "xa...c|a", "ab|abcde|c...", "a(bc)...d|b", "(ab)...c|b...", "a...|ba...x"};
+        Random rnd = new Random(13);
+        for (String pattern : patterns) {
+            RegexLib lib = RegexLib.compile(pattern);
+            for (int n = 0; n < 300; n++) {
+                StringBuilder sb = new StringBuilder();
+                int len = rnd.nextInt(40);
+                for (int j = 0; j < len; j++) sb.append("abcdx".charAt(rnd.nextInt(5)));
+                char[] text = sb.toString().toCharArray();
+
+                List<String> expected = new ArrayList<>();
+                Matcher m = lib.matcher(sb.toString());
+                while (m.find()) expected.add(m.start() + "-" + m.end());
+
+                List<String> got = new ArrayList<>();
+                StreamSearcher s = lib.streamSearcher((st, e) -> got.add(st + "-" + e));
+                for (int off = 0; off < text.length; ) {
+                    int size = Math.min(text.length - off, rnd.nextInt(6));
+                    s.feed(text, off, size);
+                    off += size;
+                }
+                s.finish();
+                assertEquals(expected, got, pattern + " / " + sb);
+                assertEquals(text.length, s.position());
+            }
+        }
+    }
+
+    @Test
+    void testSearchEmptyMatchesLikeMatcher() {
+        RegexLib lib = RegexLib.compile("a...");
+        List<String> got = new ArrayList<>();
+        StreamSearcher s = lib.streamSearcher((st, e) -> got.add(st + "-" + e));
+        s.feed("aab".toCharArray());
+        s.finish();
+        assertEquals(List.of("0-2", "2-2", "3-3"), got);
+    }
+
+    @Test
+    void testSearchLongStreamWithoutMatches() {
+        RegexLib lib = RegexLib.compile("needle");
+        List<Long> starts = new ArrayList<>();
+        StreamSearcher s = lib.streamSearcher((st, e) -> starts.add(st));
+        char[] hay = "needl".repeat(2_000).toCharArray();
+        for (int i = 0; i < 100; i++) s.feed(hay);
+        s.feed("needle".toCharArray());
+        s.finish();
+        assertEquals(List.of(100L * hay.length), starts);
+        assertEquals(100L * hay.length + 6, s.position());
+    }
+}
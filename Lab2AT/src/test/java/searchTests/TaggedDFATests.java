@@ -0,0 +1,101 @@
+package searchTests;
+
+import lab2at.lib.MatchResult;
+import lab2at.lib.RegexLib;
+import lab2at.lib.TaggedRegex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaggedDFATests {
+
+    // шаблон и тот же шаблон для java.util.regex: из совпадений одной длины обе выбирают самое приоритетное
+    private static final String[][] PAIRS = {
+            {"(<a>x...)(<b>y|xy)", "(?<a>x*)(?<b>y|xy)"},
+            {"(<a>ab|a)(<b>bc|c)", "(?<a>ab|a)(?<b>bc|c)"},
+            {"(<n>1...)x", "(?<n>1*)x"},
+            {"a(<d>b?)(<e>b...)c", "a(?<d>b?)(?<e>b*)c"},
+            {"(<w>ab)c<w>", "(?:ab)c(?<w>ab)"},
+            {"((<g>a|b)c)...", "(?:(?<g>a|b)c)*"},
+            {"x(<o>ab)?a...b", "x(?<o>ab)?a*b"},
+            {"(<p>a...)(<q>a...)", "(?<p>a*)(?<q>a*)"}};
+
+    @Test
+    void testCapturesMatchBacktrackingPriority() {
+        Random rnd = new Random(5);
+        for (String[] pair : PAIRS) {
+            TaggedRegex tagged = TaggedRegex.compile(pair[0]);
+            Pattern java = Pattern.compile(pair[1]);
+            List<String> names = tagged.getGroupNames();
+            int[] captures = new int[2 * names.size()];
+            for (int n = 0; n < 500; n++) {
+                StringBuilder sb = new StringBuilder();
+                for (int j = rnd.nextInt(10); j > 0; j--) sb.append("abcxy1".charAt(rnd.nextInt(6)));
+                String text = sb.toString();
+
+                int longest = -1;
+                for (int k = 0; k <= text.length(); k++) if (java.matcher(text.substring(0, k)).matches()) longest = k;
+                assertEquals(longest, tagged.matchPrefix(text, 0, captures), pair[0] + " on " + text);
+                if (longest < 0) continue;
+
+                Matcher m = java.matcher(text.substring(0, longest));
+                assertTrue(m.matches());
+                for (int g = 0; g < names.size(); g++) {
+                    assertEquals(m.start(names.get(g)), captures[2 * g], pair[0] + " on " + text);
+                    assertEquals(m.end(names.get(g)), captures[2 * g + 1], pair[0] + " on " + text);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testAlternativeBetweenGroupsTakesLeft() {
+        TaggedRegex tagged = TaggedRegex.compile("(<a>ab)|(<b>ab)");
+        MatchResult r = tagged.searchWithGroups("xxab");
+        assertEquals(2, r.start());
+        assertEquals(4, r.end());
+        assertEquals("ab", r.group("a"));
+        assertNull(r.group("b"));
+    }
+
+    @Test
+    void testSearchWithGroupsLikeRunner() {
+        String[] patterns = {"(<num>1...)x", "abc?(<name1>lo|l)(t{3})%?%...<name1>", "(<d>ab)c|xy", "(<h>a|b)...c"};
+        Random rnd = new Random(8);
+        for (String p : patterns) {
+            RegexLib lib = RegexLib.compile(p);
+            TaggedRegex tagged = TaggedRegex.from(lib);
+            for (int n = 0; n < 300; n++) {
+                StringBuilder sb = new StringBuilder();
+                for (int j = rnd.nextInt(14); j > 0; j--) sb.append("abclot?1xy".charAt(rnd.nextInt(10)));
+                String text = sb.toString();
+                assertEquals(lib.match(text), tagged.match(text), text);
+                MatchResult expected = lib.searchWithGroups(text);
+                MatchResult actual = tagged.searchWithGroups(text);
+                assertEquals(expected == null, actual == null, text);
+                if (expected == null) continue;
+                assertEquals(expected.start(), actual.start(), text);
+                assertEquals(expected.end(), actual.end(), text);
+                for (String name : lib.getGroupNames()) assertEquals(expected.group(name), actual.group(name), text);
+            }
+        }
+    }
+
+    @Test
+    void testMatchPrefixFromOffsetReusesCaptures() {
+        TaggedRegex tagged = TaggedRegex.compile("(<k>a...)=(<v>b...)");
+        int k = 2 * tagged.getGroupNames().indexOf("k");
+        int v = 2 * tagged.getGroupNames().indexOf("v");
+        int[] captures = new int[4];
+        assertEquals(5, tagged.matchPrefix("--aa=bbz", 2, captures));
+        assertArrayEquals(new int[]{2, 4, 5, 7}, new int[]{captures[k], captures[k + 1], captures[v], captures[v + 1]});
+        assertEquals(1, tagged.matchPrefix("=", 0, captures));
+        assertArrayEquals(new int[]{0, 0, 1, 1}, new int[]{captures[k], captures[k + 1], captures[v], captures[v + 1]});
+        assertEquals(-1, tagged.matchPrefix("ab", 0, captures));
+    }
+}
@@ -1,6 +1,7 @@
 package toRegexTests;
 
 import lab2at.lib.RegexLib;
+import lab2at.lib.ToRegex;
 import lab2at.util.ToRegexI;
 import org.junit.jupiter.api.Test;
 
@@ -37,6 +38,19 @@ class ToRegexTests {
         assertFalse(matches("aboba", "abobaa"));
     }
 
+    @Test
+    void testSpecialCharsEscaped() {
+        // одиночный символ ребра выводится литералом: '.', '(' и т.п. экранируются, иначе '.' стал бы любым символом
+        String[] patterns = {"a%.%b", "%(%x%)%|%[%%%%", "%{%1%}%%?%", "%<%a%|%"};
+        String[] inputs = {"a.b", "axb", "(x)", "[%", "x", "{1}?", "{1}", "<a|", "<a"};
+        for (String pattern : patterns) {
+            RegexLib lib = RegexLib.compile(pattern);
+            String restored = ToRegex.toRegex(lib.getAllDFA().get(lib.getMainDFAId()), Map.of());
+            RegexLib back = RegexLib.compile(restored);
+            for (String input : inputs) assertEquals(lib.match(input), back.match(input), restored + " / " + input);
+        }
+    }
+
     @Test
     void testOptionalOperator() {
         assertTrue(matches("a?b", "b"));